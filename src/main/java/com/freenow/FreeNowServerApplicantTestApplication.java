@@ -1,9 +1,18 @@
 package com.freenow;
 
+import com.freenow.controller.LocationRateLimitInterceptor;
 import com.freenow.util.LoggingInterceptor;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jpa.HibernateQueryMetrics;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import springfox.documentation.builders.ApiInfoBuilder;
@@ -15,13 +24,21 @@ import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
+import javax.persistence.EntityManagerFactory;
 import java.util.Arrays;
 
 @EnableSwagger2
+@EnableScheduling
 @SpringBootApplication
 public class FreeNowServerApplicantTestApplication implements WebMvcConfigurer
 {
 
+    @Autowired
+    private LoggingInterceptor loggingInterceptor;
+
+    @Autowired
+    private LocationRateLimitInterceptor locationRateLimitInterceptor;
+
     public static void main(String[] args)
     {
         SpringApplication.run(FreeNowServerApplicantTestApplication.class, args);
@@ -31,7 +48,29 @@ public class FreeNowServerApplicantTestApplication implements WebMvcConfigurer
     @Override
     public void addInterceptors(InterceptorRegistry registry)
     {
-        registry.addInterceptor(new LoggingInterceptor()).addPathPatterns("/**");
+        registry.addInterceptor(loggingInterceptor).addPathPatterns("/**");
+        registry.addInterceptor(locationRateLimitInterceptor).addPathPatterns(LocationRateLimitInterceptor.PATH);
+    }
+
+
+    /**
+     * Times the service methods annotated with {@link io.micrometer.core.annotation.Timed}.
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry)
+    {
+        return new TimedAspect(meterRegistry);
+    }
+
+
+    /**
+     * Execution count and time per JPA query, needs hibernate statistics. Unwraps the implementor, the plain
+     * {@link SessionFactory} is a spring proxy the query listener can not be registered with.
+     */
+    @Bean
+    public HibernateQueryMetrics hibernateQueryMetrics(EntityManagerFactory entityManagerFactory)
+    {
+        return new HibernateQueryMetrics(entityManagerFactory.unwrap(SessionFactoryImplementor.class), "entityManagerFactory", Tags.empty());
     }
 
 
@@ -6,17 +6,24 @@ import com.freenow.domainobject.CarDO;
 import com.freenow.exception.ConstraintsViolationException;
 import com.freenow.exception.EntityNotFoundException;
 import com.freenow.service.car.CarService;
+import com.freenow.util.BinaryFormatConfiguration;
+import com.freenow.util.JsonResponseCache;
+import com.freenow.util.StreamingArrayWriter;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.Authorization;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
-import java.util.List;
+import java.io.IOException;
 
 @Api(value = "Car Controller")
 @CrossOrigin(origins = "*", maxAge = 3600)
@@ -25,21 +32,36 @@ import java.util.List;
 public class CarController
 {
     private final CarService carService;
+    private final JsonResponseCache responseCache;
+    private final StreamingArrayWriter arrayWriter;
 
 
     @Autowired
-    public CarController(CarService carService)
+    public CarController(CarService carService, JsonResponseCache responseCache, StreamingArrayWriter arrayWriter)
     {
         this.carService = carService;
+        this.responseCache = responseCache;
+        this.arrayWriter = arrayWriter;
     }
 
 
+    /**
+     * JSON is served from the response cache, binary encodings are negotiated as for every other endpoint.
+     */
     @PreAuthorize("hasRole('USER')")
-    @ApiOperation(value = "get Car method", authorizations = {@Authorization(value = "JWT_LOGIN")})
-    @GetMapping("/{carId}")
-    public CarDTO getCar(@PathVariable long carId) throws EntityNotFoundException
+    @ApiOperation(value = "get Car method", response = CarDTO.class, authorizations = {@Authorization(value = "JWT_LOGIN")})
+    @GetMapping(
+        value = "/{carId}",
+        produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, BinaryFormatConfiguration.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<?> getCar(
+        @PathVariable long carId, @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept)
+        throws EntityNotFoundException
     {
-        return CarMapper.makeCarDTO(carService.find(carId));
+        if (!BinaryFormatConfiguration.prefersJson(accept))
+        {
+            return ResponseEntity.ok(CarMapper.makeCarDTO(carService.find(carId)));
+        }
+        return responseCache.get(CarDO.class, carId, () -> CarMapper.makeCarDTO(carService.find(carId))).toResponse();
     }
 
 
@@ -65,11 +87,12 @@ public class CarController
 
 
     @PreAuthorize("hasRole('USER')")
-    @ApiOperation(value = "find Car method", authorizations = {@Authorization(value = "JWT_LOGIN")})
+    @ApiOperation(value = "find Car method", response = CarDTO.class, responseContainer = "List", authorizations = {@Authorization(value = "JWT_LOGIN")})
     @GetMapping
-    public List<CarDTO> findCars()
+    public void findCars(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept, HttpServletResponse response)
+        throws IOException, HttpMediaTypeNotAcceptableException
     {
-        return CarMapper.makeCarDTOList(carService.findAll());
+        arrayWriter.write(accept, response, CarDTO.class, sink -> carService.stream(carDO -> sink.accept(CarMapper.makeCarDTO(carDO))));
     }
 
 
@@ -1,25 +1,55 @@
 package com.freenow.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.freenow.controller.mapper.DriverMapper;
 import com.freenow.datatransferobject.CarSelectDTO;
 import com.freenow.datatransferobject.DriverDTO;
+import com.freenow.datatransferobject.DriverLocationDTO;
+import com.freenow.datatransferobject.DriverLocationResultDTO;
+import com.freenow.datatransferobject.DriverPageDTO;
+import com.freenow.datatransferobject.DriverSearchDTO;
 import com.freenow.domainobject.DriverDO;
+import com.freenow.domainvalue.DriverMatch;
+import com.freenow.domainvalue.GeoBoundingBox;
 import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.domainvalue.RideRequest;
 import com.freenow.exception.CarAlreadyInUseException;
 import com.freenow.exception.ConstraintsViolationException;
 import com.freenow.exception.EntityNotFoundException;
 import com.freenow.service.driver.DriverService;
+import com.freenow.service.driver.DriverUpdateBroadcaster;
+import com.freenow.service.matching.BatchDispatcher;
+import com.freenow.service.matching.MatchingService;
+import com.freenow.util.BinaryFormatConfiguration;
+import com.freenow.util.JsonResponseCache;
+import com.freenow.util.StreamingArrayWriter;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.Authorization;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * All operations with a driver will be routed by this controller.
@@ -32,22 +62,57 @@ import java.util.List;
 public class DriverController
 {
 
+    static final String NDJSON = "application/x-ndjson";
+
+    // flush the response every n drivers so clients get the first lines early
+    private static final int STREAM_FLUSH_INTERVAL = 500;
+
     private final DriverService driverService;
+    private final DriverUpdateBroadcaster updateBroadcaster;
+    private final MatchingService matchingService;
+    private final BatchDispatcher dispatcher;
+    private final JsonResponseCache responseCache;
+    private final StreamingArrayWriter arrayWriter;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter driverWriter;
+    private final long updatesTimeoutMs;
 
 
     @Autowired
-    public DriverController(final DriverService driverService)
+    public DriverController(
+        final DriverService driverService, DriverUpdateBroadcaster updateBroadcaster, MatchingService matchingService,
+        BatchDispatcher dispatcher, JsonResponseCache responseCache, StreamingArrayWriter arrayWriter, ObjectMapper objectMapper,
+        @Value("${driver.updates.timeout-ms:1800000}") long updatesTimeoutMs)
     {
         this.driverService = driverService;
+        this.updateBroadcaster = updateBroadcaster;
+        this.matchingService = matchingService;
+        this.dispatcher = dispatcher;
+        this.responseCache = responseCache;
+        this.arrayWriter = arrayWriter;
+        this.objectMapper = objectMapper;
+        this.driverWriter = objectMapper.writerFor(DriverDTO.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.updatesTimeoutMs = updatesTimeoutMs;
     }
 
 
+    /**
+     * JSON is served from the response cache, binary encodings are negotiated as for every other endpoint.
+     */
     @PreAuthorize("hasRole('USER')")
-    @ApiOperation(value = "getDriver", authorizations = {@Authorization(value = "JWT_LOGIN")})
-    @GetMapping("/{driverId}")
-    public DriverDTO getDriver(@PathVariable long driverId) throws EntityNotFoundException
+    @ApiOperation(value = "getDriver", response = DriverDTO.class, authorizations = {@Authorization(value = "JWT_LOGIN")})
+    @GetMapping(
+        value = "/{driverId}",
+        produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, BinaryFormatConfiguration.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<?> getDriver(
+        @PathVariable long driverId, @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept)
+        throws EntityNotFoundException
     {
-        return DriverMapper.makeDriverDTO(driverService.find(driverId));
+        if (!BinaryFormatConfiguration.prefersJson(accept))
+        {
+            return ResponseEntity.ok(DriverMapper.makeDriverDTO(driverService.find(driverId)));
+        }
+        return responseCache.get(DriverDO.class, driverId, () -> DriverMapper.makeDriverDTO(driverService.find(driverId))).toResponse();
     }
 
 
@@ -83,12 +148,210 @@ public class DriverController
     }
 
 
+    /**
+     * Sets the online status of a driver, ONLINE drivers repeat it as heartbeat before the presence timeout.
+     */
+    @PreAuthorize("hasRole('USER')")
+    @ApiOperation(value = "updateStatus", authorizations = {@Authorization(value = "JWT_LOGIN")})
+    @PutMapping("/{driverId}/status")
+    public void updateStatus(@PathVariable long driverId, @RequestParam OnlineStatus onlineStatus)
+        throws EntityNotFoundException, CarAlreadyInUseException
+    {
+        driverService.updateStatus(driverId, onlineStatus);
+    }
+
+
+    /**
+     * Applies up to {@value DriverService#MAX_LOCATION_BATCH_SIZE} location updates at once, larger lists are rejected.
+     */
+    @PreAuthorize("hasRole('USER')")
+    @ApiOperation(value = "updateLocations", authorizations = {@Authorization(value = "JWT_LOGIN")})
+    @PutMapping("/locations")
+    public List<DriverLocationResultDTO> updateLocations(@RequestBody List<DriverLocationDTO> locations)
+    {
+        if (locations.size() > DriverService.MAX_LOCATION_BATCH_SIZE)
+        {
+            throw new ResponseStatusException(
+                HttpStatus.BAD_REQUEST, "At most " + DriverService.MAX_LOCATION_BATCH_SIZE + " locations per request");
+        }
+        return DriverMapper.makeDriverLocationResultDTOList(locations, driverService.updateLocations(locations));
+    }
+
+
     @PreAuthorize("hasRole('USER')")
     @ApiOperation(value = "selectCar", authorizations = {@Authorization(value = "JWT_LOGIN")})
     @GetMapping
     public List<DriverDTO> findDrivers(@RequestParam OnlineStatus onlineStatus)
     {
-        return DriverMapper.makeDriverDTOList(driverService.find(onlineStatus));
+        return DriverMapper.makeDriverSummaryDTOList(driverService.findSummaries(onlineStatus));
+    }
+
+
+    @PreAuthorize("hasRole('USER')")
+    @ApiOperation(value = "findDriversPage", authorizations = {@Authorization(value = "JWT_LOGIN")})
+    @GetMapping("/page")
+    public DriverPageDTO findDriversPage(
+        @RequestParam OnlineStatus onlineStatus, @RequestParam(defaultValue = "0") long afterId,
+        @RequestParam(defaultValue = "100") int size)
+    {
+        int pageSize = Math.max(1, Math.min(size, DriverService.MAX_PAGE_SIZE));
+        return DriverMapper.makeDriverPageDTO(driverService.findPage(onlineStatus, afterId, pageSize), pageSize);
+    }
+
+
+    @PreAuthorize("hasRole('USER')")
+    @ApiOperation(value = "streamDrivers", notes = "One driver per line (NDJSON)", authorizations = {@Authorization(value = "JWT_LOGIN")})
+    @GetMapping(value = "/stream", produces = NDJSON)
+    public void streamDrivers(@RequestParam OnlineStatus onlineStatus, HttpServletResponse response) throws IOException
+    {
+        response.setContentType(NDJSON);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream()))
+        {
+            generator.setRootValueSeparator(null);
+            int[] written = {0};
+            driverService.stream(onlineStatus, driverDO -> {
+                try
+                {
+                    driverWriter.writeValue(generator, DriverMapper.makeDriverDTO(driverDO));
+                    generator.writeRaw('\n');
+                    if (++written[0] % STREAM_FLUSH_INTERVAL == 0)
+                    {
+                        generator.flush();
+                    }
+                }
+                catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+
+    @PreAuthorize("hasRole('USER')")
+    @ApiOperation(
+        value = "subscribeDriverUpdates", notes = "Server-sent events named 'drivers', each with a JSON array of location and status deltas",
+        authorizations = {@Authorization(value = "JWT_LOGIN")})
+    @GetMapping(value = "/updates", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeDriverUpdates(
+        @RequestParam(required = false) Double minLatitude, @RequestParam(required = false) Double maxLatitude,
+        @RequestParam(required = false) Double minLongitude, @RequestParam(required = false) Double maxLongitude)
+    {
+        GeoBoundingBox boundingBox = boundingBox(minLatitude, maxLatitude, minLongitude, maxLongitude);
+        SseEmitter emitter = new SseEmitter(updatesTimeoutMs);
+        DriverUpdateBroadcaster.Subscription subscription = updateBroadcaster.subscribe(
+            boundingBox, updates -> emitter.send(SseEmitter.event().name("drivers").data(updates, MediaType.APPLICATION_JSON)));
+        if (subscription == null)
+        {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many driver update subscribers");
+        }
+        emitter.onCompletion(() -> updateBroadcaster.unsubscribe(subscription));
+        emitter.onTimeout(() -> updateBroadcaster.unsubscribe(subscription));
+        emitter.onError(error -> updateBroadcaster.unsubscribe(subscription));
+        return emitter;
+    }
+
+
+    private static GeoBoundingBox boundingBox(Double minLatitude, Double maxLatitude, Double minLongitude, Double maxLongitude)
+    {
+        if (minLatitude == null && maxLatitude == null && minLongitude == null && maxLongitude == null)
+        {
+            return null;
+        }
+        if (minLatitude == null || maxLatitude == null || minLongitude == null || maxLongitude == null)
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A bounding box needs all of minLatitude, maxLatitude, minLongitude and maxLongitude");
+        }
+        try
+        {
+            return new GeoBoundingBox(minLatitude, maxLatitude, minLongitude, maxLongitude);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+
+    @PreAuthorize("hasRole('USER')")
+    @ApiOperation(value = "findLocationHistory", authorizations = {@Authorization(value = "JWT_LOGIN")})
+    @GetMapping("/{driverId}/locations")
+    public List<DriverLocationDTO> findLocationHistory(
+        @PathVariable long driverId,
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) ZonedDateTime from,
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) ZonedDateTime to,
+        @RequestParam(defaultValue = "1000") int limit)
+    {
+        if (from.isAfter(to))
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from has to be before to");
+        }
+        return DriverMapper.makeDriverLocationDTOList(driverService.findLocationHistory(driverId, from, to, limit));
+    }
+
+
+    @PreAuthorize("hasRole('USER')")
+    @ApiOperation(value = "findNearestDrivers", authorizations = {@Authorization(value = "JWT_LOGIN")})
+    @GetMapping("/nearest")
+    public List<DriverDTO> findNearestDrivers(
+        @RequestParam double latitude, @RequestParam double longitude,
+        @RequestParam(defaultValue = "5") double radiusKm, @RequestParam(defaultValue = "10") int limit)
+    {
+        return DriverMapper.makeDriverDTOList(driverService.findNearest(latitude, longitude, radiusKm, limit));
+    }
+
+
+    /**
+     * Best ranked ONLINE drivers with a selected car for a ride, seat count and convertible are hard requirements, the
+     * engine type is a preference.
+     */
+    @PreAuthorize("hasRole('USER')")
+    @ApiOperation(value = "matchDrivers", authorizations = {@Authorization(value = "JWT_LOGIN")})
+    @GetMapping("/match")
+    public List<DriverMatch> matchDrivers(
+        @RequestParam double latitude, @RequestParam double longitude,
+        @RequestParam(defaultValue = "5") double radiusKm, @RequestParam(defaultValue = "5") int limit,
+        @RequestParam(required = false) Integer seatCount, @RequestParam(required = false) Boolean convertible,
+        @RequestParam(required = false) String engineType)
+    {
+        return matchingService.match(new RideRequest(latitude, longitude, radiusKm, limit, seatCount, convertible, engineType));
+    }
+
+
+    /**
+     * Claims a driver for a ride. Rides are assigned together with all others of the current dispatch window, the
+     * response is sent once the window is over: 200 with the claimed driver or 204 if none is available.
+     */
+    @PreAuthorize("hasRole('USER')")
+    @ApiOperation(value = "dispatchRide", authorizations = {@Authorization(value = "JWT_LOGIN")})
+    @PostMapping("/dispatch")
+    public CompletableFuture<ResponseEntity<DriverMatch>> dispatchRide(
+        @RequestParam double latitude, @RequestParam double longitude, @RequestParam(defaultValue = "5") double radiusKm,
+        @RequestParam(required = false) Integer seatCount, @RequestParam(required = false) Boolean convertible,
+        @RequestParam(required = false) String engineType)
+    {
+        try
+        {
+            return dispatcher.submit(new RideRequest(latitude, longitude, radiusKm, 1, seatCount, convertible, engineType))
+                .thenApply(match -> match.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.noContent().build()));
+        }
+        catch (RejectedExecutionException e)
+        {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
+    }
+
+
+    /**
+     * Makes a dispatched driver available for matches again once the ride is over or was declined, otherwise the
+     * claim expires after {@code matching.claim-seconds}.
+     */
+    @PreAuthorize("hasRole('USER')")
+    @ApiOperation(value = "releaseDriver", authorizations = {@Authorization(value = "JWT_LOGIN")})
+    @PutMapping("/{driverId}/release")
+    public void releaseDriver(@PathVariable long driverId)
+    {
+        matchingService.release(driverId);
     }
 
 
@@ -111,10 +374,22 @@ public class DriverController
 
 
     @PreAuthorize("hasRole('USER')")
-    @ApiOperation(value = "findDriverByParams", authorizations = {@Authorization(value = "JWT_LOGIN")})
+    @ApiOperation(value = "findDriverByParams", response = DriverDTO.class, responseContainer = "List", authorizations = {@Authorization(value = "JWT_LOGIN")})
     @PostMapping("/findDriverByParams")
-    public List<DriverDTO> findDriverByParams(@Valid @RequestBody DriverDTO driverDTO)
+    public void findDriverByParams(
+        @Valid @RequestBody DriverDTO driverDTO, @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+        HttpServletResponse response) throws IOException, HttpMediaTypeNotAcceptableException
+    {
+        arrayWriter.write(accept, response, DriverDTO.class,
+            sink -> driverService.streamDriverByParams(driverDTO, driverDO -> sink.accept(DriverMapper.makeDriverDTO(driverDO))));
+    }
+
+
+    @PreAuthorize("hasRole('USER')")
+    @ApiOperation(value = "searchDrivers", authorizations = {@Authorization(value = "JWT_LOGIN")})
+    @PostMapping("/search")
+    public List<DriverDTO> searchDrivers(@RequestBody DriverSearchDTO criteria)
     {
-        return DriverMapper.makeDriverDTOList(driverService.findDriverByParams(driverDTO));
+        return DriverMapper.makeDriverDTOList(driverService.search(criteria));
     }
 }
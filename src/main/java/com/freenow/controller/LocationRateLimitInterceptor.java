@@ -0,0 +1,185 @@
+package com.freenow.controller;
+
+import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.service.driver.LocationIngestionPipeline;
+import com.freenow.util.TokenBucketTable;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limit of single location pings per driver and per JWT subject, in front of
+ * {@link DriverController#updateLocation(long, double, double)}.
+ * <p/>
+ * Pings over the limit are either coalesced into the write-behind buffer, where only the latest position per driver
+ * is kept until the next flush, and answered with 202, or rejected with 429 and {@code Retry-After}. The flush applies
+ * coalesced pings to the location index, the response cache and the update stream. Only pings of drivers known to be
+ * online without asking the database are coalesced, those of other drivers are rejected.
+ */
+@Component
+public class LocationRateLimitInterceptor implements HandlerInterceptor
+{
+
+    public static final String PATH = "/v1/drivers/{driverId:\\d+}";
+
+    // role required by the endpoint, see DriverController
+    private static final String ROLE = "ROLE_USER";
+
+    public enum Mode
+    {
+        COALESCE, REJECT
+    }
+
+    private final LocationIngestionPipeline locationPipeline;
+    private final Mode mode;
+    private final TokenBucketTable drivers;
+    private final TokenBucketTable subjects;
+
+    private final Counter allowed;
+    private final Counter coalesced;
+    private final Counter rejected;
+
+
+    public LocationRateLimitInterceptor(
+        LocationIngestionPipeline locationPipeline,
+        MeterRegistry meterRegistry,
+        @Value("${web.rate-limit.location.mode:COALESCE}") Mode mode,
+        @Value("${web.rate-limit.location.driver.per-second:1}") double driverPerSecond,
+        @Value("${web.rate-limit.location.driver.burst:5}") int driverBurst,
+        @Value("${web.rate-limit.location.driver.max-keys:1000000}") int driverMaxKeys,
+        @Value("${web.rate-limit.location.subject.per-second:1000}") double subjectPerSecond,
+        @Value("${web.rate-limit.location.subject.burst:2000}") int subjectBurst,
+        @Value("${web.rate-limit.location.subject.max-keys:100000}") int subjectMaxKeys)
+    {
+        this.locationPipeline = locationPipeline;
+        this.mode = mode;
+        this.drivers = new TokenBucketTable(driverMaxKeys, driverPerSecond, driverBurst);
+        this.subjects = new TokenBucketTable(subjectMaxKeys, subjectPerSecond, subjectBurst);
+
+        this.allowed = meterRegistry.counter("web.rate-limit.location", "result", "allowed");
+        this.coalesced = meterRegistry.counter("web.rate-limit.location", "result", "coalesced");
+        this.rejected = meterRegistry.counter("web.rate-limit.location", "result", "rejected");
+        FunctionCounter.builder("web.rate-limit.location.overflow", this, limit -> limit.drivers.overflowCount() + limit.subjects.overflowCount())
+            .description("Pings let through because the bucket table had no free slot")
+            .register(meterRegistry);
+    }
+
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+    {
+        long driverId = driverId(request);
+        long subject = subjectKey();
+        // requests the endpoint would refuse are left to it, they must never be coalesced
+        if (driverId <= 0 || subject == 0 || !HttpMethod.PUT.matches(request.getMethod()))
+        {
+            return true;
+        }
+        long now = System.nanoTime();
+        // the subject permit is taken only if the driver has one, and the driver permit only if the subject had one
+        long waitNanos = drivers.waitNanos(driverId, now);
+        if (waitNanos == 0)
+        {
+            waitNanos = subjects.tryAcquire(subject, now);
+        }
+        if (waitNanos == 0)
+        {
+            waitNanos = drivers.tryAcquire(driverId, now);
+        }
+        if (waitNanos == 0)
+        {
+            allowed.increment();
+            return true;
+        }
+        if (mode == Mode.COALESCE && locationPipeline.isTracked(driverId) && coalesce(request, driverId))
+        {
+            coalesced.increment();
+            response.setStatus(HttpStatus.ACCEPTED.value());
+            return false;
+        }
+        rejected.increment();
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999))));
+        return false;
+    }
+
+
+    private boolean coalesce(HttpServletRequest request, long driverId)
+    {
+        GeoCoordinate coordinate;
+        try
+        {
+            coordinate = new GeoCoordinate(
+                Double.parseDouble(request.getParameter("latitude")), Double.parseDouble(request.getParameter("longitude")));
+        }
+        catch (NullPointerException | IllegalArgumentException e)
+        {
+            return false;
+        }
+        return locationPipeline.buffer(driverId, coordinate.getLatitude(), coordinate.getLongitude());
+    }
+
+
+    private static long driverId(HttpServletRequest request)
+    {
+        Object variables = request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        Object driverId = variables instanceof Map ? ((Map<?, ?>) variables).get("driverId") : null;
+        try
+        {
+            return driverId == null ? 0 : Long.parseLong(driverId.toString());
+        }
+        catch (NumberFormatException e)
+        {
+            return 0;
+        }
+    }
+
+
+    /**
+     * @return 64 bit FNV-1a hash of the subject authenticated with the role of the endpoint, 0 without one
+     */
+    private static long subjectKey()
+    {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated() || authentication.getName() == null || !hasRole(authentication))
+        {
+            return 0;
+        }
+        String subject = authentication.getName();
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < subject.length(); i++)
+        {
+            hash ^= subject.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+
+    private static boolean hasRole(Authentication authentication)
+    {
+        for (GrantedAuthority authority : authentication.getAuthorities())
+        {
+            if (ROLE.equals(authority.getAuthority()))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
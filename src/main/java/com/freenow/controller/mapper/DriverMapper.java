@@ -1,11 +1,19 @@
 package com.freenow.controller.mapper;
 
+import com.freenow.datatransferobject.CarDTO;
 import com.freenow.datatransferobject.DriverDTO;
+import com.freenow.datatransferobject.DriverLocationDTO;
+import com.freenow.datatransferobject.DriverLocationResultDTO;
+import com.freenow.datatransferobject.DriverPageDTO;
 import com.freenow.domainobject.CarDO;
 import com.freenow.domainobject.DriverDO;
+import com.freenow.domainvalue.DriverSummary;
 import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.domainvalue.LocationPing;
+import com.freenow.domainvalue.LocationUpdateStatus;
 import com.freenow.domainvalue.OnlineStatus;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -45,10 +53,88 @@ public class DriverMapper
     }
 
 
+    public static DriverDTO makeDriverDTO(DriverSummary summary)
+    {
+        DriverDTO.DriverDTOBuilder driverDTOBuilder = DriverDTO.newBuilder()
+            .setId(summary.getId())
+            .setPassword(summary.getPassword())
+            .setUsername(summary.getUsername());
+
+        GeoCoordinate coordinate = summary.getCoordinate();
+        if (coordinate != null)
+        {
+            driverDTOBuilder.setCoordinate(coordinate);
+        }
+        if (summary.getCarId() != null)
+        {
+            driverDTOBuilder.setCarDTO(CarDTO.newBuilder()
+                .setId(summary.getCarId())
+                .setConvertible(summary.getConvertible())
+                .setSeatCount(summary.getSeatCount())
+                .setRating(summary.getRating())
+                .setLicensePlate(summary.getLicensePlate())
+                .setEngineType(summary.getEngineType())
+                .createCarDTO());
+        }
+
+        OnlineStatus onlineStatus = summary.getOnlineStatus();
+        if (onlineStatus != null)
+        {
+            driverDTOBuilder.setOnlineStatus(onlineStatus);
+        }
+        return driverDTOBuilder.createDriverDTO();
+    }
+
+
     public static List<DriverDTO> makeDriverDTOList(Collection<DriverDO> drivers)
     {
         return drivers.stream()
             .map(DriverMapper::makeDriverDTO)
             .collect(Collectors.toList());
     }
+
+
+    /**
+     * @param pageSize requested page size, a shorter page is the last one
+     */
+    public static DriverPageDTO makeDriverPageDTO(List<DriverSummary> drivers, int pageSize)
+    {
+        Long nextAfterId = drivers.size() < pageSize ? null : drivers.get(drivers.size() - 1).getId();
+        return new DriverPageDTO(makeDriverSummaryDTOList(drivers), nextAfterId);
+    }
+
+
+    public static List<DriverDTO> makeDriverSummaryDTOList(List<DriverSummary> drivers)
+    {
+        List<DriverDTO> driverDTOs = new ArrayList<>(drivers.size());
+        for (DriverSummary summary : drivers)
+        {
+            driverDTOs.add(makeDriverDTO(summary));
+        }
+        return driverDTOs;
+    }
+
+
+    public static List<DriverLocationDTO> makeDriverLocationDTOList(List<LocationPing> pings)
+    {
+        List<DriverLocationDTO> locations = new ArrayList<>(pings.size());
+        for (LocationPing ping : pings)
+        {
+            locations.add(new DriverLocationDTO(ping.getDriverId(), ping.getLatitude(), ping.getLongitude(), ping.getTimestamp()));
+        }
+        return locations;
+    }
+
+
+    public static List<DriverLocationResultDTO> makeDriverLocationResultDTOList(
+        List<DriverLocationDTO> locations, List<LocationUpdateStatus> statuses)
+    {
+        List<DriverLocationResultDTO> results = new ArrayList<>(locations.size());
+        for (int i = 0; i < locations.size(); i++)
+        {
+            DriverLocationDTO location = locations.get(i);
+            results.add(new DriverLocationResultDTO(location == null ? null : location.getDriverId(), statuses.get(i)));
+        }
+        return results;
+    }
 }
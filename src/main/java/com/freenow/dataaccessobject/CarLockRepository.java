@@ -0,0 +1,18 @@
+package com.freenow.dataaccessobject;
+
+import com.freenow.domainobject.CarDO;
+
+import java.util.Optional;
+
+/**
+ * Locking reads of the car table.
+ * <p/>
+ */
+public interface CarLockRepository
+{
+
+    /**
+     * Loads the car and increments its version on commit, a concurrent transaction doing the same fails.
+     */
+    Optional<CarDO> findLockedById(Long id);
+}
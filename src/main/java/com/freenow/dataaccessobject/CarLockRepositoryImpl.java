@@ -0,0 +1,42 @@
+package com.freenow.dataaccessobject;
+
+import com.freenow.domainobject.CarDO;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import java.util.Optional;
+
+/**
+ * JPA implementation of {@link CarLockRepository}, picked up by Spring Data as fragment of {@link CarRepository}.
+ * <p/>
+ * Hibernate does not write the forced version increment to the second-level cache, so the car is evicted after commit,
+ * otherwise the next assignment would be checked against the cached old version and fail.
+ */
+public class CarLockRepositoryImpl implements CarLockRepository
+{
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+
+    @Override
+    public Optional<CarDO> findLockedById(Long id)
+    {
+        CarDO carDO = entityManager.find(CarDO.class, id, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+        if (carDO != null && TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    entityManager.getEntityManagerFactory().getCache().evict(CarDO.class, id);
+                }
+            });
+        }
+        return Optional.ofNullable(carDO);
+    }
+}
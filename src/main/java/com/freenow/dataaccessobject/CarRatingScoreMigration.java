@@ -0,0 +1,63 @@
+package com.freenow.dataaccessobject;
+
+import com.freenow.domainobject.CarDO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fills the numeric rating copy of cars written before it existed or written with plain SQL.
+ * <p/>
+ * Hibernate ({@code ddl-auto=update}) adds the column, the entity keeps it in sync from then on. Ratings that are not a
+ * number stay without a copy and never match a minimum rating. It runs before the application reports ready, so
+ * searches by minimum rating see every car.
+ */
+@Component
+public class CarRatingScoreMigration implements ApplicationRunner
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(CarRatingScoreMigration.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+
+    public CarRatingScoreMigration(JdbcTemplate jdbcTemplate)
+    {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+
+    @Override
+    public void run(ApplicationArguments args)
+    {
+        migrate();
+    }
+
+
+    /**
+     * @return number of cars that got a numeric rating
+     */
+    public int migrate()
+    {
+        List<Object[]> rows = new ArrayList<>();
+        jdbcTemplate.query("select id, rating from car where rating is not null and rating_score is null", rs -> {
+            Double score = CarDO.ratingScore(rs.getString(2));
+            if (score != null)
+            {
+                rows.add(new Object[] {score, rs.getLong(1)});
+            }
+        });
+        if (!rows.isEmpty())
+        {
+            jdbcTemplate.batchUpdate("update car set rating_score = ? where id = ?", rows);
+            LOG.info("Copied the rating of {} cars to the numeric rating column", rows.size());
+        }
+        return rows.size();
+    }
+}
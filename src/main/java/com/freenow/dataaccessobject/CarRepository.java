@@ -1,11 +1,30 @@
 package com.freenow.dataaccessobject;
 
 import com.freenow.domainobject.CarDO;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 
+import javax.persistence.QueryHint;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface CarRepository extends CrudRepository<CarDO, Long>
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_MODE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+public interface CarRepository extends CrudRepository<CarDO, Long>, CarLockRepository
 {
     List<CarDO> findAll();
+
+    /**
+     * Has to be consumed and closed inside a transaction.
+     */
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = DriverRepository.STREAM_FETCH_SIZE),
+        @QueryHint(name = HINT_READONLY, value = "true"),
+        @QueryHint(name = HINT_CACHE_MODE, value = DriverRepository.STREAM_CACHE_MODE)
+    })
+    @Query("select c from CarDO c order by c.id")
+    Stream<CarDO> streamAll();
 }
@@ -0,0 +1,26 @@
+package com.freenow.dataaccessobject;
+
+import com.freenow.domainvalue.LocationPing;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Bulk write access to the location columns of the driver table, bypassing entity hydration.
+ * <p/>
+ */
+public interface DriverLocationRepository
+{
+
+    /**
+     * Writes the given positions in JDBC batches. A position older than the one already stored is skipped.
+     *
+     * @return the update count per ping, in the order of the given list; 0 for unknown drivers and stale pings
+     */
+    int[] updateLocations(List<LocationPing> pings);
+
+    /**
+     * @return the subset of the given ids that belong to existing drivers
+     */
+    List<Long> findExistingDriverIds(Collection<Long> driverIds);
+}
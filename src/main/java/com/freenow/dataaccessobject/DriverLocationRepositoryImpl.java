@@ -0,0 +1,118 @@
+package com.freenow.dataaccessobject;
+
+import com.freenow.domainobject.DriverDO;
+import com.freenow.domainvalue.LocationPing;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * JDBC implementation of {@link DriverLocationRepository}, picked up by Spring Data as fragment of {@link DriverRepository}.
+ * <p/>
+ */
+public class DriverLocationRepositoryImpl implements DriverLocationRepository
+{
+
+    private static final String UPDATE_LOCATION =
+        "update driver set latitude = ?, longitude = ?, date_coordinate_updated = ? "
+            + "where id = ? and (date_coordinate_updated is null or date_coordinate_updated <= ?)";
+
+    private static final String SELECT_EXISTING_IDS = "select id from driver where id in (:ids)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final Cache secondLevelCache;
+    private final int batchSize;
+
+
+    public DriverLocationRepositoryImpl(
+        JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory,
+        @Value("${driver.location.write-behind.batch-size:500}") int batchSize)
+    {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.secondLevelCache = entityManagerFactory.getCache();
+        this.batchSize = batchSize;
+    }
+
+
+    @Override
+    @Transactional
+    public int[] updateLocations(List<LocationPing> pings)
+    {
+        int[] counts = new int[pings.size()];
+        int[][] batches = jdbcTemplate.batchUpdate(UPDATE_LOCATION, pings, batchSize, (ps, ping) -> {
+            Timestamp timestamp = Timestamp.from(ping.getTimestamp().toInstant());
+            ps.setDouble(1, ping.getLatitude());
+            ps.setDouble(2, ping.getLongitude());
+            ps.setTimestamp(3, timestamp);
+            ps.setLong(4, ping.getDriverId());
+            ps.setTimestamp(5, timestamp);
+        });
+        int position = 0;
+        for (int[] batch : batches)
+        {
+            System.arraycopy(batch, 0, counts, position, batch.length);
+            position += batch.length;
+        }
+        evictUpdated(pings, counts);
+        return counts;
+    }
+
+
+    @Override
+    public List<Long> findExistingDriverIds(Collection<Long> driverIds)
+    {
+        if (driverIds.isEmpty())
+        {
+            return new ArrayList<>();
+        }
+        return namedJdbcTemplate.queryForList(SELECT_EXISTING_IDS, new MapSqlParameterSource("ids", driverIds), Long.class);
+    }
+
+
+    /**
+     * The statements bypass hibernate, so the changed drivers are evicted from the second-level cache now and once
+     * more after commit, a concurrent load could put the state from before the commit back in between. Cached query
+     * results only hold driver ids and stay valid.
+     */
+    private void evictUpdated(List<LocationPing> pings, int[] counts)
+    {
+        List<Long> updated = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++)
+        {
+            if (counts[i] != 0)
+            {
+                updated.add(pings.get(i).getDriverId());
+            }
+        }
+        if (updated.isEmpty())
+        {
+            return;
+        }
+        updated.forEach(driverId -> secondLevelCache.evict(DriverDO.class, driverId));
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    updated.forEach(driverId -> secondLevelCache.evict(DriverDO.class, driverId));
+                }
+            });
+        }
+    }
+}
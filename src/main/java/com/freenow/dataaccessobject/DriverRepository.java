@@ -1,38 +1,111 @@
 package com.freenow.dataaccessobject;
 
-import com.freenow.datatransferobject.DriverDTO;
 import com.freenow.domainobject.DriverDO;
+import com.freenow.domainvalue.DriverSummary;
 import com.freenow.domainvalue.OnlineStatus;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_MODE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 /**
  * Database Access Object for driver table.
  * <p/>
  */
-public interface DriverRepository extends CrudRepository<DriverDO, Long>
+public interface DriverRepository extends CrudRepository<DriverDO, Long>, JpaSpecificationExecutor<DriverDO>, DriverLocationRepository,
+    DriverStatusRepository
 {
 
+    /**
+     * Rows fetched per database round trip while streaming, the caller detaches every row before handing it on.
+     */
+    String STREAM_FETCH_SIZE = "500";
+
+    /**
+     * Streamed rows neither read nor fill the second-level cache, they would only evict the frequently read entries.
+     */
+    String STREAM_CACHE_MODE = "IGNORE";
+
+    String SUMMARY_SELECT = "select new com.freenow.domainvalue.DriverSummary("
+        + "d.id, d.username, d.password, d.coordinate.latitude, d.coordinate.longitude, d.dateCoordinateUpdated, d.onlineStatus,"
+        + " c.id, c.licensePlate, c.seatCount, c.convertible, c.rating, c.engineType)"
+        + " from DriverDO d left join d.carDO c";
+
+    /**
+     * Cached query, the cached result is dropped on every change of the driver or car table made through JPA.
+     */
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     List<DriverDO> findByOnlineStatus(OnlineStatus onlineStatus);
 
-    DriverDO findByOnlineStatusIsAndCarDOId(OnlineStatus onlineStatus, Long carId);
+    /**
+     * Read-only listing, drivers and their cars in one statement without loading entities.
+     */
+    @Query(SUMMARY_SELECT + " where d.onlineStatus = :onlineStatus order by d.id")
+    List<DriverSummary> findSummariesByOnlineStatus(@Param("onlineStatus") OnlineStatus onlineStatus);
+
+    /**
+     * Keyset pagination, the page starts right after the last id of the previous page so the database seeks the
+     * primary key instead of skipping an offset. Read-only listing, see {@link #findSummariesByOnlineStatus(OnlineStatus)}.
+     */
+    @Query(SUMMARY_SELECT + " where d.onlineStatus = :onlineStatus and d.id > :afterId order by d.id")
+    List<DriverSummary> findSummariesByOnlineStatusAfter(
+        @Param("onlineStatus") OnlineStatus onlineStatus, @Param("afterId") long afterId, Pageable pageable);
+
+    /**
+     * Read-only listing of the given drivers, see {@link #findSummariesByOnlineStatus(OnlineStatus)}.
+     */
+    @Query(SUMMARY_SELECT + " where d.id in :ids order by d.id")
+    List<DriverSummary> findSummariesByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * The given drivers with their cars in one statement, the rows are neither tracked nor put into the second-level
+     * cache.
+     */
+    @QueryHints({
+        @QueryHint(name = HINT_READONLY, value = "true"),
+        @QueryHint(name = HINT_CACHE_MODE, value = STREAM_CACHE_MODE)
+    })
+    @Query("select d from DriverDO d left join fetch d.carDO where d.id in :ids order by d.id")
+    List<DriverDO> findWithCarByIds(@Param("ids") Collection<Long> ids);
 
-    @Query("select d from DriverDO d where "
+    /**
+     * Has to be consumed and closed inside a transaction.
+     */
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+        @QueryHint(name = HINT_READONLY, value = "true"),
+        @QueryHint(name = HINT_CACHE_MODE, value = STREAM_CACHE_MODE)
+    })
+    @Query("select d from DriverDO d left join fetch d.carDO where d.onlineStatus = :onlineStatus order by d.id")
+    Stream<DriverDO> streamByOnlineStatus(@Param("onlineStatus") OnlineStatus onlineStatus);
 
-//        + " (:#{#driverDTO.coordinate.point} is null OR d.coordinate.point = :#{#driverDTO.coordinate.point})"
-        + "  (:#{#driverDTO.deleted} is null OR d.deleted = :#{#driverDTO.deleted})"
-        + " AND (:#{#driverDTO.username} is null OR d.username = :#{#driverDTO.username})"
-        + " AND ( d.onlineStatus = 'ONLINE')"
+    /**
+     * Whether a driver other than the given one is persisted as ONLINE with the car, also covers the selections made
+     * through other application instances.
+     */
+    @Query("select case when count(d) > 0 then true else false end from DriverDO d"
+        + " where d.carDO.id = :carId and d.id <> :driverId and d.onlineStatus = com.freenow.domainvalue.OnlineStatus.ONLINE"
+        + " and d.deleted = false")
+    boolean isCarSelectedByOtherOnlineDriver(@Param("carId") long carId, @Param("driverId") long driverId);
 
-        + " AND (:#{#driverDTO.carDTO.licensePlate} is null OR d.carDO.licensePlate = :#{#driverDTO.carDTO.licensePlate})"
-        + " AND (:#{#driverDTO.carDTO.engineType} is null OR d.carDO.engineType = :#{#driverDTO.carDTO.engineType})"
-        + " AND (:#{#driverDTO.carDTO.rating} is null OR d.carDO.rating = :#{#driverDTO.carDTO.rating})"
-        + " AND (:#{#driverDTO.carDTO.seatCount} is null OR d.carDO.seatCount = :#{#driverDTO.carDTO.seatCount})"
-        + " AND (:#{#driverDTO.carDTO.convertible} is null OR d.carDO.convertible = :#{#driverDTO.carDTO.convertible})"
-    )
-    List<DriverDO> findByParams(@Param("driverDTO") DriverDTO driverDTO);
+    @Query("select d from DriverDO d where d.onlineStatus = :onlineStatus"
+        + " AND d.coordinate.latitude between :minLatitude and :maxLatitude"
+        + " AND d.coordinate.longitude between :minLongitude and :maxLongitude")
+    List<DriverDO> findWithinBoundingBox(
+        @Param("onlineStatus") OnlineStatus onlineStatus,
+        @Param("minLatitude") double minLatitude, @Param("maxLatitude") double maxLatitude,
+        @Param("minLongitude") double minLongitude, @Param("maxLongitude") double maxLongitude);
 }
@@ -0,0 +1,24 @@
+package com.freenow.dataaccessobject;
+
+import com.freenow.domainvalue.OnlineStatus;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk access to the online status column of the driver table, bypassing entity hydration.
+ * <p/>
+ */
+public interface DriverStatusRepository
+{
+
+    /**
+     * Writes the given statuses in JDBC batches, unknown drivers are skipped.
+     */
+    void updateOnlineStatuses(Map<Long, OnlineStatus> statuses);
+
+    /**
+     * @return the ids of all ONLINE, not deleted drivers
+     */
+    List<Long> findAllOnlineDriverIds();
+}
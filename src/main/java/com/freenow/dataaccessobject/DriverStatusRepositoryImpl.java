@@ -0,0 +1,91 @@
+package com.freenow.dataaccessobject;
+
+import com.freenow.domainobject.DriverDO;
+import com.freenow.domainvalue.OnlineStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC implementation of {@link DriverStatusRepository}, picked up by Spring Data as fragment of {@link DriverRepository}.
+ * <p/>
+ */
+public class DriverStatusRepositoryImpl implements DriverStatusRepository
+{
+
+    private static final String UPDATE_ONLINE_STATUS = "update driver set online_status = ? where id = ?";
+
+    private static final String SELECT_ALL_ONLINE_IDS = "select id from driver where online_status = ? and deleted = false";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache secondLevelCache;
+    private final int batchSize;
+
+
+    public DriverStatusRepositoryImpl(
+        JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory,
+        @Value("${driver.presence.batch-size:500}") int batchSize)
+    {
+        this.jdbcTemplate = jdbcTemplate;
+        this.secondLevelCache = entityManagerFactory.getCache();
+        this.batchSize = batchSize;
+    }
+
+
+    @Override
+    @Transactional
+    public void updateOnlineStatuses(Map<Long, OnlineStatus> statuses)
+    {
+        if (statuses.isEmpty())
+        {
+            return;
+        }
+        List<Map.Entry<Long, OnlineStatus>> entries = new ArrayList<>(statuses.entrySet());
+        jdbcTemplate.batchUpdate(UPDATE_ONLINE_STATUS, entries, batchSize, (ps, entry) -> {
+            ps.setString(1, entry.getValue().name());
+            ps.setLong(2, entry.getKey());
+        });
+        evictUpdated(new ArrayList<>(statuses.keySet()));
+    }
+
+
+    @Override
+    public List<Long> findAllOnlineDriverIds()
+    {
+        return jdbcTemplate.queryForList(SELECT_ALL_ONLINE_IDS, Long.class, OnlineStatus.ONLINE.name());
+    }
+
+
+    /**
+     * The statements bypass hibernate, so the changed drivers and the cached query results, which are selected by
+     * online status, are evicted from the second-level cache now and once more after commit.
+     */
+    private void evictUpdated(List<Long> driverIds)
+    {
+        Runnable eviction = () -> {
+            driverIds.forEach(driverId -> secondLevelCache.evict(DriverDO.class, driverId));
+            secondLevelCache.unwrap(org.hibernate.Cache.class).evictDefaultQueryRegion();
+        };
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    eviction.run();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.freenow.dataaccessobject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.geo.Point;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.SerializationUtils;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.List;
+
+/**
+ * One-off migration of databases created before the coordinate was split into latitude/longitude columns.
+ * <p/>
+ * Hibernate ({@code ddl-auto=update}) adds the new columns, this runner then copies every java serialized
+ * {@link Point} of the legacy {@code coordinate} column into them, in chunks ordered by id so memory does not grow with
+ * the fleet. It runs before the application reports ready, so in-memory indexes are loaded from the migrated columns.
+ * <p/>
+ * Dropping the legacy column can not be undone and is a separate step, only taken when
+ * {@code driver.coordinate.drop-legacy-column} is set and no row is left with a coordinate but without latitude.
+ */
+@Component
+@ConditionalOnProperty(name = "driver.coordinate.migrate-legacy-column", havingValue = "true")
+public class LegacyCoordinateMigration implements ApplicationRunner
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(LegacyCoordinateMigration.class);
+
+    private static final String LEGACY_COLUMN = "coordinate";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String table;
+    private final int chunkSize;
+    private final boolean dropLegacyColumn;
+
+
+    public LegacyCoordinateMigration(
+        JdbcTemplate jdbcTemplate,
+        @Value("${driver.coordinate.migrate-chunk-size:1000}") int chunkSize,
+        @Value("${driver.coordinate.drop-legacy-column:false}") boolean dropLegacyColumn)
+    {
+        this(jdbcTemplate, "driver", chunkSize, dropLegacyColumn);
+    }
+
+
+    /**
+     * @param table table with the legacy and the new columns, other than {@code driver} only for tests
+     */
+    LegacyCoordinateMigration(JdbcTemplate jdbcTemplate, String table, int chunkSize, boolean dropLegacyColumn)
+    {
+        if (chunkSize <= 0)
+        {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.table = table;
+        this.chunkSize = chunkSize;
+        this.dropLegacyColumn = dropLegacyColumn;
+    }
+
+
+    @Override
+    public void run(ApplicationArguments args)
+    {
+        migrate();
+        if (dropLegacyColumn)
+        {
+            dropLegacyColumn();
+        }
+    }
+
+
+    /**
+     * @return number of migrated drivers
+     */
+    public int migrate()
+    {
+        if (!hasLegacyColumn())
+        {
+            LOG.info("No legacy coordinate column found, nothing to migrate");
+            return 0;
+        }
+        int migrated = 0;
+        long lastId = Long.MIN_VALUE;
+        while (true)
+        {
+            List<Object[]> rows = jdbcTemplate.query(
+                "select id, coordinate from " + table + " where id > ? and coordinate is not null and latitude is null"
+                    + " order by id limit ?",
+                (rs, rowNum) -> {
+                    Point point = (Point) SerializationUtils.deserialize(rs.getBytes(2));
+                    return new Object[] {point.getY(), point.getX(), rs.getLong(1)};
+                },
+                lastId, chunkSize);
+            if (rows.isEmpty())
+            {
+                break;
+            }
+            jdbcTemplate.batchUpdate("update " + table + " set latitude = ?, longitude = ? where id = ?", rows);
+            migrated += rows.size();
+            lastId = (long) rows.get(rows.size() - 1)[2];
+            if (rows.size() < chunkSize)
+            {
+                break;
+            }
+        }
+        LOG.info("Migrated the coordinate of {} drivers to latitude/longitude columns", migrated);
+        return migrated;
+    }
+
+
+    /**
+     * Drops the legacy column once every coordinate in it has been copied.
+     *
+     * @return true if the column was dropped
+     */
+    public boolean dropLegacyColumn()
+    {
+        if (!hasLegacyColumn())
+        {
+            return false;
+        }
+        Long unmigrated = jdbcTemplate.queryForObject(
+            "select count(*) from " + table + " where coordinate is not null and latitude is null", Long.class);
+        if (unmigrated == null || unmigrated > 0)
+        {
+            LOG.error("Keeping the legacy coordinate column, {} drivers have not been migrated", unmigrated);
+            return false;
+        }
+        jdbcTemplate.execute("alter table " + table + " drop column " + LEGACY_COLUMN);
+        LOG.info("Dropped the legacy coordinate column");
+        return true;
+    }
+
+
+    private boolean hasLegacyColumn()
+    {
+        Boolean found = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (String tableName : new String[] {table, table.toUpperCase()})
+            {
+                for (String column : new String[] {LEGACY_COLUMN, LEGACY_COLUMN.toUpperCase()})
+                {
+                    try (ResultSet columns = metaData.getColumns(connection.getCatalog(), null, tableName, column))
+                    {
+                        if (columns.next())
+                        {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        });
+        return Boolean.TRUE.equals(found);
+    }
+}
@@ -0,0 +1,214 @@
+package com.freenow.dataaccessobject;
+
+import com.freenow.domainvalue.LocationPing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Append-only driver position history partitioned into one table per UTC day.
+ * <p/>
+ * Partitions are created on first write of a day, written with JDBC batches and only ever dropped as a whole, so
+ * retention never deletes rows and range queries only touch the partitions of the requested days. Pings dated further
+ * in the future than the allowed clock skew are not written, they would create partitions retention never reaches.
+ */
+@Repository
+public class LocationHistoryRepository
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(LocationHistoryRepository.class);
+
+    static final String PARTITION_PREFIX = "driver_location_history_";
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final long maxClockSkewSeconds;
+    private final NavigableSet<LocalDate> partitions = new ConcurrentSkipListSet<>();
+
+
+    public LocationHistoryRepository(
+        JdbcTemplate jdbcTemplate,
+        @Value("${driver.location.history.batch-size:500}") int batchSize,
+        @Value("${driver.location.max-clock-skew-seconds:30}") long maxClockSkewSeconds)
+    {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+        this.maxClockSkewSeconds = maxClockSkewSeconds;
+        partitions.addAll(findPartitions());
+    }
+
+
+    /**
+     * Appends the pings, grouped by the partition of their day. Pings dated in the future beyond the allowed clock skew
+     * are skipped.
+     */
+    public void append(Collection<LocationPing> pings)
+    {
+        Map<LocalDate, List<LocationPing>> byDay = new TreeMap<>();
+        ZonedDateTime latestAccepted = ZonedDateTime.now().plusSeconds(maxClockSkewSeconds);
+        int skipped = 0;
+        for (LocationPing ping : pings)
+        {
+            if (ping.getTimestamp().isAfter(latestAccepted))
+            {
+                skipped++;
+                continue;
+            }
+            byDay.computeIfAbsent(dayOf(ping.getTimestamp()), day -> new ArrayList<>()).add(ping);
+        }
+        byDay.forEach((day, dayPings) -> {
+            ensurePartition(day);
+            jdbcTemplate.batchUpdate(
+                "insert into " + tableOf(day) + " (driver_id, recorded_at, latitude, longitude) values (?, ?, ?, ?)",
+                dayPings, batchSize, (ps, ping) -> {
+                    ps.setLong(1, ping.getDriverId());
+                    ps.setTimestamp(2, Timestamp.from(ping.getTimestamp().toInstant()));
+                    ps.setDouble(3, ping.getLatitude());
+                    ps.setDouble(4, ping.getLongitude());
+                });
+        });
+        if (skipped > 0)
+        {
+            LOG.warn("Skipped {} location history entries dated in the future", skipped);
+        }
+    }
+
+
+    /**
+     * @return the positions of the driver between from and to (both inclusive), oldest first, at most limit; empty if
+     * from is after to
+     */
+    public List<LocationPing> findBetween(long driverId, ZonedDateTime from, ZonedDateTime to, int limit)
+    {
+        if (from.isAfter(to))
+        {
+            return new ArrayList<>();
+        }
+        NavigableSet<LocalDate> days = partitions.subSet(dayOf(from), true, dayOf(to), true);
+        if (days.isEmpty())
+        {
+            return new ArrayList<>();
+        }
+        StringBuilder sql = new StringBuilder("select driver_id, recorded_at, latitude, longitude from (");
+        List<Object> parameters = new ArrayList<>(days.size() * 3 + 1);
+        Timestamp fromTimestamp = Timestamp.from(from.toInstant());
+        Timestamp toTimestamp = Timestamp.from(to.toInstant());
+        for (LocalDate day : days)
+        {
+            if (parameters.size() > 0)
+            {
+                sql.append(" union all ");
+            }
+            sql.append("select driver_id, recorded_at, latitude, longitude from ").append(tableOf(day))
+                .append(" where driver_id = ? and recorded_at between ? and ?");
+            parameters.add(driverId);
+            parameters.add(fromTimestamp);
+            parameters.add(toTimestamp);
+        }
+        sql.append(") history order by recorded_at limit ?");
+        parameters.add(limit);
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new LocationPing(
+            rs.getLong(1), rs.getDouble(3), rs.getDouble(4), rs.getTimestamp(2).toInstant().atZone(ZoneOffset.UTC)), parameters.toArray());
+    }
+
+
+    /**
+     * Drops all partitions of days before the given day.
+     *
+     * @return the dropped days
+     */
+    public List<LocalDate> dropPartitionsBefore(LocalDate day)
+    {
+        List<LocalDate> dropped = new ArrayList<>(partitions.headSet(day, false));
+        for (LocalDate expired : dropped)
+        {
+            jdbcTemplate.execute("drop table if exists " + tableOf(expired));
+            partitions.remove(expired);
+            LOG.info("Dropped location history partition {}", tableOf(expired));
+        }
+        return dropped;
+    }
+
+
+    public List<LocalDate> partitions()
+    {
+        return new ArrayList<>(partitions);
+    }
+
+
+    static LocalDate dayOf(ZonedDateTime timestamp)
+    {
+        return timestamp.withZoneSameInstant(ZoneOffset.UTC).toLocalDate();
+    }
+
+
+    private void ensurePartition(LocalDate day)
+    {
+        if (partitions.contains(day))
+        {
+            return;
+        }
+        String table = tableOf(day);
+        jdbcTemplate.execute("create table if not exists " + table
+            + " (driver_id bigint not null, recorded_at timestamp not null, latitude double not null, longitude double not null)");
+        jdbcTemplate.execute("create index if not exists ix_" + table + " on " + table + " (driver_id, recorded_at)");
+        partitions.add(day);
+    }
+
+
+    private static String tableOf(LocalDate day)
+    {
+        return PARTITION_PREFIX + PARTITION_SUFFIX.format(day);
+    }
+
+
+    private List<LocalDate> findPartitions()
+    {
+        List<LocalDate> found = jdbcTemplate.execute((ConnectionCallback<List<LocalDate>>) connection -> {
+            List<LocalDate> days = new ArrayList<>();
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (String pattern : new String[] {PARTITION_PREFIX + "%", PARTITION_PREFIX.toUpperCase(Locale.ROOT) + "%"})
+            {
+                try (ResultSet tables = metaData.getTables(connection.getCatalog(), null, pattern, new String[] {"TABLE"}))
+                {
+                    while (tables.next())
+                    {
+                        String suffix = tables.getString("TABLE_NAME").substring(PARTITION_PREFIX.length());
+                        try
+                        {
+                            days.add(LocalDate.parse(suffix, PARTITION_SUFFIX));
+                        }
+                        catch (DateTimeParseException e)
+                        {
+                            // '_' is a wildcard in the pattern, not every match is a partition
+                        }
+                    }
+                }
+            }
+            return days;
+        });
+        return found != null ? found : new ArrayList<>();
+    }
+}
@@ -0,0 +1,107 @@
+package com.freenow.dataaccessobject;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.persistence.EntityManagerFactory;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hibernate second-level cache of drivers, cars and cacheable driver queries, held in process by Caffeine.
+ * <p/>
+ * Changes through JPA invalidate the entity and query regions themselves. Location updates written with plain JDBC
+ * evict the changed drivers, see {@link DriverLocationRepositoryImpl}. The time to live bounds the staleness of changes
+ * made by other application instances.
+ */
+@Configuration
+public class SecondLevelCacheConfiguration
+{
+
+    public static final String DRIVER_REGION = "driver";
+    public static final String CAR_REGION = "car";
+
+    private static final String QUERY_RESULTS_REGION = RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME;
+    private static final String UPDATE_TIMESTAMPS_REGION = RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME;
+
+
+    /**
+     * Own cache manager per application context, so contexts in the same JVM never share cached state.
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager(
+        @Value("${jpa.second-level-cache.maximum-size:10000}") long maximumSize,
+        @Value("${jpa.second-level-cache.time-to-live-seconds:300}") long timeToLiveSeconds,
+        @Value("${jpa.second-level-cache.query-maximum-size:100}") long queryMaximumSize)
+    {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+            .getCacheManager(URI.create("second-level-cache-" + UUID.randomUUID()), getClass().getClassLoader());
+        cacheManager.createCache(DRIVER_REGION, configuration(maximumSize, timeToLiveSeconds));
+        cacheManager.createCache(CAR_REGION, configuration(maximumSize, timeToLiveSeconds));
+        cacheManager.createCache(QUERY_RESULTS_REGION, configuration(queryMaximumSize, timeToLiveSeconds));
+        // query results are checked against the last change of their tables, these entries must never be evicted
+        cacheManager.createCache(UPDATE_TIMESTAMPS_REGION, new CaffeineConfiguration<>());
+        return cacheManager;
+    }
+
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager secondLevelCacheManager)
+    {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+    }
+
+
+    /**
+     * Hit ratio per cache region, hit and miss counts per region are published by the hibernate metrics already.
+     */
+    @Bean
+    public MeterBinder secondLevelCacheHitRatio(EntityManagerFactory entityManagerFactory)
+    {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        return registry -> {
+            for (String region : new String[] {DRIVER_REGION, CAR_REGION, QUERY_RESULTS_REGION})
+            {
+                Gauge.builder("hibernate.second.level.cache.hit.ratio", statistics, stats -> hitRatio(stats.getCacheRegionStatistics(region)))
+                    .tag("region", region)
+                    .register(registry);
+            }
+        };
+    }
+
+
+    private static double hitRatio(CacheRegionStatistics regionStatistics)
+    {
+        if (regionStatistics == null)
+        {
+            return Double.NaN;
+        }
+        long requests = regionStatistics.getHitCount() + regionStatistics.getMissCount();
+        return requests == 0 ? Double.NaN : (double) regionStatistics.getHitCount() / requests;
+    }
+
+
+    private static CaffeineConfiguration<Object, Object> configuration(long maximumSize, long timeToLiveSeconds)
+    {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maximumSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(timeToLiveSeconds)));
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+}
@@ -0,0 +1,79 @@
+package com.freenow.datatransferobject;
+
+import io.swagger.annotations.ApiModelProperty;
+
+import java.time.ZonedDateTime;
+
+public class DriverLocationDTO
+{
+    @ApiModelProperty(name = "driverId", dataType = "long", example = "4")
+    private Long driverId;
+    @ApiModelProperty(name = "latitude", dataType = "double", example = "53.55")
+    private Double latitude;
+    @ApiModelProperty(name = "longitude", dataType = "double", example = "9.99")
+    private Double longitude;
+    @ApiModelProperty(name = "timestamp", dataType = "ZonedDateTime", example = "2021-05-01T10:15:30+02:00")
+    private ZonedDateTime timestamp;
+
+
+    public DriverLocationDTO()
+    {
+    }
+
+
+    public DriverLocationDTO(Long driverId, Double latitude, Double longitude, ZonedDateTime timestamp)
+    {
+        this.driverId = driverId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.timestamp = timestamp;
+    }
+
+
+    public Long getDriverId()
+    {
+        return driverId;
+    }
+
+
+    public void setDriverId(Long driverId)
+    {
+        this.driverId = driverId;
+    }
+
+
+    public Double getLatitude()
+    {
+        return latitude;
+    }
+
+
+    public void setLatitude(Double latitude)
+    {
+        this.latitude = latitude;
+    }
+
+
+    public Double getLongitude()
+    {
+        return longitude;
+    }
+
+
+    public void setLongitude(Double longitude)
+    {
+        this.longitude = longitude;
+    }
+
+
+    public ZonedDateTime getTimestamp()
+    {
+        return timestamp;
+    }
+
+
+    public void setTimestamp(ZonedDateTime timestamp)
+    {
+        this.timestamp = timestamp;
+    }
+}
@@ -0,0 +1,48 @@
+package com.freenow.datatransferobject;
+
+import com.freenow.domainvalue.LocationUpdateStatus;
+import io.swagger.annotations.ApiModelProperty;
+
+public class DriverLocationResultDTO
+{
+    @ApiModelProperty(name = "driverId", dataType = "long", example = "4")
+    private Long driverId;
+    @ApiModelProperty(name = "status", dataType = "LocationUpdateStatus")
+    private LocationUpdateStatus status;
+
+
+    public DriverLocationResultDTO()
+    {
+    }
+
+
+    public DriverLocationResultDTO(Long driverId, LocationUpdateStatus status)
+    {
+        this.driverId = driverId;
+        this.status = status;
+    }
+
+
+    public Long getDriverId()
+    {
+        return driverId;
+    }
+
+
+    public void setDriverId(Long driverId)
+    {
+        this.driverId = driverId;
+    }
+
+
+    public LocationUpdateStatus getStatus()
+    {
+        return status;
+    }
+
+
+    public void setStatus(LocationUpdateStatus status)
+    {
+        this.status = status;
+    }
+}
@@ -0,0 +1,50 @@
+package com.freenow.datatransferobject;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.annotations.ApiModelProperty;
+
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DriverPageDTO
+{
+    private List<DriverDTO> drivers;
+    @ApiModelProperty(name = "nextAfterId", dataType = "long", value = "afterId of the next page, missing on the last page")
+    private Long nextAfterId;
+
+
+    public DriverPageDTO()
+    {
+    }
+
+
+    public DriverPageDTO(List<DriverDTO> drivers, Long nextAfterId)
+    {
+        this.drivers = drivers;
+        this.nextAfterId = nextAfterId;
+    }
+
+
+    public List<DriverDTO> getDrivers()
+    {
+        return drivers;
+    }
+
+
+    public void setDrivers(List<DriverDTO> drivers)
+    {
+        this.drivers = drivers;
+    }
+
+
+    public Long getNextAfterId()
+    {
+        return nextAfterId;
+    }
+
+
+    public void setNextAfterId(Long nextAfterId)
+    {
+        this.nextAfterId = nextAfterId;
+    }
+}
@@ -0,0 +1,295 @@
+package com.freenow.datatransferobject;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.freenow.domainvalue.OnlineStatus;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * Criteria of a driver search, every criterion that is not set matches all drivers.
+ * <p/>
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DriverSearchDTO
+{
+    @ApiModelProperty(name = "username", dataType = "String", value = "exact username")
+    private String username;
+    @ApiModelProperty(name = "onlineStatus", dataType = "OnlineStatus")
+    private OnlineStatus onlineStatus;
+    @ApiModelProperty(name = "deleted", dataType = "Boolean", value = "false")
+    private Boolean deleted;
+    @ApiModelProperty(name = "withCar", dataType = "Boolean", value = "true for drivers with a selected car only")
+    private Boolean withCar;
+    @ApiModelProperty(name = "licensePlate", dataType = "String")
+    private String licensePlate;
+    @ApiModelProperty(name = "engineType", dataType = "String", example = "electric")
+    private String engineType;
+    @ApiModelProperty(name = "seatCount", dataType = "int", value = "exact number of seats")
+    private Integer seatCount;
+    @ApiModelProperty(name = "minSeatCount", dataType = "int", example = "4")
+    private Integer minSeatCount;
+    @ApiModelProperty(name = "convertible", dataType = "Boolean")
+    private Boolean convertible;
+    @ApiModelProperty(name = "rating", dataType = "String", value = "exact rating")
+    private String rating;
+    @ApiModelProperty(name = "minRating", dataType = "double", example = "10")
+    private Double minRating;
+    @ApiModelProperty(name = "latitude", dataType = "double", value = "center of the distance filter", example = "53.55")
+    private Double latitude;
+    @ApiModelProperty(name = "longitude", dataType = "double", value = "center of the distance filter", example = "9.99")
+    private Double longitude;
+    @ApiModelProperty(name = "radiusKm", dataType = "double", value = "distance filter, needs latitude and longitude", example = "5")
+    private Double radiusKm;
+
+
+    private DriverSearchDTO()
+    {
+    }
+
+
+    private DriverSearchDTO(DriverSearchDTOBuilder builder)
+    {
+        this.username = builder.username;
+        this.onlineStatus = builder.onlineStatus;
+        this.deleted = builder.deleted;
+        this.withCar = builder.withCar;
+        this.licensePlate = builder.licensePlate;
+        this.engineType = builder.engineType;
+        this.seatCount = builder.seatCount;
+        this.minSeatCount = builder.minSeatCount;
+        this.convertible = builder.convertible;
+        this.rating = builder.rating;
+        this.minRating = builder.minRating;
+        this.latitude = builder.latitude;
+        this.longitude = builder.longitude;
+        this.radiusKm = builder.radiusKm;
+    }
+
+
+    public static DriverSearchDTOBuilder newBuilder()
+    {
+        return new DriverSearchDTOBuilder();
+    }
+
+
+    public String getUsername()
+    {
+        return username;
+    }
+
+
+    public OnlineStatus getOnlineStatus()
+    {
+        return onlineStatus;
+    }
+
+
+    public Boolean getDeleted()
+    {
+        return deleted;
+    }
+
+
+    public Boolean getWithCar()
+    {
+        return withCar;
+    }
+
+
+    public String getLicensePlate()
+    {
+        return licensePlate;
+    }
+
+
+    public String getEngineType()
+    {
+        return engineType;
+    }
+
+
+    public Integer getSeatCount()
+    {
+        return seatCount;
+    }
+
+
+    public Integer getMinSeatCount()
+    {
+        return minSeatCount;
+    }
+
+
+    public Boolean getConvertible()
+    {
+        return convertible;
+    }
+
+
+    public String getRating()
+    {
+        return rating;
+    }
+
+
+    public Double getMinRating()
+    {
+        return minRating;
+    }
+
+
+    public Double getLatitude()
+    {
+        return latitude;
+    }
+
+
+    public Double getLongitude()
+    {
+        return longitude;
+    }
+
+
+    public Double getRadiusKm()
+    {
+        return radiusKm;
+    }
+
+
+    @JsonIgnore
+    public boolean hasCarCriteria()
+    {
+        return Boolean.TRUE.equals(withCar) || licensePlate != null || engineType != null || seatCount != null || minSeatCount != null
+            || convertible != null || rating != null || minRating != null;
+    }
+
+
+    @JsonIgnore
+    public boolean hasDistanceCriteria()
+    {
+        return latitude != null && longitude != null && radiusKm != null;
+    }
+
+
+    public static class DriverSearchDTOBuilder
+    {
+        private String username;
+        private OnlineStatus onlineStatus;
+        private Boolean deleted;
+        private Boolean withCar;
+        private String licensePlate;
+        private String engineType;
+        private Integer seatCount;
+        private Integer minSeatCount;
+        private Boolean convertible;
+        private String rating;
+        private Double minRating;
+        private Double latitude;
+        private Double longitude;
+        private Double radiusKm;
+
+
+        public DriverSearchDTOBuilder setUsername(String username)
+        {
+            this.username = username;
+            return this;
+        }
+
+
+        public DriverSearchDTOBuilder setOnlineStatus(OnlineStatus onlineStatus)
+        {
+            this.onlineStatus = onlineStatus;
+            return this;
+        }
+
+
+        public DriverSearchDTOBuilder setDeleted(Boolean deleted)
+        {
+            this.deleted = deleted;
+            return this;
+        }
+
+
+        public DriverSearchDTOBuilder setWithCar(Boolean withCar)
+        {
+            this.withCar = withCar;
+            return this;
+        }
+
+
+        public DriverSearchDTOBuilder setLicensePlate(String licensePlate)
+        {
+            this.licensePlate = licensePlate;
+            return this;
+        }
+
+
+        public DriverSearchDTOBuilder setEngineType(String engineType)
+        {
+            this.engineType = engineType;
+            return this;
+        }
+
+
+        public DriverSearchDTOBuilder setSeatCount(Integer seatCount)
+        {
+            this.seatCount = seatCount;
+            return this;
+        }
+
+
+        public DriverSearchDTOBuilder setMinSeatCount(Integer minSeatCount)
+        {
+            this.minSeatCount = minSeatCount;
+            return this;
+        }
+
+
+        public DriverSearchDTOBuilder setConvertible(Boolean convertible)
+        {
+            this.convertible = convertible;
+            return this;
+        }
+
+
+        public DriverSearchDTOBuilder setRating(String rating)
+        {
+            this.rating = rating;
+            return this;
+        }
+
+
+        public DriverSearchDTOBuilder setMinRating(Double minRating)
+        {
+            this.minRating = minRating;
+            return this;
+        }
+
+
+        public DriverSearchDTOBuilder setLatitude(Double latitude)
+        {
+            this.latitude = latitude;
+            return this;
+        }
+
+
+        public DriverSearchDTOBuilder setLongitude(Double longitude)
+        {
+            this.longitude = longitude;
+            return this;
+        }
+
+
+        public DriverSearchDTOBuilder setRadiusKm(Double radiusKm)
+        {
+            this.radiusKm = radiusKm;
+            return this;
+        }
+
+
+        public DriverSearchDTO createDriverSearchDTO()
+        {
+            return new DriverSearchDTO(this);
+        }
+    }
+}
@@ -1,13 +1,21 @@
 package com.freenow.domainobject;
 
+import com.freenow.dataaccessobject.SecondLevelCacheConfiguration;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.format.annotation.DateTimeFormat;
 
 import javax.persistence.*;
 import java.time.ZonedDateTime;
 
 @Entity
-@Table(name = "car")
+@Table(
+    name = "car",
+    // equality criteria first, the range criteria seat count and rating last
+    indexes = @Index(name = "ix_car_search", columnList = "engineType, convertible, seatCount, ratingScore")
+)
 //, uniqueConstraints = @UniqueConstraint(name = "uc_driverDO", columnNames = {"driverDO"})
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfiguration.CAR_REGION)
 public class CarDO
 {
 
@@ -23,10 +31,13 @@ public class CarDO
     private Integer seatCount;
     private Boolean convertible;
     private String rating;
+    // numeric copy of the free-form rating for range queries, null if the rating is not a number
+    private Double ratingScore;
     private String engineType;//electric,gas
 
-    @OneToOne(mappedBy = "carDO")
-    private DriverDO driverDO;
+    @Version
+    @Column(nullable = false)
+    private long version;
 
 
     public CarDO()
@@ -42,10 +53,23 @@ public class CarDO
         this.seatCount = seatCount;
         this.convertible = convertible;
         this.rating = rating;
+        this.ratingScore = ratingScore(rating);
         this.engineType = engineType;
     }
 
 
+    /**
+     * @return detached copy of the car
+     */
+    public CarDO snapshot()
+    {
+        CarDO copy = new CarDO(id, licensePlate, seatCount, convertible, rating, engineType);
+        copy.dateCreated = dateCreated;
+        copy.version = version;
+        return copy;
+    }
+
+
     public Long getId()
     {
         return id;
@@ -103,6 +127,34 @@ public class CarDO
     public void setRating(String rating)
     {
         this.rating = rating;
+        this.ratingScore = ratingScore(rating);
+    }
+
+
+    public Double getRatingScore()
+    {
+        return ratingScore;
+    }
+
+
+    /**
+     * @return the rating as a number, null if it is not one
+     */
+    public static Double ratingScore(String rating)
+    {
+        if (rating == null)
+        {
+            return null;
+        }
+        try
+        {
+            double score = Double.parseDouble(rating.trim());
+            return Double.isFinite(score) ? score : null;
+        }
+        catch (NumberFormatException e)
+        {
+            return null;
+        }
     }
 
 
@@ -116,4 +168,40 @@ public class CarDO
     {
         this.engineType = engineType;
     }
+
+
+    public long getVersion()
+    {
+        return version;
+    }
+
+
+    public void setVersion(long version)
+    {
+        this.version = version;
+    }
+
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        if (!(o instanceof CarDO))
+        {
+            return false;
+        }
+        CarDO carDO = (CarDO) o;
+        return id != null && id.equals(carDO.id);
+    }
+
+
+    @Override
+    public int hashCode()
+    {
+        // stable across persist, the id is assigned by the database
+        return CarDO.class.hashCode();
+    }
 }
@@ -1,5 +1,6 @@
 package com.freenow.domainobject;
 
+import com.freenow.dataaccessobject.SecondLevelCacheConfiguration;
 import com.freenow.domainvalue.GeoCoordinate;
 import com.freenow.domainvalue.OnlineStatus;
 
@@ -8,13 +9,20 @@ import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.format.annotation.DateTimeFormat;
 
 @Entity
 @Table(
     name = "driver",
-    uniqueConstraints = @UniqueConstraint(name = "uc_username", columnNames = {"username"})
+    uniqueConstraints = @UniqueConstraint(name = "uc_username", columnNames = {"username"}),
+    indexes = {
+        @Index(name = "ix_driver_coordinate", columnList = "latitude, longitude"),
+        @Index(name = "ix_driver_online_status_car", columnList = "onlineStatus, car_id")
+    }
 )
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfiguration.DRIVER_REGION)
 public class DriverDO
 {
 
@@ -124,9 +132,21 @@ public class DriverDO
 
 
     public void setCoordinate(GeoCoordinate coordinate)
+    {
+        setCoordinate(coordinate, ZonedDateTime.now());
+    }
+
+
+    public void setCoordinate(GeoCoordinate coordinate, ZonedDateTime dateCoordinateUpdated)
     {
         this.coordinate = coordinate;
-        this.dateCoordinateUpdated = ZonedDateTime.now();
+        this.dateCoordinateUpdated = dateCoordinateUpdated;
+    }
+
+
+    public ZonedDateTime getDateCoordinateUpdated()
+    {
+        return dateCoordinateUpdated;
     }
 
 
@@ -0,0 +1,69 @@
+package com.freenow.domainvalue;
+
+/**
+ * Immutable ranked match of a ride request, i.e. an available driver with the selected car, its position and score.
+ * <p/>
+ */
+public final class DriverMatch
+{
+    private final long driverId;
+    private final long carId;
+    private final double latitude;
+    private final double longitude;
+    private final double distanceKm;
+    private final double score;
+
+
+    public DriverMatch(long driverId, long carId, double latitude, double longitude, double distanceKm, double score)
+    {
+        this.driverId = driverId;
+        this.carId = carId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.distanceKm = distanceKm;
+        this.score = score;
+    }
+
+
+    public long getDriverId()
+    {
+        return driverId;
+    }
+
+
+    public long getCarId()
+    {
+        return carId;
+    }
+
+
+    public double getLatitude()
+    {
+        return latitude;
+    }
+
+
+    public double getLongitude()
+    {
+        return longitude;
+    }
+
+
+    public double getDistanceKm()
+    {
+        return distanceKm;
+    }
+
+
+    public double getScore()
+    {
+        return score;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return "DriverMatch{driverId=" + driverId + ", carId=" + carId + ", distanceKm=" + distanceKm + ", score=" + score + '}';
+    }
+}
@@ -0,0 +1,140 @@
+package com.freenow.domainvalue;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Read-only row of a driver listing together with the selected car, filled by a JPQL constructor expression so no
+ * entities are hydrated or tracked by the persistence context.
+ * <p/>
+ */
+public final class DriverSummary
+{
+    private final Long id;
+    private final String username;
+    private final String password;
+    private final Double latitude;
+    private final Double longitude;
+    private final ZonedDateTime dateCoordinateUpdated;
+    private final OnlineStatus onlineStatus;
+    private final Long carId;
+    private final String licensePlate;
+    private final Integer seatCount;
+    private final Boolean convertible;
+    private final String rating;
+    private final String engineType;
+
+
+    public DriverSummary(
+        Long id, String username, String password, Double latitude, Double longitude, ZonedDateTime dateCoordinateUpdated,
+        OnlineStatus onlineStatus, Long carId, String licensePlate, Integer seatCount, Boolean convertible, String rating, String engineType)
+    {
+        this.id = id;
+        this.username = username;
+        this.password = password;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.dateCoordinateUpdated = dateCoordinateUpdated;
+        this.onlineStatus = onlineStatus;
+        this.carId = carId;
+        this.licensePlate = licensePlate;
+        this.seatCount = seatCount;
+        this.convertible = convertible;
+        this.rating = rating;
+        this.engineType = engineType;
+    }
+
+
+    /**
+     * @return copy of this summary at another position
+     */
+    public DriverSummary withCoordinate(double latitude, double longitude, ZonedDateTime dateCoordinateUpdated)
+    {
+        return new DriverSummary(id, username, password, latitude, longitude, dateCoordinateUpdated, onlineStatus,
+            carId, licensePlate, seatCount, convertible, rating, engineType);
+    }
+
+
+    /**
+     * @return copy of this summary with another online status
+     */
+    public DriverSummary withOnlineStatus(OnlineStatus onlineStatus)
+    {
+        return new DriverSummary(id, username, password, latitude, longitude, dateCoordinateUpdated, onlineStatus,
+            carId, licensePlate, seatCount, convertible, rating, engineType);
+    }
+
+
+    public Long getId()
+    {
+        return id;
+    }
+
+
+    public String getUsername()
+    {
+        return username;
+    }
+
+
+    public String getPassword()
+    {
+        return password;
+    }
+
+
+    /**
+     * @return position of the driver or null if unknown
+     */
+    public GeoCoordinate getCoordinate()
+    {
+        return latitude == null || longitude == null ? null : new GeoCoordinate(latitude, longitude);
+    }
+
+
+    public ZonedDateTime getDateCoordinateUpdated()
+    {
+        return dateCoordinateUpdated;
+    }
+
+
+    public OnlineStatus getOnlineStatus()
+    {
+        return onlineStatus;
+    }
+
+
+    public Long getCarId()
+    {
+        return carId;
+    }
+
+
+    public String getLicensePlate()
+    {
+        return licensePlate;
+    }
+
+
+    public Integer getSeatCount()
+    {
+        return seatCount;
+    }
+
+
+    public Boolean getConvertible()
+    {
+        return convertible;
+    }
+
+
+    public String getRating()
+    {
+        return rating;
+    }
+
+
+    public String getEngineType()
+    {
+        return engineType;
+    }
+}
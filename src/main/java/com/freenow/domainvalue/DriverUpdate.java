@@ -0,0 +1,126 @@
+package com.freenow.domainvalue;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Immutable delta of a single driver pushed to update subscribers.
+ * <p/>
+ * A location update only carries the position. A status update carries the online status, the deleted flag and the
+ * selected car (a missing car id means no car is selected) and the position if one is known.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class DriverUpdate
+{
+    private final long driverId;
+    private final Double latitude;
+    private final Double longitude;
+    private final OnlineStatus onlineStatus;
+    private final Boolean deleted;
+    private final Long carId;
+    private final ZonedDateTime timestamp;
+
+
+    public DriverUpdate(
+        long driverId, Double latitude, Double longitude, OnlineStatus onlineStatus, Boolean deleted, Long carId,
+        ZonedDateTime timestamp)
+    {
+        this.driverId = driverId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.onlineStatus = onlineStatus;
+        this.deleted = deleted;
+        this.carId = carId;
+        this.timestamp = timestamp;
+    }
+
+
+    public static DriverUpdate location(long driverId, double latitude, double longitude, ZonedDateTime timestamp)
+    {
+        return new DriverUpdate(driverId, latitude, longitude, null, null, null, timestamp);
+    }
+
+
+    /**
+     * Combines this update with a newer one of the same driver, the newer position and status win.
+     */
+    public DriverUpdate mergeNewer(DriverUpdate newer)
+    {
+        boolean newerLocation = newer.hasLocation();
+        boolean newerStatus = newer.hasStatus();
+        if (newerLocation && newerStatus || !hasLocation() && !hasStatus())
+        {
+            return newer;
+        }
+        DriverUpdate location = newerLocation ? newer : this;
+        DriverUpdate status = newerStatus ? newer : this;
+        return new DriverUpdate(
+            driverId, location.latitude, location.longitude, status.onlineStatus, status.deleted, status.carId, newer.timestamp);
+    }
+
+
+    @JsonIgnore
+    public boolean hasLocation()
+    {
+        return latitude != null && longitude != null;
+    }
+
+
+    @JsonIgnore
+    public boolean hasStatus()
+    {
+        return onlineStatus != null;
+    }
+
+
+    public long getDriverId()
+    {
+        return driverId;
+    }
+
+
+    public Double getLatitude()
+    {
+        return latitude;
+    }
+
+
+    public Double getLongitude()
+    {
+        return longitude;
+    }
+
+
+    public OnlineStatus getOnlineStatus()
+    {
+        return onlineStatus;
+    }
+
+
+    public Boolean getDeleted()
+    {
+        return deleted;
+    }
+
+
+    public Long getCarId()
+    {
+        return carId;
+    }
+
+
+    public ZonedDateTime getTimestamp()
+    {
+        return timestamp;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return "DriverUpdate{driverId=" + driverId + ", latitude=" + latitude + ", longitude=" + longitude + ", onlineStatus=" + onlineStatus
+            + ", deleted=" + deleted + ", carId=" + carId + ", timestamp=" + timestamp + '}';
+    }
+}
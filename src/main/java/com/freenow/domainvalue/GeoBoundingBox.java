@@ -0,0 +1,63 @@
+package com.freenow.domainvalue;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Immutable latitude/longitude rectangle, bounds are inclusive.
+ * <p/>
+ */
+public final class GeoBoundingBox
+{
+    private final double minLatitude;
+    private final double maxLatitude;
+    private final double minLongitude;
+    private final double maxLongitude;
+
+
+    public GeoBoundingBox(double minLatitude, double maxLatitude, double minLongitude, double maxLongitude)
+    {
+        Preconditions.checkArgument(minLatitude <= maxLatitude, "minLatitude is higher than maxLatitude");
+        Preconditions.checkArgument(minLongitude <= maxLongitude, "minLongitude is higher than maxLongitude");
+        this.minLatitude = minLatitude;
+        this.maxLatitude = maxLatitude;
+        this.minLongitude = minLongitude;
+        this.maxLongitude = maxLongitude;
+    }
+
+
+    public boolean contains(double latitude, double longitude)
+    {
+        return latitude >= minLatitude && latitude <= maxLatitude && longitude >= minLongitude && longitude <= maxLongitude;
+    }
+
+
+    public double getMinLatitude()
+    {
+        return minLatitude;
+    }
+
+
+    public double getMaxLatitude()
+    {
+        return maxLatitude;
+    }
+
+
+    public double getMinLongitude()
+    {
+        return minLongitude;
+    }
+
+
+    public double getMaxLongitude()
+    {
+        return maxLongitude;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return "GeoBoundingBox{latitude=[" + minLatitude + ", " + maxLatitude + "], longitude=[" + minLongitude + ", " + maxLongitude + "]}";
+    }
+}
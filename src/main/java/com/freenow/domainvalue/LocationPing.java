@@ -0,0 +1,61 @@
+package com.freenow.domainvalue;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Immutable position report of a single driver at a point in time.
+ * <p/>
+ */
+public final class LocationPing
+{
+    private final long driverId;
+    private final double latitude;
+    private final double longitude;
+    private final ZonedDateTime timestamp;
+
+
+    public LocationPing(long driverId, double latitude, double longitude, ZonedDateTime timestamp)
+    {
+        this.driverId = driverId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.timestamp = timestamp;
+    }
+
+
+    public long getDriverId()
+    {
+        return driverId;
+    }
+
+
+    public double getLatitude()
+    {
+        return latitude;
+    }
+
+
+    public double getLongitude()
+    {
+        return longitude;
+    }
+
+
+    public ZonedDateTime getTimestamp()
+    {
+        return timestamp;
+    }
+
+
+    public GeoCoordinate toCoordinate()
+    {
+        return new GeoCoordinate(latitude, longitude);
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return "LocationPing{driverId=" + driverId + ", latitude=" + latitude + ", longitude=" + longitude + ", timestamp=" + timestamp + '}';
+    }
+}
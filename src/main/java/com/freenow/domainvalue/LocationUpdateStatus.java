@@ -0,0 +1,6 @@
+package com.freenow.domainvalue;
+
+public enum LocationUpdateStatus
+{
+    UPDATED, NOT_FOUND, STALE, INVALID
+}
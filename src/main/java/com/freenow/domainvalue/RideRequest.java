@@ -0,0 +1,87 @@
+package com.freenow.domainvalue;
+
+/**
+ * Immutable ride to be matched with a driver: the pickup point, the search radius and the requirements on the car.
+ * <p/>
+ * The seat count and the convertible flag are hard requirements and only apply if set. The engine type is a
+ * preference, cars with another engine type are still matched but ranked lower.
+ */
+public final class RideRequest
+{
+    private final double latitude;
+    private final double longitude;
+    private final double radiusKm;
+    private final int limit;
+    private final Integer seatCount;
+    private final Boolean convertible;
+    private final String engineType;
+
+
+    public RideRequest(
+        double latitude, double longitude, double radiusKm, int limit, Integer seatCount, Boolean convertible, String engineType)
+    {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.radiusKm = radiusKm;
+        this.limit = limit;
+        this.seatCount = seatCount;
+        this.convertible = convertible;
+        this.engineType = engineType;
+    }
+
+
+    public RideRequest withLimit(int limit)
+    {
+        return new RideRequest(latitude, longitude, radiusKm, limit, seatCount, convertible, engineType);
+    }
+
+
+    public double getLatitude()
+    {
+        return latitude;
+    }
+
+
+    public double getLongitude()
+    {
+        return longitude;
+    }
+
+
+    public double getRadiusKm()
+    {
+        return radiusKm;
+    }
+
+
+    public int getLimit()
+    {
+        return limit;
+    }
+
+
+    public Integer getSeatCount()
+    {
+        return seatCount;
+    }
+
+
+    public Boolean getConvertible()
+    {
+        return convertible;
+    }
+
+
+    public String getEngineType()
+    {
+        return engineType;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return "RideRequest{latitude=" + latitude + ", longitude=" + longitude + ", radiusKm=" + radiusKm + ", limit=" + limit
+            + ", seatCount=" + seatCount + ", convertible=" + convertible + ", engineType=" + engineType + '}';
+    }
+}
@@ -35,9 +35,9 @@ public class AuthTokenFilter extends OncePerRequestFilter
         try
         {
             String jwt = parseJwt(request);
-            if (StringUtils.hasText(jwt) && !jwtUtil.isInvalid(jwt))
+            Claims claims = StringUtils.hasText(jwt) ? jwtUtil.getAllClaimsFromToken(jwt) : null;
+            if (claims != null && !jwtUtil.isExpired(claims))
             {
-                Claims claims = jwtUtil.getAllClaimsFromToken(jwt);
                 String userName = String.valueOf(claims.get("userName"));
                 String role = String.valueOf(claims.get("role"));
 
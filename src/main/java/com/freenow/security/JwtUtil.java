@@ -2,32 +2,58 @@ package com.freenow.security;
 
 
 import com.freenow.controller.payload.UserVO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Issues and verifies JWTs.
+ * <p/>
+ * Verified claims are cached by the SHA-256 digest of the token until the token expires, clients send the same token
+ * with every request so most requests skip parsing and the HMAC check.
+ */
 @Component
 public class JwtUtil {
 
-    @Value("${jwt.secret}")
-    private String secret;
+    private final String expirationTime;
+
+    private final Key key;
 
-    @Value("${jwt.expiration}")
-    private String expirationTime;
+    private final JwtParser parser;
 
-    private Key key;
+    private final Cache<HashCode, Claims> claimsCache;
 
-    @PostConstruct
-    public void init(){
+    public JwtUtil(
+        @Value("${jwt.secret}") String secret,
+        @Value("${jwt.expiration}") String expirationTime,
+        @Value("${jwt.claims-cache.maximum-size:10000}") long claimsCacheSize,
+        MeterRegistry meterRegistry) {
+        this.expirationTime = expirationTime;
         this.key = Keys.hmacShaKeyFor(secret.getBytes());
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+        this.claimsCache = Caffeine.newBuilder()
+            .maximumSize(claimsCacheSize)
+            .expireAfter(new ExpireAtTokenExpiration())
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, claimsCache, "jwtClaims");
     }
 
     public String generate(UserVO userVO, String type) {
@@ -55,16 +81,50 @@ public class JwtUtil {
             .compact();
     }
 
+    /**
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, not signed with our key or expired
+     */
     public Claims getAllClaimsFromToken(String token) {
-        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+        HashCode digest = Hashing.sha256().hashString(token, StandardCharsets.UTF_8);
+        Claims claims = claimsCache.getIfPresent(digest);
+        if (claims == null) {
+            claims = parser.parseClaimsJws(token).getBody();
+            if (claims.getExpiration() != null) {
+                claimsCache.put(digest, claims);
+            }
+        }
+        return claims;
     }
 
     private boolean isTokenExpired(String token) {
-        return this.getAllClaimsFromToken(token).getExpiration().before(new Date());
+        return isExpired(this.getAllClaimsFromToken(token));
     }
 
     public boolean isInvalid(String token) {
         return this.isTokenExpired(token);
     }
 
+    public boolean isExpired(Claims claims) {
+        return claims.getExpiration().before(new Date());
+    }
+
+    private static class ExpireAtTokenExpiration implements Expiry<HashCode, Claims> {
+
+        @Override
+        public long expireAfterCreate(HashCode digest, Claims claims, long currentTime) {
+            long remainingMillis = claims.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(HashCode digest, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(digest, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(HashCode digest, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
 }
@@ -0,0 +1,99 @@
+package com.freenow.service.car;
+
+import com.freenow.domainobject.CarDO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.LongFunction;
+
+/**
+ * Near-cache of car snapshots by id. Car listings are streamed from the database and not cached.
+ * <p/>
+ * Only detached copies are cached and every read hands out new copies, so callers can not change cached state.
+ * Changes made through {@link CarService} invalidate the cache, the time to live bounds the staleness of changes made
+ * by other application instances.
+ */
+@Component
+public class CarCache
+{
+
+    private final boolean enabled;
+    private final Cache<Long, CarDO> cars;
+
+
+    public CarCache(
+        @Value("${car.cache.enabled:true}") boolean enabled,
+        @Value("${car.cache.maximum-size:10000}") long maximumSize,
+        @Value("${car.cache.time-to-live-seconds:300}") long timeToLiveSeconds,
+        MeterRegistry meterRegistry)
+    {
+        this.enabled = enabled;
+        this.cars = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(Duration.ofSeconds(timeToLiveSeconds))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cars, "cars");
+    }
+
+
+    /**
+     * @param loader loads the car from the database, returns null if it does not exist
+     * @return copy of the car or null if it does not exist, missing cars are not cached
+     */
+    public CarDO get(long carId, LongFunction<CarDO> loader)
+    {
+        if (!enabled)
+        {
+            return loader.apply(carId);
+        }
+        CarDO snapshot = cars.get(carId, id -> snapshotOf(loader.apply(id)));
+        return snapshot == null ? null : snapshot.snapshot();
+    }
+
+
+    /**
+     * Invalidates the car now and, inside a transaction, once more after commit so a concurrent
+     * load can not put the state from before the commit back.
+     */
+    public void invalidate(long carId)
+    {
+        evict(carId);
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    evict(carId);
+                }
+            });
+        }
+    }
+
+
+    public void invalidateAll()
+    {
+        cars.invalidateAll();
+    }
+
+
+    private void evict(long carId)
+    {
+        cars.invalidate(carId);
+    }
+
+
+    private static CarDO snapshotOf(CarDO carDO)
+    {
+        return carDO == null ? null : carDO.snapshot();
+    }
+}
@@ -0,0 +1,61 @@
+package com.freenow.service.car;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory owner of every car selected by an ONLINE driver.
+ * <p/>
+ * Claims are a single compare-and-set on the car id, so a car can never be handed to two drivers even if both requests
+ * run at the same time, and no query is needed to reject a car taken through this instance. It only knows the claims
+ * of this application instance; the selection itself checks the database for a committed ONLINE driver holding the car
+ * and increments the version of the car, so of two overlapping selections on different instances the later commit
+ * fails.
+ */
+@Component
+public class CarReservationRegistry
+{
+
+    private final Map<Long, Long> ownerByCar = new ConcurrentHashMap<>();
+
+
+    /**
+     * @return true if the car is now owned by the driver, also if it already was
+     */
+    public boolean claim(long carId, long driverId)
+    {
+        Long owner = ownerByCar.putIfAbsent(carId, driverId);
+        return owner == null || owner == driverId;
+    }
+
+
+    /**
+     * Releases the car only if it is owned by the driver, a claim of another driver is left untouched.
+     */
+    public boolean release(long carId, long driverId)
+    {
+        return ownerByCar.remove(carId, driverId);
+    }
+
+
+    public Optional<Long> owner(long carId)
+    {
+        return Optional.ofNullable(ownerByCar.get(carId));
+    }
+
+
+    public boolean isClaimedByOther(long carId, long driverId)
+    {
+        Long owner = ownerByCar.get(carId);
+        return owner != null && owner != driverId;
+    }
+
+
+    public int size()
+    {
+        return ownerByCar.size();
+    }
+}
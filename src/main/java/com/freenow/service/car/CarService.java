@@ -5,10 +5,11 @@ import com.freenow.exception.ConstraintsViolationException;
 import com.freenow.exception.EntityNotFoundException;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface CarService
 {
-    CarDO find(Long driverId) throws EntityNotFoundException;
+    CarDO find(Long carId) throws EntityNotFoundException;
 
     CarDO create(CarDO carDO) throws ConstraintsViolationException;
 
@@ -18,4 +19,8 @@ public interface CarService
 
     List<CarDO> findAll();
 
+    void stream(Consumer<CarDO> consumer);
+
+    CarDO findForUpdate(Long carId) throws EntityNotFoundException;
+
 }
@@ -0,0 +1,35 @@
+package com.freenow.service.car;
+
+import com.freenow.domainobject.CarDO;
+
+/**
+ * Application event published when a car was changed or deleted, for in-memory views that copy car attributes.
+ */
+public class CarUpdateEvent
+{
+
+    private final long carId;
+    private final CarDO carDO;
+
+
+    public CarUpdateEvent(long carId, CarDO carDO)
+    {
+        this.carId = carId;
+        this.carDO = carDO;
+    }
+
+
+    public long getCarId()
+    {
+        return carId;
+    }
+
+
+    /**
+     * @return detached copy of the changed car, null if the car was deleted
+     */
+    public CarDO getCarDO()
+    {
+        return carDO;
+    }
+}
@@ -2,15 +2,23 @@ package com.freenow.service.car;
 
 import com.freenow.dataaccessobject.CarRepository;
 import com.freenow.domainobject.CarDO;
+import com.freenow.domainobject.DriverDO;
 import com.freenow.exception.ConstraintsViolationException;
 import com.freenow.exception.EntityNotFoundException;
+import com.freenow.util.JsonResponseCache;
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Service to encapsulate the link between DAO and controller and to have business logic for some driver specific things.
@@ -23,28 +31,46 @@ public class DefaultCarService implements CarService
     private static final Logger LOG = LoggerFactory.getLogger(DefaultCarService.class);
 
     private final CarRepository carRepository;
+    private final CarCache carCache;
+    private final JsonResponseCache responseCache;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
 
 
-    public DefaultCarService(final CarRepository carRepository)
+    public DefaultCarService(
+        final CarRepository carRepository, CarCache carCache, JsonResponseCache responseCache, EntityManager entityManager,
+        ApplicationEventPublisher eventPublisher)
     {
         this.carRepository = carRepository;
+        this.carCache = carCache;
+        this.responseCache = responseCache;
+        this.entityManager = entityManager;
+        this.eventPublisher = eventPublisher;
     }
 
 
     @Override
-    public CarDO find(Long driverId) throws EntityNotFoundException
+    @Timed("car.service")
+    public CarDO find(Long carId) throws EntityNotFoundException
     {
-        return findCarChecked(driverId);
+        CarDO carDO = carCache.get(carId, id -> carRepository.findById(id).orElse(null));
+        if (carDO == null)
+        {
+            throw new EntityNotFoundException("Could not find entity with id: " + carId);
+        }
+        return carDO;
     }
 
 
     @Override
+    @Timed("car.service")
     public CarDO create(CarDO carDO) throws ConstraintsViolationException
     {
         CarDO car;
         try
         {
             car = carRepository.save(carDO);
+            carCache.invalidate(car.getId());
         }
         catch (DataIntegrityViolationException e)
         {
@@ -56,30 +82,89 @@ public class DefaultCarService implements CarService
 
 
     @Override
+    @Timed("car.service")
     @Transactional
     public void delete(Long carId) throws EntityNotFoundException
     {
         CarDO carDO = findCarChecked(carId);
         carRepository.delete(carDO);
+        carCache.invalidate(carId);
+        invalidateResponses(carId);
+        eventPublisher.publishEvent(new CarUpdateEvent(carId, null));
     }
 
 
     @Override
+    @Timed("car.service")
     @Transactional
     public void update(CarDO carDO) throws EntityNotFoundException
     {
-        findCarChecked(carDO.getId());
+        CarDO existing = findCarChecked(carDO.getId());
+        // updates are last writer wins, the version only guards car selection
+        carDO.setVersion(existing.getVersion());
         carRepository.save(carDO);
+        carCache.invalidate(carDO.getId());
+        invalidateResponses(carDO.getId());
+        eventPublisher.publishEvent(new CarUpdateEvent(carDO.getId(), carDO.snapshot()));
     }
 
 
     @Override
+    @Timed("car.service")
     public List<CarDO> findAll()
     {
         return carRepository.findAll();
     }
 
 
+    /**
+     * Hands all cars to the consumer one by one, ordered by id. Every car is detached before it is handed over, so the
+     * persistence context does not grow with the number of cars.
+     *
+     * @param consumer
+     */
+    @Override
+    @Timed("car.service")
+    @Transactional(readOnly = true)
+    public void stream(Consumer<CarDO> consumer)
+    {
+        try (Stream<CarDO> cars = carRepository.streamAll())
+        {
+            cars.forEach(carDO -> {
+                entityManager.detach(carDO);
+                consumer.accept(carDO);
+            });
+        }
+    }
+
+
+    /**
+     * Finds a car to be assigned in the current transaction. The version of the car is incremented on commit, so
+     * concurrent assignments of the same car fail with an optimistic locking exception.
+     *
+     * @param carId
+     * @throws EntityNotFoundException if no car with the given id was found.
+     */
+    @Override
+    @Timed("car.service")
+    @Transactional(propagation = Propagation.MANDATORY)
+    public CarDO findForUpdate(Long carId) throws EntityNotFoundException
+    {
+        return carRepository.findLockedById(carId)
+            .orElseThrow(() -> new EntityNotFoundException("Could not find entity with id: " + carId));
+    }
+
+
+    /**
+     * Cars are embedded in the representation of the driver that selected them.
+     */
+    private void invalidateResponses(long carId)
+    {
+        responseCache.invalidate(CarDO.class, carId);
+        responseCache.invalidateAll(DriverDO.class);
+    }
+
+
     private CarDO findCarChecked(Long carId) throws EntityNotFoundException
     {
         return carRepository.findById(carId)
@@ -1,24 +1,69 @@
 package com.freenow.service.driver;
 
 import com.freenow.dataaccessobject.DriverRepository;
+import com.freenow.dataaccessobject.LocationHistoryRepository;
+import com.freenow.datatransferobject.CarDTO;
 import com.freenow.datatransferobject.CarSelectDTO;
 import com.freenow.datatransferobject.DriverDTO;
+import com.freenow.datatransferobject.DriverLocationDTO;
+import com.freenow.datatransferobject.DriverSearchDTO;
 import com.freenow.domainobject.CarDO;
 import com.freenow.domainobject.DriverDO;
+import com.freenow.domainvalue.DriverSummary;
+import com.freenow.domainvalue.DriverUpdate;
 import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.domainvalue.LocationPing;
+import com.freenow.domainvalue.LocationUpdateStatus;
 import com.freenow.domainvalue.OnlineStatus;
 import com.freenow.exception.CarAlreadyInUseException;
 import com.freenow.exception.ConstraintsViolationException;
 import com.freenow.exception.EntityNotFoundException;
 
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
 
+import com.freenow.service.car.CarReservationRegistry;
 import com.freenow.service.car.CarService;
+import com.freenow.service.geo.GeoGridIndex;
+import com.freenow.service.geo.GeoMath;
+import com.freenow.service.geo.Neighbour;
+import com.freenow.util.JsonResponseCache;
+import com.google.common.base.Preconditions;
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_MODE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 /**
  * Service to encapsulate the link between DAO and controller and to have business logic for some driver specific things.
@@ -32,12 +77,59 @@ public class DefaultDriverService implements DriverService
 
     private final DriverRepository driverRepository;
     private final CarService carService;
+    private final CarReservationRegistry carReservations;
+    private final GeoGridIndex locationIndex;
+    private final LocationIngestionPipeline locationPipeline;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LocationHistoryRepository historyRepository;
+    private final JsonResponseCache responseCache;
+    private final DriverPresence presence;
+    private final PositionExpiry positionExpiry;
+    private final long maxClockSkewSeconds;
 
 
-    public DefaultDriverService(final DriverRepository driverRepository, CarService carService)
+    public DefaultDriverService(
+        final DriverRepository driverRepository, CarService carService, CarReservationRegistry carReservations,
+        GeoGridIndex locationIndex, LocationIngestionPipeline locationPipeline, PlatformTransactionManager transactionManager,
+        EntityManager entityManager, ApplicationEventPublisher eventPublisher, LocationHistoryRepository historyRepository,
+        JsonResponseCache responseCache, DriverPresence presence, PositionExpiry positionExpiry,
+        @Value("${driver.location.max-clock-skew-seconds:30}") long maxClockSkewSeconds)
     {
         this.driverRepository = driverRepository;
         this.carService = carService;
+        this.carReservations = carReservations;
+        this.locationIndex = locationIndex;
+        this.locationPipeline = locationPipeline;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManager = entityManager;
+        this.eventPublisher = eventPublisher;
+        this.historyRepository = historyRepository;
+        this.responseCache = responseCache;
+        this.presence = presence;
+        this.positionExpiry = positionExpiry;
+        this.maxClockSkewSeconds = maxClockSkewSeconds;
+    }
+
+
+    /**
+     * Fills the location index with the last known position and the car reservations with the selected car of all
+     * ONLINE drivers once the application is up.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadLocationIndex()
+    {
+        for (DriverDO driverDO : driverRepository.findByOnlineStatus(OnlineStatus.ONLINE))
+        {
+            indexLocation(driverDO);
+            CarDO carDO = driverDO.getCarDO();
+            if (carDO != null && !Boolean.TRUE.equals(driverDO.getDeleted()) && !carReservations.claim(carDO.getId(), driverDO.getId()))
+            {
+                LOG.warn("Car {} is selected by more than one ONLINE driver, keeping the first one", carDO.getId());
+            }
+        }
+        LOG.info("Location index loaded with {} ONLINE drivers, {} cars reserved", locationIndex.size(), carReservations.size());
     }
 
 
@@ -49,9 +141,10 @@ public class DefaultDriverService implements DriverService
      * @throws EntityNotFoundException if no driver with the given id was found.
      */
     @Override
+    @Timed("driver.service")
     public DriverDO find(Long driverId) throws EntityNotFoundException
     {
-        return findDriverChecked(driverId);
+        return withBufferedState(findDriverChecked(driverId));
     }
 
 
@@ -63,6 +156,7 @@ public class DefaultDriverService implements DriverService
      * @throws ConstraintsViolationException if a driver already exists with the given username, ... .
      */
     @Override
+    @Timed("driver.service")
     public DriverDO create(DriverDO driverDO) throws ConstraintsViolationException
     {
         DriverDO driver;
@@ -75,6 +169,7 @@ public class DefaultDriverService implements DriverService
             LOG.warn("ConstraintsViolationException while creating a driver: {}", driverDO, e);
             throw new ConstraintsViolationException(e.getMessage());
         }
+        publishStatus(driver);
         return driver;
     }
 
@@ -86,16 +181,129 @@ public class DefaultDriverService implements DriverService
      * @throws EntityNotFoundException if no driver with the given id was found.
      */
     @Override
+    @Timed("driver.service")
     @Transactional
     public void delete(Long driverId) throws EntityNotFoundException
     {
         DriverDO driverDO = findDriverChecked(driverId);
         driverDO.setDeleted(true);
+        responseCache.invalidate(DriverDO.class, driverId);
+        unindex(driverId);
+        presence.offline(driverId);
+        if (driverDO.getCarDO() != null)
+        {
+            carReservations.release(driverDO.getCarDO().getId(), driverId);
+        }
+        publishStatus(driverDO);
+    }
+
+
+    /**
+     * Sets the online status of a driver. Every ONLINE call of an ONLINE driver is a heartbeat that only touches the
+     * presence table; a driver without heartbeat for the configured timeout goes OFFLINE by itself. Status changes are
+     * written to the database with the next presence flush.
+     *
+     * @param driverId
+     * @param onlineStatus
+     * @throws EntityNotFoundException  if no driver with the given id was found.
+     * @throws CarAlreadyInUseException if the selected car is used by another ONLINE driver.
+     */
+    @Override
+    @Timed("driver.service")
+    public void updateStatus(long driverId, OnlineStatus onlineStatus) throws EntityNotFoundException, CarAlreadyInUseException
+    {
+        if (onlineStatus == OnlineStatus.ONLINE && presence.heartbeat(driverId))
+        {
+            return;
+        }
+        DriverDO driverDO = withBufferedState(findDriverChecked(driverId));
+        if (Boolean.TRUE.equals(driverDO.getDeleted()))
+        {
+            throw new EntityNotFoundException("Could not find entity with id: " + driverId);
+        }
+        CarDO carDO = driverDO.getCarDO();
+        if (onlineStatus == OnlineStatus.ONLINE)
+        {
+            if (carDO != null && !carReservations.claim(carDO.getId(), driverId))
+            {
+                throw new CarAlreadyInUseException("Car can not be selected by another ONLINE driver");
+            }
+            if (presence.online(driverId))
+            {
+                statusChanged(driverDO, OnlineStatus.ONLINE);
+            }
+        }
+        else if (presence.offline(driverId))
+        {
+            goneOffline(driverDO);
+        }
+    }
+
+
+    /**
+     * Takes the drivers whose heartbeat timed out OFFLINE.
+     */
+    @Scheduled(fixedDelayString = "${driver.presence.tick-ms:1000}")
+    public void expirePresence()
+    {
+        int expired = presence.expire(System.currentTimeMillis(),
+            driverId -> driverRepository.findById(driverId).ifPresent(this::goneOffline));
+        if (expired > 0)
+        {
+            LOG.info("{} drivers went OFFLINE without heartbeat", expired);
+        }
+    }
+
+
+    /**
+     * Takes the drivers whose position was not updated within the time to live out of the location index and OFFLINE.
+     */
+    @Scheduled(fixedDelayString = "${driver.location.expiry-tick-ms:1000}")
+    public void expireStalePositions()
+    {
+        int expired = positionExpiry.expire(System.currentTimeMillis(), driverId -> {
+            if (positionExpiry.isTracked(driverId))
+            {
+                // a newer position arrived meanwhile
+                return;
+            }
+            locationIndex.remove(driverId);
+            if (presence.offline(driverId))
+            {
+                driverRepository.findById(driverId).ifPresent(this::goneOffline);
+            }
+        });
+        if (expired > 0)
+        {
+            LOG.info("{} drivers dropped with a position older than the time to live", expired);
+        }
+    }
+
+
+    private void goneOffline(DriverDO driverDO)
+    {
+        if (driverDO.getCarDO() != null)
+        {
+            carReservations.release(driverDO.getCarDO().getId(), driverDO.getId());
+        }
+        statusChanged(driverDO, OnlineStatus.OFFLINE);
+    }
+
+
+    private void statusChanged(DriverDO driverDO, OnlineStatus onlineStatus)
+    {
+        driverDO.setOnlineStatus(onlineStatus);
+        indexLocation(driverDO);
+        responseCache.invalidate(DriverDO.class, driverDO.getId());
+        publishStatus(driverDO);
     }
 
 
     /**
      * Update the location for a driver.
+     * <p/>
+     * With write-behind enabled the position is only buffered and written with the next batch flush, so unknown
+     * drivers are not reported but dropped at flush time.
      *
      * @param driverId
      * @param longitude
@@ -103,69 +311,635 @@ public class DefaultDriverService implements DriverService
      * @throws EntityNotFoundException
      */
     @Override
-    @Transactional
+    @Timed("driver.service")
     public void updateLocation(long driverId, double longitude, double latitude) throws EntityNotFoundException
     {
-        DriverDO driverDO = findDriverChecked(driverId);
-        driverDO.setCoordinate(new GeoCoordinate(latitude, longitude));
+        GeoCoordinate coordinate = new GeoCoordinate(latitude, longitude);
+        if (locationPipeline.submit(driverId, latitude, longitude))
+        {
+            ZonedDateTime now = ZonedDateTime.now();
+            if (locationIndex.contains(driverId))
+            {
+                indexPosition(driverId, latitude, longitude, now);
+            }
+            responseCache.invalidate(DriverDO.class, driverId);
+            eventPublisher.publishEvent(new DriverUpdateEvent(DriverUpdate.location(driverId, latitude, longitude, now)));
+            return;
+        }
+        DriverDO driverDO = transactionTemplate.execute(status -> driverRepository.findById(driverId)
+            .map(found -> {
+                found.setCoordinate(coordinate);
+                return found;
+            })
+            .orElse(null));
+        if (driverDO == null)
+        {
+            throw new EntityNotFoundException("Could not find entity with id: " + driverId);
+        }
+        presence.unpersistedStatus(driverId).ifPresent(driverDO::setOnlineStatus);
+        indexLocation(driverDO);
+        responseCache.invalidate(DriverDO.class, driverId);
+        eventPublisher.publishEvent(
+            new DriverUpdateEvent(DriverUpdate.location(driverId, latitude, longitude, driverDO.getDateCoordinateUpdated())));
     }
 
 
     /**
-     * Find all drivers by online state.
+     * Applies many location updates in one transaction with batched statements.
+     * <p/>
+     * Only the newest entry per driver is written; older entries of the same driver and entries older than the stored
+     * position are reported as stale. Entries dated further in the future than the allowed clock skew are invalid, they
+     * would otherwise hide every later position of the driver as stale.
+     *
+     * @param locations at most {@value #MAX_LOCATION_BATCH_SIZE} entries
+     * @return the outcome per entry, in the order of the given list
+     * @throws IllegalArgumentException if there are more than {@value #MAX_LOCATION_BATCH_SIZE} entries
+     */
+    @Override
+    @Timed("driver.service")
+    @Transactional
+    public List<LocationUpdateStatus> updateLocations(List<DriverLocationDTO> locations)
+    {
+        Preconditions.checkArgument(
+            locations.size() <= MAX_LOCATION_BATCH_SIZE, "at most " + MAX_LOCATION_BATCH_SIZE + " locations per request");
+        LocationUpdateStatus[] statuses = new LocationUpdateStatus[locations.size()];
+        LocationPing[] pings = new LocationPing[locations.size()];
+        Map<Long, Integer> newestByDriver = new HashMap<>();
+        ZonedDateTime now = ZonedDateTime.now();
+        ZonedDateTime latestAccepted = now.plusSeconds(maxClockSkewSeconds);
+        for (int i = 0; i < locations.size(); i++)
+        {
+            pings[i] = toLocationPing(locations.get(i), now, latestAccepted);
+            if (pings[i] == null)
+            {
+                statuses[i] = LocationUpdateStatus.INVALID;
+                continue;
+            }
+            Integer newest = newestByDriver.get(pings[i].getDriverId());
+            if (newest != null && pings[newest].getTimestamp().isAfter(pings[i].getTimestamp()))
+            {
+                statuses[i] = LocationUpdateStatus.STALE;
+                continue;
+            }
+            if (newest != null)
+            {
+                statuses[newest] = LocationUpdateStatus.STALE;
+            }
+            newestByDriver.put(pings[i].getDriverId(), i);
+        }
+        if (newestByDriver.isEmpty())
+        {
+            return Arrays.asList(statuses);
+        }
+
+        List<Integer> positions = new ArrayList<>(newestByDriver.values());
+        List<LocationPing> batch = new ArrayList<>(positions.size());
+        positions.forEach(position -> batch.add(pings[position]));
+        int[] counts = driverRepository.updateLocations(batch);
+
+        List<Long> updated = new ArrayList<>();
+        List<Long> skipped = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++)
+        {
+            (counts[i] > 0 ? updated : skipped).add(batch.get(i).getDriverId());
+        }
+        responseCache.invalidate(DriverDO.class, updated);
+        Set<Long> existing = new HashSet<>(driverRepository.findExistingDriverIds(skipped));
+        List<DriverUpdate> driverUpdates = new ArrayList<>(updated.size());
+        for (int i = 0; i < batch.size(); i++)
+        {
+            LocationPing ping = batch.get(i);
+            if (counts[i] > 0)
+            {
+                statuses[positions.get(i)] = LocationUpdateStatus.UPDATED;
+                driverUpdates.add(DriverUpdate.location(ping.getDriverId(), ping.getLatitude(), ping.getLongitude(), ping.getTimestamp()));
+                if (presence.isOnline(ping.getDriverId()))
+                {
+                    indexPosition(ping.getDriverId(), ping.getLatitude(), ping.getLongitude(), ping.getTimestamp());
+                }
+                else
+                {
+                    unindex(ping.getDriverId());
+                }
+            }
+            else
+            {
+                statuses[positions.get(i)] = existing.contains(ping.getDriverId()) ? LocationUpdateStatus.STALE : LocationUpdateStatus.NOT_FOUND;
+            }
+        }
+        if (!driverUpdates.isEmpty())
+        {
+            eventPublisher.publishEvent(new DriverUpdateEvent(driverUpdates));
+        }
+        return Arrays.asList(statuses);
+    }
+
+
+    private static LocationPing toLocationPing(DriverLocationDTO location, ZonedDateTime now, ZonedDateTime latestAccepted)
+    {
+        if (location == null || location.getDriverId() == null || location.getLatitude() == null || location.getLongitude() == null)
+        {
+            return null;
+        }
+        try
+        {
+            GeoCoordinate coordinate = new GeoCoordinate(location.getLatitude(), location.getLongitude());
+            ZonedDateTime timestamp = location.getTimestamp() != null ? location.getTimestamp() : now;
+            if (timestamp.isAfter(latestAccepted))
+            {
+                LOG.debug("Location of driver {} is dated in the future: {}", location.getDriverId(), timestamp);
+                return null;
+            }
+            return new LocationPing(location.getDriverId(), coordinate.getLatitude(), coordinate.getLongitude(), timestamp);
+        }
+        catch (IllegalArgumentException e)
+        {
+            LOG.debug("Invalid location for driver {}: {}", location.getDriverId(), e.getMessage());
+            return null;
+        }
+    }
+
+
+    /**
+     * Find all drivers by online state. ONLINE drivers are taken from the presence table and loaded by id, OFFLINE
+     * drivers are selected by the persisted status.
      *
      * @param onlineStatus
      */
     @Override
+    @Timed("driver.service")
     public List<DriverDO> find(OnlineStatus onlineStatus)
     {
-        return driverRepository.findByOnlineStatus(onlineStatus);
+        if (onlineStatus != OnlineStatus.ONLINE)
+        {
+            return withBufferedStates(driverRepository.findByOnlineStatus(onlineStatus));
+        }
+        List<DriverDO> drivers = new ArrayList<>();
+        forEachChunk(presence.onlineIds(), ids -> drivers.addAll(driverRepository.findWithCarByIds(ids)));
+        return withBufferedStates(drivers);
     }
 
 
+    /**
+     * Find all drivers by online state for read-only listings, ordered by id.
+     *
+     * @param onlineStatus
+     */
     @Override
+    @Timed("driver.service")
+    public List<DriverSummary> findSummaries(OnlineStatus onlineStatus)
+    {
+        if (onlineStatus != OnlineStatus.ONLINE)
+        {
+            return withBufferedSummaryStates(driverRepository.findSummariesByOnlineStatus(onlineStatus));
+        }
+        List<DriverSummary> summaries = new ArrayList<>(presence.onlineCount());
+        forEachChunk(presence.onlineIds(), ids -> summaries.addAll(driverRepository.findSummariesByIds(ids)));
+        return withBufferedSummaryStates(summaries);
+    }
+
+
+    /**
+     * Find one page of drivers by online state for read-only listings, ordered by id.
+     *
+     * @param onlineStatus
+     * @param afterId      last id of the previous page, 0 for the first page
+     * @param size         page size, capped at {@value #MAX_PAGE_SIZE}
+     */
+    @Override
+    @Timed("driver.service")
+    public List<DriverSummary> findPage(OnlineStatus onlineStatus, long afterId, int size)
+    {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        if (onlineStatus != OnlineStatus.ONLINE)
+        {
+            PageRequest page = PageRequest.of(0, pageSize);
+            return withBufferedSummaryStates(driverRepository.findSummariesByOnlineStatusAfter(onlineStatus, afterId, page));
+        }
+        List<Long> ids = new ArrayList<>(pageSize);
+        for (Long id : presence.onlineIds().tailSet(afterId, false))
+        {
+            if (ids.size() == pageSize)
+            {
+                break;
+            }
+            ids.add(id);
+        }
+        return ids.isEmpty() ? new ArrayList<>() : withBufferedSummaryStates(driverRepository.findSummariesByIds(ids));
+    }
+
+
+    /**
+     * Hands all drivers by online state to the consumer one by one, ordered by id. Every driver is detached before it
+     * is handed over, so the persistence context does not grow with the number of drivers.
+     *
+     * @param onlineStatus
+     * @param consumer
+     */
+    @Override
+    @Timed("driver.service")
+    @Transactional(readOnly = true)
+    public void stream(OnlineStatus onlineStatus, Consumer<DriverDO> consumer)
+    {
+        if (onlineStatus == OnlineStatus.ONLINE)
+        {
+            forEachChunk(presence.onlineIds(), ids -> driverRepository.findWithCarByIds(ids).forEach(driverDO -> {
+                entityManager.detach(driverDO);
+                consumer.accept(withBufferedState(driverDO));
+            }));
+            return;
+        }
+        try (Stream<DriverDO> drivers = driverRepository.streamByOnlineStatus(onlineStatus))
+        {
+            drivers.forEach(driverDO -> {
+                entityManager.detach(driverDO);
+                consumer.accept(withBufferedState(driverDO));
+            });
+        }
+    }
+
+
+    /**
+     * Hands the ids to the consumer in ascending chunks of at most {@value #MAX_PAGE_SIZE}, the size of one query.
+     */
+    private static void forEachChunk(NavigableSet<Long> ids, Consumer<List<Long>> consumer)
+    {
+        List<Long> chunk = new ArrayList<>(Math.min(ids.size(), MAX_PAGE_SIZE));
+        for (Long id : ids)
+        {
+            chunk.add(id);
+            if (chunk.size() == MAX_PAGE_SIZE)
+            {
+                consumer.accept(chunk);
+                chunk = new ArrayList<>(MAX_PAGE_SIZE);
+            }
+        }
+        if (!chunk.isEmpty())
+        {
+            consumer.accept(chunk);
+        }
+    }
+
+
+    /**
+     * Assigns a car to a driver. ONLINE drivers claim the car in the reservation registry first, so only one of
+     * several concurrent selections of the same car reaches the database. The database backs the claim: the car is
+     * checked against the persisted ONLINE drivers and its version is incremented in the same transaction.
+     *
+     * @param carSelectDTO
+     * @throws EntityNotFoundException  if the driver or the car was not found.
+     * @throws CarAlreadyInUseException if the car is selected by another ONLINE driver.
+     */
+    @Override
+    @Timed("driver.service")
     public void selectCar(CarSelectDTO carSelectDTO) throws EntityNotFoundException, CarAlreadyInUseException
     {
-        if (isCarAlreadySelectedByOnlineDriver(carSelectDTO.getCarId()))
+        long carId = carSelectDTO.getCarId();
+        DriverDO driverDO = findDriverChecked(carSelectDTO.getDriverId());
+        long driverId = driverDO.getId();
+        CarDO previousCarDO = driverDO.getCarDO();
+        boolean alreadyOwned = carReservations.owner(carId).map(owner -> owner == driverId).orElse(false);
+
+        boolean online = driverDO.getOnlineStatus() == OnlineStatus.ONLINE && !Boolean.TRUE.equals(driverDO.getDeleted());
+        if (online ? !carReservations.claim(carId, driverId) : carReservations.isClaimedByOther(carId, driverId))
         {
             throw new CarAlreadyInUseException("Car can not be selected by another ONLINE driver");
         }
-        DriverDO driverDO = findDriverChecked(carSelectDTO.getDriverId());
-        CarDO carDO = carService.find(carSelectDTO.getCarId());
-        driverDO.setCarDO(carDO);
-        driverRepository.save(driverDO);
+        try
+        {
+            assignCar(driverDO, carId);
+        }
+        catch (EntityNotFoundException | CarAlreadyInUseException | RuntimeException e)
+        {
+            if (online && !alreadyOwned)
+            {
+                carReservations.release(carId, driverId);
+            }
+            if (e instanceof OptimisticLockingFailureException)
+            {
+                throw new CarAlreadyInUseException("Car was selected by another driver at the same time");
+            }
+            throw e;
+        }
+        if (previousCarDO != null && previousCarDO.getId() != carId)
+        {
+            carReservations.release(previousCarDO.getId(), driverId);
+        }
+        responseCache.invalidate(DriverDO.class, driverId);
+        publishStatus(driverDO);
     }
 
 
-    private boolean isCarAlreadySelectedByOnlineDriver(long carId)
+    /**
+     * Assigns the car in one transaction. A car that a committed ONLINE driver holds, also one of another instance
+     * whose registry this one never saw, is rejected; two selections whose transactions overlap are told apart by the
+     * forced version increment of the car, the later commit fails.
+     */
+    private void assignCar(DriverDO driverDO, long carId) throws EntityNotFoundException, CarAlreadyInUseException
     {
-        DriverDO driverDO = driverRepository.findByOnlineStatusIsAndCarDOId(OnlineStatus.ONLINE, carId);
-        if (driverDO == null)
-            return false;
-        return true;
+        Exception failure = transactionTemplate.execute(status -> {
+            try
+            {
+                CarDO carDO = carService.findForUpdate(carId);
+                if (driverRepository.isCarSelectedByOtherOnlineDriver(carId, driverDO.getId()))
+                {
+                    status.setRollbackOnly();
+                    return new CarAlreadyInUseException("Car can not be selected by another ONLINE driver");
+                }
+                driverDO.setCarDO(carDO);
+            }
+            catch (EntityNotFoundException e)
+            {
+                return e;
+            }
+            driverRepository.save(driverDO);
+            return null;
+        });
+        if (failure instanceof EntityNotFoundException)
+        {
+            throw (EntityNotFoundException) failure;
+        }
+        if (failure instanceof CarAlreadyInUseException)
+        {
+            throw (CarAlreadyInUseException) failure;
+        }
     }
 
 
     @Override
+    @Timed("driver.service")
     public void deSelectCar(CarSelectDTO carSelectDTO) throws EntityNotFoundException
     {
         DriverDO driverDO = findDriverChecked(carSelectDTO.getDriverId());
+        CarDO carDO = driverDO.getCarDO();
         driverDO.setCarDO(null);
         driverRepository.save(driverDO);
+        responseCache.invalidate(DriverDO.class, driverDO.getId());
+        if (carDO != null)
+        {
+            carReservations.release(carDO.getId(), driverDO.getId());
+        }
+        publishStatus(driverDO);
     }
 
 
+    /**
+     * Find ONLINE drivers with a selected car by the attributes of the driver and the car that are set.
+     *
+     * @param driverDTO
+     */
     @Override
+    @Timed("driver.service")
     public List<DriverDO> findDriverByParams(DriverDTO driverDTO)
     {
-        return driverRepository.findByParams(driverDTO);
+        return search(paramsCriteria(driverDTO));
+    }
+
+
+    /**
+     * Hands the ONLINE drivers matching {@link #findDriverByParams(DriverDTO)} to the consumer one by one, ordered by id.
+     * Every driver is detached before it is handed over, so the persistence context does not grow with the number of
+     * drivers.
+     *
+     * @param driverDTO
+     * @param consumer
+     */
+    @Override
+    @Timed("driver.service")
+    @Transactional(readOnly = true)
+    public void streamDriverByParams(DriverDTO driverDTO, Consumer<DriverDO> consumer)
+    {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<DriverDO> query = cb.createQuery(DriverDO.class);
+        Root<DriverDO> driver = query.from(DriverDO.class);
+        query.where(DriverSearchSpecification.of(paramsCriteria(driverDTO)).toPredicate(driver, query, cb))
+            .orderBy(cb.asc(driver.get("id")));
+        try (Stream<DriverDO> drivers = entityManager.createQuery(query)
+            .setHint(HINT_FETCH_SIZE, DriverRepository.STREAM_FETCH_SIZE)
+            .setHint(HINT_READONLY, true)
+            .setHint(HINT_CACHE_MODE, DriverRepository.STREAM_CACHE_MODE)
+            .getResultStream())
+        {
+            drivers.forEach(driverDO -> {
+                entityManager.detach(driverDO);
+                consumer.accept(withBufferedState(driverDO));
+            });
+        }
+    }
+
+
+    private static DriverSearchDTO paramsCriteria(DriverDTO driverDTO)
+    {
+        DriverSearchDTO.DriverSearchDTOBuilder criteria = DriverSearchDTO.newBuilder()
+            .setOnlineStatus(OnlineStatus.ONLINE)
+            .setWithCar(true)
+            .setUsername(driverDTO.getUsername())
+            .setDeleted(driverDTO.getDeleted());
+        CarDTO carDTO = driverDTO.getCarDTO();
+        if (carDTO != null)
+        {
+            criteria.setLicensePlate(carDTO.getLicensePlate())
+                .setEngineType(carDTO.getEngineType())
+                .setRating(carDTO.getRating())
+                .setSeatCount(carDTO.getSeatCount())
+                .setConvertible(carDTO.getConvertible());
+        }
+        return criteria.createDriverSearchDTO();
+    }
+
+
+    /**
+     * Find drivers matching all criteria that are set. With a distance criterion the drivers are ordered by ascending
+     * distance, otherwise by id.
+     *
+     * @param criteria
+     */
+    @Override
+    @Timed("driver.service")
+    public List<DriverDO> search(DriverSearchDTO criteria)
+    {
+        List<DriverDO> drivers = driverRepository.findAll(DriverSearchSpecification.of(criteria), Sort.by("id"));
+        if (!criteria.hasDistanceCriteria())
+        {
+            return withBufferedStates(drivers);
+        }
+        double latitude = criteria.getLatitude();
+        double longitude = criteria.getLongitude();
+        Map<DriverDO, Double> distances = new HashMap<>();
+        for (DriverDO driverDO : withBufferedStates(drivers))
+        {
+            GeoCoordinate coordinate = driverDO.getCoordinate();
+            double distanceKm = GeoMath.distanceKm(latitude, longitude, coordinate.getLatitude(), coordinate.getLongitude());
+            if (distanceKm <= criteria.getRadiusKm() && positionExpiry.isFresh(driverDO.getDateCoordinateUpdated()))
+            {
+                distances.put(driverDO, distanceKm);
+            }
+        }
+        List<DriverDO> withinRadius = new ArrayList<>(distances.keySet());
+        withinRadius.sort(Comparator.comparingDouble(distances::get));
+        return withinRadius;
+    }
+
+
+    /**
+     * Find the closest ONLINE drivers around a position using the in-memory location index.
+     *
+     * @param latitude
+     * @param longitude
+     * @param radiusKm  search radius in kilometers
+     * @param limit     maximum number of drivers to return
+     * @return drivers ordered by ascending distance
+     */
+    @Override
+    @Timed("driver.service")
+    public List<DriverDO> findNearest(double latitude, double longitude, double radiusKm, int limit)
+    {
+        List<Neighbour> neighbours = locationIndex.nearest(latitude, longitude, radiusKm, limit);
+        if (neighbours.isEmpty())
+        {
+            return new ArrayList<>();
+        }
+        List<Long> ids = neighbours.stream().map(Neighbour::getId).collect(Collectors.toList());
+        Map<Long, DriverDO> driversById = new HashMap<>();
+        driverRepository.findAllById(ids).forEach(driverDO -> driversById.put(driverDO.getId(), driverDO));
+
+        List<DriverDO> drivers = new ArrayList<>(ids.size());
+        for (Long id : ids)
+        {
+            DriverDO driverDO = driversById.get(id);
+            if (driverDO != null)
+            {
+                drivers.add(withBufferedState(driverDO));
+            }
+        }
+        return drivers;
+    }
+
+
+    /**
+     * Find the recorded positions of a driver in a time range. Positions are recorded asynchronously, the latest ones
+     * show up after the next history flush.
+     *
+     * @param driverId
+     * @param from     start of the range, inclusive
+     * @param to       end of the range, inclusive
+     * @param limit    maximum number of positions, capped at {@value #MAX_HISTORY_SIZE}
+     * @return positions ordered by ascending time
+     */
+    @Override
+    @Timed("driver.service")
+    public List<LocationPing> findLocationHistory(long driverId, ZonedDateTime from, ZonedDateTime to, int limit)
+    {
+        return historyRepository.findBetween(driverId, from, to, Math.max(1, Math.min(limit, MAX_HISTORY_SIZE)));
     }
 
 
+    /**
+     * Applies a position that is still waiting in the write-behind buffer and an online status that is not persisted
+     * yet, the buffers are always the most recent source.
+     */
+    private DriverDO withBufferedState(DriverDO driverDO)
+    {
+        locationPipeline.latest(driverDO.getId())
+            .filter(ping -> driverDO.getDateCoordinateUpdated() == null || !ping.getTimestamp().isBefore(driverDO.getDateCoordinateUpdated()))
+            .ifPresent(ping -> driverDO.setCoordinate(ping.toCoordinate(), ping.getTimestamp()));
+        presence.unpersistedStatus(driverDO.getId()).ifPresent(driverDO::setOnlineStatus);
+        return driverDO;
+    }
+
+
+    private List<DriverDO> withBufferedStates(List<DriverDO> drivers)
+    {
+        if (locationPipeline.pendingCount() > 0 || presence.hasUnpersisted())
+        {
+            drivers.forEach(this::withBufferedState);
+        }
+        return drivers;
+    }
+
+
+    private List<DriverSummary> withBufferedSummaryStates(List<DriverSummary> summaries)
+    {
+        if (locationPipeline.pendingCount() == 0 && !presence.hasUnpersisted())
+        {
+            return summaries;
+        }
+        List<DriverSummary> buffered = new ArrayList<>(summaries.size());
+        for (DriverSummary summary : summaries)
+        {
+            DriverSummary located = locationPipeline.latest(summary.getId())
+                .filter(ping -> summary.getDateCoordinateUpdated() == null || !ping.getTimestamp().isBefore(summary.getDateCoordinateUpdated()))
+                .map(ping -> summary.withCoordinate(ping.getLatitude(), ping.getLongitude(), ping.getTimestamp()))
+                .orElse(summary);
+            buffered.add(presence.unpersistedStatus(summary.getId()).map(located::withOnlineStatus).orElse(located));
+        }
+        return buffered;
+    }
+
+
+    private void publishStatus(DriverDO driverDO)
+    {
+        GeoCoordinate coordinate = locationPipeline.latest(driverDO.getId())
+            .map(LocationPing::toCoordinate)
+            .orElse(driverDO.getCoordinate());
+        eventPublisher.publishEvent(new DriverUpdateEvent(new DriverUpdate(
+            driverDO.getId(),
+            coordinate != null ? coordinate.getLatitude() : null,
+            coordinate != null ? coordinate.getLongitude() : null,
+            driverDO.getOnlineStatus(),
+            driverDO.getDeleted(),
+            driverDO.getCarDO() != null ? driverDO.getCarDO().getId() : null,
+            ZonedDateTime.now())));
+    }
+
+
+    private void indexLocation(DriverDO driverDO)
+    {
+        GeoCoordinate coordinate = driverDO.getCoordinate();
+        if (coordinate != null && driverDO.getOnlineStatus() == OnlineStatus.ONLINE && !Boolean.TRUE.equals(driverDO.getDeleted()))
+        {
+            indexPosition(driverDO.getId(), coordinate.getLatitude(), coordinate.getLongitude(), driverDO.getDateCoordinateUpdated());
+        }
+        else
+        {
+            unindex(driverDO.getId());
+        }
+    }
+
+
+    /**
+     * Indexes a position within the time to live, a stale position takes the driver out of the index.
+     */
+    private void indexPosition(long driverId, double latitude, double longitude, ZonedDateTime updated)
+    {
+        if (positionExpiry.track(driverId, updated))
+        {
+            locationIndex.update(driverId, latitude, longitude);
+        }
+        else
+        {
+            locationIndex.remove(driverId);
+        }
+    }
+
+
+    private void unindex(long driverId)
+    {
+        locationIndex.remove(driverId);
+        positionExpiry.untrack(driverId);
+    }
+
+
+    /**
+     * The driver with the online status that is not persisted yet applied, so changes saved through the entity write
+     * the current status.
+     */
     private DriverDO findDriverChecked(Long driverId) throws EntityNotFoundException
     {
-        return driverRepository.findById(driverId)
+        DriverDO driverDO = driverRepository.findById(driverId)
             .orElseThrow(() -> new EntityNotFoundException("Could not find entity with id: " + driverId));
+        presence.unpersistedStatus(driverId).ifPresent(driverDO::setOnlineStatus);
+        return driverDO;
     }
 
 }
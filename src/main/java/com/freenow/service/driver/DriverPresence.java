@@ -0,0 +1,265 @@
+package com.freenow.service.driver;
+
+import com.freenow.dataaccessobject.DriverRepository;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.util.TimingWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * In-memory presence table, the source of truth for which drivers are ONLINE.
+ * <p/>
+ * ONLINE drivers send heartbeats; a driver without heartbeat for the configured timeout goes OFFLINE, the deadlines
+ * are kept in a {@link TimingWheel} so a heartbeat is O(1) and expiry only visits the drivers that are due. Status
+ * changes are written to the driver table lazily with the next flush, until then they are reported as unpersisted so
+ * readers of the database can apply them.
+ * <p/>
+ * Drivers that are ONLINE in the database at startup get a grace period before they have to send a heartbeat, so a
+ * restart does not take the whole fleet OFFLINE.
+ */
+@Component
+public class DriverPresence
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(DriverPresence.class);
+
+    private static final int MAX_WHEEL_SIZE = 4096;
+
+    private final DriverRepository driverRepository;
+    private final long timeoutMillis;
+    private final long startupGraceMillis;
+
+    private final NavigableSet<Long> online = new ConcurrentSkipListSet<>();
+    private final AtomicInteger onlineCount = new AtomicInteger();
+    private final Map<Long, OnlineStatus> unpersisted = new ConcurrentHashMap<>();
+    private final TimingWheel<Long> heartbeats;
+
+    private final Counter heartbeatCounter;
+    private final Counter expired;
+    private final Counter flushed;
+
+
+    public DriverPresence(
+        DriverRepository driverRepository,
+        MeterRegistry meterRegistry,
+        @Value("${driver.presence.timeout-seconds:60}") long timeoutSeconds,
+        @Value("${driver.presence.startup-grace-seconds:600}") long startupGraceSeconds,
+        @Value("${driver.presence.tick-ms:1000}") long tickMillis)
+    {
+        this.driverRepository = driverRepository;
+        this.timeoutMillis = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+        this.startupGraceMillis = TimeUnit.SECONDS.toMillis(startupGraceSeconds);
+        int wheelSize = (int) Math.min(timeoutMillis / tickMillis + 1, MAX_WHEEL_SIZE);
+        this.heartbeats = new TimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+
+        meterRegistry.gauge("driver.presence.online", onlineCount);
+        meterRegistry.gauge("driver.presence.unpersisted", unpersisted, Map::size);
+        this.heartbeatCounter = meterRegistry.counter("driver.presence.heartbeats");
+        this.expired = meterRegistry.counter("driver.presence.expired");
+        this.flushed = meterRegistry.counter("driver.presence.flushed");
+    }
+
+
+    /**
+     * Loads the ONLINE drivers from the database before the other startup listeners read the presence.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void loadOnlineDrivers()
+    {
+        load(driverRepository.findAllOnlineDriverIds(), System.currentTimeMillis());
+        LOG.info("Presence loaded with {} ONLINE drivers", onlineCount.get());
+    }
+
+
+    /**
+     * Marks drivers ONLINE that already are in the database, they have to send their first heartbeat within the
+     * startup grace period.
+     */
+    public void load(Collection<Long> driverIds, long nowMillis)
+    {
+        for (Long driverId : driverIds)
+        {
+            if (online.add(driverId))
+            {
+                onlineCount.incrementAndGet();
+            }
+            heartbeats.schedule(driverId, nowMillis + startupGraceMillis);
+        }
+    }
+
+
+    /**
+     * Pushes the timeout of an ONLINE driver back.
+     *
+     * @return false if the driver is not ONLINE, going ONLINE is up to {@link #online(long)}
+     */
+    public boolean heartbeat(long driverId)
+    {
+        if (!online.contains(driverId))
+        {
+            return false;
+        }
+        heartbeats.schedule(driverId, System.currentTimeMillis() + timeoutMillis);
+        if (!online.contains(driverId))
+        {
+            // went OFFLINE concurrently, drop the timeout again
+            heartbeats.cancel(driverId);
+            return false;
+        }
+        heartbeatCounter.increment();
+        return true;
+    }
+
+
+    /**
+     * @return true if the driver was OFFLINE before
+     */
+    public boolean online(long driverId)
+    {
+        heartbeats.schedule(driverId, System.currentTimeMillis() + timeoutMillis);
+        if (!online.add(driverId))
+        {
+            return false;
+        }
+        onlineCount.incrementAndGet();
+        unpersisted.put(driverId, OnlineStatus.ONLINE);
+        return true;
+    }
+
+
+    /**
+     * @return true if the driver was ONLINE before
+     */
+    public boolean offline(long driverId)
+    {
+        heartbeats.cancel(driverId);
+        if (!online.remove(driverId))
+        {
+            return false;
+        }
+        onlineCount.decrementAndGet();
+        unpersisted.put(driverId, OnlineStatus.OFFLINE);
+        return true;
+    }
+
+
+    public boolean isOnline(long driverId)
+    {
+        return online.contains(driverId);
+    }
+
+
+    /**
+     * @return live, ascending view of the ids of all ONLINE drivers
+     */
+    public NavigableSet<Long> onlineIds()
+    {
+        return Collections.unmodifiableNavigableSet(online);
+    }
+
+
+    public int onlineCount()
+    {
+        return onlineCount.get();
+    }
+
+
+    public boolean hasUnpersisted()
+    {
+        return !unpersisted.isEmpty();
+    }
+
+
+    /**
+     * @return the status of the driver that has not been written to the database yet
+     */
+    public Optional<OnlineStatus> unpersistedStatus(long driverId)
+    {
+        if (unpersisted.isEmpty())
+        {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(unpersisted.get(driverId));
+    }
+
+
+    /**
+     * Takes all drivers whose heartbeat timed out OFFLINE and hands their ids to the consumer.
+     *
+     * @return the number of expired drivers
+     */
+    public int expire(long nowMillis, Consumer<Long> consumer)
+    {
+        int[] count = {0};
+        heartbeats.advance(nowMillis, driverId -> {
+            if (offline(driverId))
+            {
+                count[0]++;
+                consumer.accept(driverId);
+            }
+        });
+        expired.increment(count[0]);
+        return count[0];
+    }
+
+
+    @Scheduled(fixedDelayString = "${driver.presence.flush-interval-ms:1000}")
+    public void scheduledFlush()
+    {
+        flush();
+    }
+
+
+    @PreDestroy
+    public void shutdown()
+    {
+        flush();
+    }
+
+
+    /**
+     * Writes all unpersisted statuses. A status stays unpersisted if it changed again while being written.
+     */
+    public synchronized void flush()
+    {
+        if (unpersisted.isEmpty())
+        {
+            return;
+        }
+        Map<Long, OnlineStatus> batch = new HashMap<>(unpersisted);
+        try
+        {
+            driverRepository.updateOnlineStatuses(batch);
+        }
+        catch (RuntimeException e)
+        {
+            LOG.error("Could not flush {} driver statuses, retrying with the next flush", batch.size(), e);
+            return;
+        }
+        batch.forEach(unpersisted::remove);
+        flushed.increment(batch.size());
+    }
+}
@@ -0,0 +1,129 @@
+package com.freenow.service.driver;
+
+import com.freenow.datatransferobject.DriverSearchDTO;
+import com.freenow.domainobject.CarDO;
+import com.freenow.domainobject.DriverDO;
+import com.freenow.service.geo.GeoMath;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Driver search that only contains the predicates of criteria that are set, so the database can use the driver and car
+ * indexes instead of evaluating {@code (:x is null OR column = :x)} for every row.
+ * <p/>
+ * The car is fetched in the same query. It is inner joined when a car criterion is set, including
+ * {@link DriverSearchDTO#getWithCar()}, and outer joined otherwise, so drivers without a car are only found when no car
+ * criterion is set. The distance criterion only narrows down to the bounding box of the circle here, the exact distance
+ * is checked by the caller. A box crossing the antimeridian is matched on both sides of it.
+ */
+public final class DriverSearchSpecification implements Specification<DriverDO>
+{
+
+    private final DriverSearchDTO criteria;
+
+
+    private DriverSearchSpecification(DriverSearchDTO criteria)
+    {
+        this.criteria = criteria;
+    }
+
+
+    public static DriverSearchSpecification of(DriverSearchDTO criteria)
+    {
+        return new DriverSearchSpecification(criteria);
+    }
+
+
+    @Override
+    public Predicate toPredicate(Root<DriverDO> driver, CriteriaQuery<?> query, CriteriaBuilder cb)
+    {
+        List<Predicate> predicates = new ArrayList<>();
+        equal(cb, predicates, driver.get("username"), criteria.getUsername());
+        equal(cb, predicates, driver.get("onlineStatus"), criteria.getOnlineStatus());
+        equal(cb, predicates, driver.get("deleted"), criteria.getDeleted());
+
+        From<DriverDO, CarDO> car = joinCar(driver, query, criteria.hasCarCriteria() ? JoinType.INNER : JoinType.LEFT);
+        if (criteria.hasCarCriteria())
+        {
+            equal(cb, predicates, car.get("engineType"), criteria.getEngineType());
+            equal(cb, predicates, car.get("convertible"), criteria.getConvertible());
+            equal(cb, predicates, car.get("seatCount"), criteria.getSeatCount());
+            equal(cb, predicates, car.get("rating"), criteria.getRating());
+            equal(cb, predicates, car.get("licensePlate"), criteria.getLicensePlate());
+            if (criteria.getMinSeatCount() != null)
+            {
+                predicates.add(cb.greaterThanOrEqualTo(car.get("seatCount"), criteria.getMinSeatCount()));
+            }
+            if (criteria.getMinRating() != null)
+            {
+                // the numeric copy of the free-form rating, cars without a numeric rating never match
+                predicates.add(cb.greaterThanOrEqualTo(car.get("ratingScore"), criteria.getMinRating()));
+            }
+        }
+
+        if (criteria.hasDistanceCriteria())
+        {
+            double latitudeDelta = criteria.getRadiusKm() / GeoMath.KM_PER_DEGREE_LATITUDE;
+            // a degree of longitude is shortest at the edge closer to the pole, the box has to be widest there
+            double poleEdgeLatitude = Math.min(90, Math.abs(criteria.getLatitude()) + latitudeDelta);
+            double kmPerDegreeLongitude = GeoMath.kmPerDegreeLongitude(poleEdgeLatitude);
+            double longitudeDelta = kmPerDegreeLongitude > 0 ? Math.min(180, criteria.getRadiusKm() / kmPerDegreeLongitude) : 180;
+            predicates.add(cb.between(driver.get("coordinate").get("latitude"),
+                criteria.getLatitude() - latitudeDelta, criteria.getLatitude() + latitudeDelta));
+            if (longitudeDelta < 180)
+            {
+                predicates.add(longitudeRange(cb, driver.get("coordinate").get("longitude"),
+                    criteria.getLongitude() - longitudeDelta, criteria.getLongitude() + longitudeDelta));
+            }
+        }
+        return cb.and(predicates.toArray(new Predicate[0]));
+    }
+
+
+    /**
+     * A box crossing the antimeridian is split into the ranges on either side of it.
+     */
+    private static Predicate longitudeRange(CriteriaBuilder cb, Expression<Double> longitude, double from, double to)
+    {
+        if (from < -180)
+        {
+            return cb.or(cb.between(longitude, from + 360, 180d), cb.between(longitude, -180d, to));
+        }
+        if (to > 180)
+        {
+            return cb.or(cb.between(longitude, from, 180d), cb.between(longitude, -180d, to - 360));
+        }
+        return cb.between(longitude, from, to);
+    }
+
+
+    private static From<DriverDO, CarDO> joinCar(Root<DriverDO> driver, CriteriaQuery<?> query, JoinType joinType)
+    {
+        if (Long.class == query.getResultType() || long.class == query.getResultType())
+        {
+            // count queries can not fetch
+            return driver.join("carDO", joinType);
+        }
+        // hibernate fetches are joins, reuse the fetch join for the car predicates
+        return (Join<DriverDO, CarDO>) driver.<DriverDO, CarDO>fetch("carDO", joinType);
+    }
+
+
+    private static <T> void equal(CriteriaBuilder cb, List<Predicate> predicates, Expression<T> expression, T value)
+    {
+        if (value != null)
+        {
+            predicates.add(cb.equal(expression, value));
+        }
+    }
+}
@@ -2,30 +2,61 @@ package com.freenow.service.driver;
 
 import com.freenow.datatransferobject.CarSelectDTO;
 import com.freenow.datatransferobject.DriverDTO;
+import com.freenow.datatransferobject.DriverLocationDTO;
+import com.freenow.datatransferobject.DriverSearchDTO;
 import com.freenow.domainobject.DriverDO;
+import com.freenow.domainvalue.DriverSummary;
+import com.freenow.domainvalue.LocationPing;
+import com.freenow.domainvalue.LocationUpdateStatus;
 import com.freenow.domainvalue.OnlineStatus;
 import com.freenow.exception.CarAlreadyInUseException;
 import com.freenow.exception.ConstraintsViolationException;
 import com.freenow.exception.EntityNotFoundException;
 
+import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface DriverService
 {
 
+    int MAX_PAGE_SIZE = 1000;
+
+    int MAX_HISTORY_SIZE = 10000;
+
+    int MAX_LOCATION_BATCH_SIZE = 1000;
+
     DriverDO find(Long driverId) throws EntityNotFoundException;
 
     DriverDO create(DriverDO driverDO) throws ConstraintsViolationException;
 
     void delete(Long driverId) throws EntityNotFoundException;
 
+    void updateStatus(long driverId, OnlineStatus onlineStatus) throws EntityNotFoundException, CarAlreadyInUseException;
+
     void updateLocation(long driverId, double longitude, double latitude) throws EntityNotFoundException;
 
+    List<LocationUpdateStatus> updateLocations(List<DriverLocationDTO> locations);
+
     List<DriverDO> find(OnlineStatus onlineStatus);
 
+    List<DriverSummary> findSummaries(OnlineStatus onlineStatus);
+
+    List<DriverSummary> findPage(OnlineStatus onlineStatus, long afterId, int size);
+
+    void stream(OnlineStatus onlineStatus, Consumer<DriverDO> consumer);
+
     void selectCar(CarSelectDTO carSelectDTO) throws EntityNotFoundException, CarAlreadyInUseException;
 
     void deSelectCar(CarSelectDTO carSelectDTO) throws EntityNotFoundException;
 
     List<DriverDO> findDriverByParams(DriverDTO driverDTO);
+
+    void streamDriverByParams(DriverDTO driverDTO, Consumer<DriverDO> consumer);
+
+    List<DriverDO> search(DriverSearchDTO criteria);
+
+    List<DriverDO> findNearest(double latitude, double longitude, double radiusKm, int limit);
+
+    List<LocationPing> findLocationHistory(long driverId, ZonedDateTime from, ZonedDateTime to, int limit);
 }
@@ -0,0 +1,284 @@
+package com.freenow.service.driver;
+
+import com.freenow.domainvalue.DriverUpdate;
+import com.freenow.domainvalue.GeoBoundingBox;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fans driver updates out to push subscribers.
+ * <p/>
+ * Published updates are handed to a single fan-out thread through a map keyed by driver, so the publishing request
+ * only pays for one map update per driver however many subscribers there are, and updates arriving while the fan-out
+ * is busy are conflated. Every subscriber has its own pending map keyed by driver as well, so a slow consumer only
+ * receives the latest state of each driver. Batches are sent on a small pool of sender threads, a subscriber occupies
+ * at most one of them at a time. Subscribers with a bounding box only receive
+ * drivers inside the box, plus one last update for drivers leaving it.
+ */
+@Component
+public class DriverUpdateBroadcaster
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(DriverUpdateBroadcaster.class);
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders;
+    private final ExecutorService fanOut;
+    private final Map<Long, DriverUpdate> inbound = new ConcurrentHashMap<>();
+    private final AtomicBoolean fanningOut = new AtomicBoolean();
+    private final int maxSubscribers;
+
+    private final Counter published;
+    private final Counter conflated;
+    private final Counter sent;
+
+
+    public DriverUpdateBroadcaster(
+        MeterRegistry meterRegistry,
+        @Value("${driver.updates.sender-threads:4}") int senderThreads,
+        @Value("${driver.updates.max-subscribers:1000}") int maxSubscribers)
+    {
+        this.senders = Executors.newFixedThreadPool(
+            senderThreads, new ThreadFactoryBuilder().setNameFormat("driver-updates-%d").setDaemon(true).build());
+        this.fanOut = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("driver-updates-fan-out").setDaemon(true).build());
+        this.maxSubscribers = maxSubscribers;
+
+        meterRegistry.gaugeCollectionSize("driver.updates.subscribers", Tags.empty(), subscriptions);
+        this.published = meterRegistry.counter("driver.updates", "result", "published");
+        this.conflated = meterRegistry.counter("driver.updates", "result", "conflated");
+        this.sent = meterRegistry.counter("driver.updates", "result", "sent");
+    }
+
+
+    /**
+     * @param boundingBox area of interest, null for all drivers
+     * @param sink        receives the batches, throwing from it ends the subscription
+     * @return the subscription, or null if the maximum number of subscribers is reached
+     */
+    public Subscription subscribe(GeoBoundingBox boundingBox, DriverUpdateSink sink)
+    {
+        if (subscriptions.size() >= maxSubscribers)
+        {
+            return null;
+        }
+        Subscription subscription = new Subscription(boundingBox, sink);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+
+    public void unsubscribe(Subscription subscription)
+    {
+        subscriptions.remove(subscription);
+    }
+
+
+    public int subscriberCount()
+    {
+        return subscriptions.size();
+    }
+
+
+    /**
+     * Runs after the publishing transaction committed, so subscribers never see rolled back changes. Only queues the
+     * updates for the fan-out thread.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDriverUpdate(DriverUpdateEvent event)
+    {
+        if (subscriptions.isEmpty())
+        {
+            return;
+        }
+        published.increment(event.getUpdates().size());
+        for (DriverUpdate update : event.getUpdates())
+        {
+            inbound.merge(update.getDriverId(), update, DriverUpdate::mergeNewer);
+        }
+        scheduleFanOut();
+    }
+
+
+    @PreDestroy
+    public void shutdown()
+    {
+        subscriptions.clear();
+        fanOut.shutdownNow();
+        senders.shutdownNow();
+    }
+
+
+    private void scheduleFanOut()
+    {
+        if (!inbound.isEmpty() && fanningOut.compareAndSet(false, true))
+        {
+            try
+            {
+                fanOut.execute(this::fanOut);
+            }
+            catch (RejectedExecutionException e)
+            {
+                fanningOut.set(false);
+            }
+        }
+    }
+
+
+    private void fanOut()
+    {
+        try
+        {
+            List<DriverUpdate> updates = new ArrayList<>(inbound.size());
+            for (Map.Entry<Long, DriverUpdate> entry : inbound.entrySet())
+            {
+                // an entry replaced in the meantime stays for the next round
+                if (inbound.remove(entry.getKey(), entry.getValue()))
+                {
+                    updates.add(entry.getValue());
+                }
+            }
+            for (Subscription subscription : subscriptions)
+            {
+                for (DriverUpdate update : updates)
+                {
+                    subscription.offer(update);
+                }
+                subscription.scheduleDrain();
+            }
+        }
+        finally
+        {
+            fanningOut.set(false);
+        }
+        scheduleFanOut();
+    }
+
+
+    @FunctionalInterface
+    public interface DriverUpdateSink
+    {
+        void send(List<DriverUpdate> updates) throws IOException;
+    }
+
+
+    public final class Subscription
+    {
+        private final GeoBoundingBox boundingBox;
+        private final DriverUpdateSink sink;
+        private final Map<Long, DriverUpdate> pending = new ConcurrentHashMap<>();
+        private final Set<Long> visible = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+
+        private Subscription(GeoBoundingBox boundingBox, DriverUpdateSink sink)
+        {
+            this.boundingBox = boundingBox;
+            this.sink = sink;
+        }
+
+
+        private void offer(DriverUpdate update)
+        {
+            if (!accepts(update))
+            {
+                return;
+            }
+            boolean[] merged = {false};
+            pending.merge(update.getDriverId(), update, (current, next) -> {
+                merged[0] = true;
+                return current.mergeNewer(next);
+            });
+            if (merged[0])
+            {
+                conflated.increment();
+            }
+        }
+
+
+        private boolean accepts(DriverUpdate update)
+        {
+            if (boundingBox == null)
+            {
+                return true;
+            }
+            long driverId = update.getDriverId();
+            if (update.hasLocation() && boundingBox.contains(update.getLatitude(), update.getLongitude()))
+            {
+                visible.add(driverId);
+                return true;
+            }
+            // a driver leaving the box is sent once more so the subscriber can drop it
+            return update.hasLocation() ? visible.remove(driverId) : visible.contains(driverId);
+        }
+
+
+        private void scheduleDrain()
+        {
+            if (!pending.isEmpty() && draining.compareAndSet(false, true))
+            {
+                try
+                {
+                    senders.execute(this::drain);
+                }
+                catch (RejectedExecutionException e)
+                {
+                    draining.set(false);
+                }
+            }
+        }
+
+
+        private void drain()
+        {
+            try
+            {
+                List<DriverUpdate> batch = new ArrayList<>(pending.size());
+                for (Map.Entry<Long, DriverUpdate> entry : pending.entrySet())
+                {
+                    // an entry replaced in the meantime stays for the next batch
+                    if (pending.remove(entry.getKey(), entry.getValue()))
+                    {
+                        batch.add(entry.getValue());
+                    }
+                }
+                if (!batch.isEmpty())
+                {
+                    sink.send(batch);
+                    sent.increment(batch.size());
+                }
+            }
+            catch (IOException | RuntimeException e)
+            {
+                LOG.debug("Dropping driver update subscriber: {}", e.getMessage());
+                unsubscribe(this);
+                pending.clear();
+                return;
+            }
+            finally
+            {
+                draining.set(false);
+            }
+            scheduleDrain();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.freenow.service.driver;
+
+import com.freenow.domainvalue.DriverUpdate;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Application event with the driver updates of one service call, published once per call so bulk location updates
+ * do not fan out into one event per driver.
+ */
+public class DriverUpdateEvent
+{
+
+    private final List<DriverUpdate> updates;
+
+
+    public DriverUpdateEvent(List<DriverUpdate> updates)
+    {
+        this.updates = Collections.unmodifiableList(updates);
+    }
+
+
+    public DriverUpdateEvent(DriverUpdate update)
+    {
+        this(Collections.singletonList(update));
+    }
+
+
+    public List<DriverUpdate> getUpdates()
+    {
+        return updates;
+    }
+}
@@ -0,0 +1,159 @@
+package com.freenow.service.driver;
+
+import com.freenow.dataaccessobject.LocationHistoryRepository;
+import com.freenow.domainvalue.DriverUpdate;
+import com.freenow.domainvalue.LocationPing;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Records every accepted location update in the {@link LocationHistoryRepository}.
+ * <p/>
+ * Updates are taken from the {@link DriverUpdateEvent}s after commit and put into a bounded queue that is written in
+ * batches on the scheduler thread, so the latest-position update path never waits for the history. When the queue is
+ * full, pings are dropped from the history and counted rather than slowing down ingestion.
+ */
+@Component
+public class LocationHistoryRecorder
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(LocationHistoryRecorder.class);
+
+    private final LocationHistoryRepository historyRepository;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int retentionDays;
+    private final BlockingQueue<LocationPing> queue;
+
+    private final Counter recorded;
+    private final Counter dropped;
+
+
+    public LocationHistoryRecorder(
+        LocationHistoryRepository historyRepository,
+        MeterRegistry meterRegistry,
+        @Value("${driver.location.history.enabled:true}") boolean enabled,
+        @Value("${driver.location.history.capacity:100000}") int capacity,
+        @Value("${driver.location.history.batch-size:500}") int batchSize,
+        @Value("${driver.location.history.retention-days:30}") int retentionDays)
+    {
+        this.historyRepository = historyRepository;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.retentionDays = retentionDays;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+
+        meterRegistry.gaugeCollectionSize("driver.location.history.pending", Tags.empty(), queue);
+        this.recorded = meterRegistry.counter("driver.location.history", "result", "recorded");
+        this.dropped = meterRegistry.counter("driver.location.history", "result", "dropped");
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDriverUpdate(DriverUpdateEvent event)
+    {
+        if (!enabled)
+        {
+            return;
+        }
+        for (DriverUpdate update : event.getUpdates())
+        {
+            // status updates repeat the current position, only location updates are new pings
+            if (update.hasLocation() && !update.hasStatus() && update.getTimestamp() != null)
+            {
+                record(new LocationPing(update.getDriverId(), update.getLatitude(), update.getLongitude(), update.getTimestamp()));
+            }
+        }
+    }
+
+
+    /**
+     * @return false if the queue is full and the ping was dropped from the history
+     */
+    public boolean record(LocationPing ping)
+    {
+        if (queue.offer(ping))
+        {
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+
+    public int pendingCount()
+    {
+        return queue.size();
+    }
+
+
+    @Scheduled(fixedDelayString = "${driver.location.history.flush-interval-ms:1000}")
+    public void scheduledFlush()
+    {
+        if (enabled)
+        {
+            flush();
+        }
+    }
+
+
+    @PreDestroy
+    public void shutdown()
+    {
+        if (enabled)
+        {
+            flush();
+        }
+    }
+
+
+    /**
+     * Writes all queued pings in batches.
+     */
+    public synchronized void flush()
+    {
+        List<LocationPing> batch = new ArrayList<>(Math.min(batchSize, queue.size()));
+        while (queue.drainTo(batch, batchSize) > 0)
+        {
+            try
+            {
+                historyRepository.append(batch);
+                recorded.increment(batch.size());
+            }
+            catch (RuntimeException e)
+            {
+                dropped.increment(batch.size());
+                LOG.error("Could not write {} location history entries, dropping them", batch.size(), e);
+            }
+            batch.clear();
+        }
+    }
+
+
+    /**
+     * Drops the partitions that are older than the retention period.
+     */
+    @Scheduled(cron = "${driver.location.history.retention-cron:0 5 0 * * *}", zone = "UTC")
+    public void applyRetention()
+    {
+        if (enabled)
+        {
+            historyRepository.dropPartitionsBefore(LocalDate.now(ZoneOffset.UTC).minusDays(retentionDays - 1L));
+        }
+    }
+}
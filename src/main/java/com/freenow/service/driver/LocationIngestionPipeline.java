@@ -0,0 +1,313 @@
+package com.freenow.service.driver;
+
+import com.freenow.dataaccessobject.DriverRepository;
+import com.freenow.domainobject.DriverDO;
+import com.freenow.domainvalue.DriverUpdate;
+import com.freenow.domainvalue.LocationPing;
+import com.freenow.service.geo.GeoGridIndex;
+import com.freenow.util.JsonResponseCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Write-behind buffer for driver location pings.
+ * <p/>
+ * Pings are conflated per driver so only the latest position is kept until the next flush, which writes all pending
+ * positions to the driver table in JDBC batches. The buffer is bounded by the number of distinct drivers with a pending
+ * ping; once full, {@link #submit(long, double, double)} refuses new drivers so callers fall back to the synchronous
+ * write path and slow down instead of growing the heap.
+ * <p/>
+ * Pings coalesced by the rate limit have not been applied anywhere else yet. Once written, they update the location
+ * index, invalidate the cached driver and are published as {@link DriverUpdateEvent} like any other ping.
+ */
+@Component
+public class LocationIngestionPipeline
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(LocationIngestionPipeline.class);
+
+    private final DriverRepository driverRepository;
+    private final GeoGridIndex locationIndex;
+    private final DriverPresence presence;
+    private final PositionExpiry positionExpiry;
+    private final JsonResponseCache responseCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final int capacity;
+
+    private final Map<Long, LocationPing> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    // pending pings that still have to be applied after the write, compared by identity
+    private final Set<LocationPing> unapplied = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    private final Counter accepted;
+    private final Counter coalesced;
+    private final Counter rejected;
+    private final Counter flushed;
+    private final Counter skipped;
+    private final Timer flushTimer;
+
+
+    public LocationIngestionPipeline(
+        DriverRepository driverRepository,
+        GeoGridIndex locationIndex,
+        DriverPresence presence,
+        PositionExpiry positionExpiry,
+        JsonResponseCache responseCache,
+        ApplicationEventPublisher eventPublisher,
+        MeterRegistry meterRegistry,
+        @Value("${driver.location.write-behind.enabled:false}") boolean enabled,
+        @Value("${driver.location.write-behind.capacity:100000}") int capacity)
+    {
+        this.driverRepository = driverRepository;
+        this.locationIndex = locationIndex;
+        this.presence = presence;
+        this.positionExpiry = positionExpiry;
+        this.responseCache = responseCache;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.capacity = capacity;
+
+        meterRegistry.gauge("driver.location.pending", pendingCount);
+        meterRegistry.gauge("driver.location.pending.utilization", pendingCount, count -> (double) count.get() / capacity);
+        this.accepted = meterRegistry.counter("driver.location.pings", "result", "accepted");
+        this.coalesced = meterRegistry.counter("driver.location.pings", "result", "coalesced");
+        this.rejected = meterRegistry.counter("driver.location.pings", "result", "rejected");
+        this.flushed = meterRegistry.counter("driver.location.flushed");
+        this.skipped = meterRegistry.counter("driver.location.flushed.skipped");
+        this.flushTimer = meterRegistry.timer("driver.location.flush");
+    }
+
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+
+    /**
+     * Buffers a ping for the next flush. The caller applies the ping to the index and the update stream itself.
+     *
+     * @return false if write-behind is disabled or the buffer is full and the caller has to write synchronously
+     */
+    public boolean submit(long driverId, double latitude, double longitude)
+    {
+        return enabled && buffer(new LocationPing(driverId, latitude, longitude, ZonedDateTime.now()), false);
+    }
+
+
+    /**
+     * Buffers a ping for the next flush even with write-behind disabled, for pings coalesced by the rate limit. The
+     * flush applies the ping once it is written.
+     *
+     * @return false if the buffer is full
+     */
+    public boolean buffer(long driverId, double latitude, double longitude)
+    {
+        return buffer(new LocationPing(driverId, latitude, longitude, ZonedDateTime.now()), true);
+    }
+
+
+    /**
+     * @return true if the driver is online or indexed, decided from memory so the rate limit stays off the database
+     */
+    public boolean isTracked(long driverId)
+    {
+        return presence.isOnline(driverId) || locationIndex.contains(driverId);
+    }
+
+
+    private boolean buffer(LocationPing ping, boolean apply)
+    {
+        // registered before the ping becomes visible to the flush, so a written ping is never missed
+        if (apply)
+        {
+            unapplied.add(ping);
+        }
+        LocationPing[] replaced = {null};
+        pending.computeIfPresent(ping.getDriverId(), (id, current) -> {
+            replaced[0] = current;
+            return ping;
+        });
+        if (replaced[0] != null)
+        {
+            unapplied.remove(replaced[0]);
+            coalesced.increment();
+            return true;
+        }
+        if (pendingCount.incrementAndGet() > capacity)
+        {
+            pendingCount.decrementAndGet();
+            unapplied.remove(ping);
+            rejected.increment();
+            return false;
+        }
+        pending.merge(ping.getDriverId(), ping, (current, next) -> {
+            // lost the race against a concurrent ping of the same driver, conflate into it
+            replaced[0] = current;
+            return next;
+        });
+        if (replaced[0] != null)
+        {
+            unapplied.remove(replaced[0]);
+            pendingCount.decrementAndGet();
+            coalesced.increment();
+        }
+        else
+        {
+            accepted.increment();
+        }
+        return true;
+    }
+
+
+    /**
+     * @return the buffered position of the driver that has not been written to the database yet
+     */
+    public Optional<LocationPing> latest(long driverId)
+    {
+        if (pending.isEmpty())
+        {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(pending.get(driverId));
+    }
+
+
+    public int pendingCount()
+    {
+        return pendingCount.get();
+    }
+
+
+    @Scheduled(fixedDelayString = "${driver.location.write-behind.flush-interval-ms:1000}")
+    public void scheduledFlush()
+    {
+        flush();
+    }
+
+
+    @PreDestroy
+    public void shutdown()
+    {
+        flush();
+    }
+
+
+    /**
+     * Writes all pending pings. A ping stays in the buffer if it was replaced by a newer one while being written.
+     */
+    public synchronized void flush()
+    {
+        if (pending.isEmpty())
+        {
+            return;
+        }
+        List<LocationPing> batch = new ArrayList<>(pending.values());
+        flushTimer.record(() -> write(batch));
+    }
+
+
+    private void write(List<LocationPing> batch)
+    {
+        int[] counts;
+        try
+        {
+            counts = driverRepository.updateLocations(batch);
+        }
+        catch (RuntimeException e)
+        {
+            LOG.error("Could not flush {} buffered driver locations, retrying with the next flush", batch.size(), e);
+            return;
+        }
+
+        List<LocationPing> notIndexed = new ArrayList<>();
+        List<LocationPing> toApply = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++)
+        {
+            LocationPing ping = batch.get(i);
+            if (pending.remove(ping.getDriverId(), ping))
+            {
+                pendingCount.decrementAndGet();
+            }
+            boolean apply = unapplied.remove(ping);
+            if (counts[i] == 0)
+            {
+                skipped.increment();
+                LOG.debug("Dropped buffered location of unknown driver or stale ping {}", ping);
+            }
+            else if (apply)
+            {
+                toApply.add(ping);
+            }
+            else if (!locationIndex.contains(ping.getDriverId()))
+            {
+                notIndexed.add(ping);
+            }
+        }
+        flushed.increment(batch.size());
+        indexNewlySeen(notIndexed);
+        apply(toApply);
+    }
+
+
+    /**
+     * Applies written pings of the rate limit the way the endpoint applies a ping within the limit.
+     */
+    private void apply(List<LocationPing> pings)
+    {
+        if (pings.isEmpty())
+        {
+            return;
+        }
+        List<DriverUpdate> updates = new ArrayList<>(pings.size());
+        for (LocationPing ping : pings)
+        {
+            long driverId = ping.getDriverId();
+            if (locationIndex.contains(driverId) || presence.isOnline(driverId))
+            {
+                if (positionExpiry.track(driverId, ping.getTimestamp()))
+                {
+                    locationIndex.update(driverId, ping.getLatitude(), ping.getLongitude());
+                }
+                else
+                {
+                    locationIndex.remove(driverId);
+                }
+            }
+            responseCache.invalidate(DriverDO.class, driverId);
+            updates.add(DriverUpdate.location(driverId, ping.getLatitude(), ping.getLongitude(), ping.getTimestamp()));
+        }
+        eventPublisher.publishEvent(new DriverUpdateEvent(updates));
+    }
+
+
+    private void indexNewlySeen(List<LocationPing> notIndexed)
+    {
+        for (LocationPing ping : notIndexed)
+        {
+            if (presence.isOnline(ping.getDriverId()) && positionExpiry.track(ping.getDriverId(), ping.getTimestamp()))
+            {
+                locationIndex.update(ping.getDriverId(), ping.getLatitude(), ping.getLongitude());
+            }
+        }
+    }
+}
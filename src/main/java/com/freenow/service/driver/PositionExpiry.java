@@ -0,0 +1,135 @@
+package com.freenow.service.driver;
+
+import com.freenow.util.TimingWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Expiry of indexed driver positions that were not updated for the configured time to live, so drivers that lost
+ * connectivity do not keep showing up at their last position.
+ * <p/>
+ * Every indexed position is scheduled in a {@link TimingWheel} at the time it was taken plus the time to live; a newer
+ * position moves the deadline, expiry only visits the positions that are due and never scans the driver table. A
+ * position counts as fresh for at least one time to live after startup, pings could not reach this instance while it
+ * was down.
+ */
+@Component
+public class PositionExpiry
+{
+
+    private static final int MAX_WHEEL_SIZE = 4096;
+    private static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final long ttlMillis;
+    private final long freshUntilAtLeast;
+    private final TimingWheel<Long> positions;
+    private final Counter expired;
+
+    // expired positions per minute, rolled over by expire
+    private long currentMinute;
+    private long currentMinuteCount;
+    private volatile long lastMinuteCount;
+
+
+    public PositionExpiry(
+        MeterRegistry meterRegistry,
+        @Value("${driver.location.ttl-seconds:300}") long ttlSeconds,
+        @Value("${driver.location.expiry-tick-ms:1000}") long tickMillis)
+    {
+        long now = System.currentTimeMillis();
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.freshUntilAtLeast = now + ttlMillis;
+        this.positions = new TimingWheel<>(tickMillis, (int) Math.min(ttlMillis / tickMillis + 1, MAX_WHEEL_SIZE), now);
+        this.currentMinute = now / MINUTE_MILLIS;
+
+        Gauge.builder("driver.location.tracked", positions, TimingWheel::size).register(meterRegistry);
+        Gauge.builder("driver.location.expired.per-minute", this, expiry -> expiry.lastMinuteCount)
+            .description("Positions expired in the last completed minute")
+            .register(meterRegistry);
+        this.expired = meterRegistry.counter("driver.location.expired");
+    }
+
+
+    /**
+     * @param updated time the position was taken, may be null
+     */
+    public boolean isFresh(ZonedDateTime updated)
+    {
+        return updated != null && deadline(updated) > System.currentTimeMillis();
+    }
+
+
+    /**
+     * Schedules the expiry of the driver's position or moves it to the newer time.
+     *
+     * @return false if the position is stale already and must not be indexed
+     */
+    public boolean track(long driverId, ZonedDateTime updated)
+    {
+        if (!isFresh(updated))
+        {
+            positions.cancel(driverId);
+            return false;
+        }
+        positions.schedule(driverId, deadline(updated));
+        return true;
+    }
+
+
+    public void untrack(long driverId)
+    {
+        positions.cancel(driverId);
+    }
+
+
+    public boolean isTracked(long driverId)
+    {
+        return positions.contains(driverId);
+    }
+
+
+    public int size()
+    {
+        return positions.size();
+    }
+
+
+    /**
+     * Hands the ids of all drivers whose position expired to the consumer.
+     *
+     * @return the number of expired positions
+     */
+    public synchronized int expire(long nowMillis, Consumer<Long> consumer)
+    {
+        int count = positions.advance(nowMillis, consumer);
+        expired.increment(count);
+        long minute = nowMillis / MINUTE_MILLIS;
+        if (minute != currentMinute)
+        {
+            lastMinuteCount = minute == currentMinute + 1 ? currentMinuteCount : 0;
+            currentMinute = minute;
+            currentMinuteCount = 0;
+        }
+        currentMinuteCount += count;
+        return count;
+    }
+
+
+    public long expiredLastMinute()
+    {
+        return lastMinuteCount;
+    }
+
+
+    private long deadline(ZonedDateTime updated)
+    {
+        return Math.max(updated.toInstant().toEpochMilli() + ttlMillis, freshUntilAtLeast);
+    }
+}
@@ -0,0 +1,259 @@
+package com.freenow.service.geo;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory uniform grid over latitude/longitude used to answer k-nearest and radius queries for driver positions.
+ * <p/>
+ * Every position is bucketed into a cell of {@code cellSizeDegrees} x {@code cellSizeDegrees}. Queries only visit the
+ * cells overlapping the search radius, walking outwards ring by ring so k-NN lookups stop as soon as no closer hit can
+ * exist. All operations are thread safe; updates for the same id are serialized by the per-id entry map.
+ */
+@Component
+public class GeoGridIndex
+{
+
+    private static final Comparator<Neighbour> FARTHEST_FIRST = Comparator.comparingDouble(Neighbour::getDistanceKm).reversed();
+
+    private final double cellSizeDegrees;
+    private final int latitudeCells;
+    private final int longitudeCells;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Long, Map<Long, Entry>> cells = new ConcurrentHashMap<>();
+
+
+    public GeoGridIndex(@Value("${driver.index.cell-size-degrees:0.01}") double cellSizeDegrees)
+    {
+        if (cellSizeDegrees <= 0 || cellSizeDegrees > 90)
+        {
+            throw new IllegalArgumentException("cellSizeDegrees must be in (0, 90]: " + cellSizeDegrees);
+        }
+        this.cellSizeDegrees = cellSizeDegrees;
+        this.latitudeCells = (int) Math.ceil(180d / cellSizeDegrees);
+        this.longitudeCells = (int) Math.ceil(360d / cellSizeDegrees);
+    }
+
+
+    /**
+     * Inserts or moves the position for the given id.
+     */
+    public void update(long id, double latitude, double longitude)
+    {
+        long cell = cellOf(latitude, longitude);
+        Entry entry = new Entry(id, latitude, longitude, cell);
+        entries.compute(id, (key, previous) -> {
+            if (previous != null && previous.cell != cell)
+            {
+                removeFromCell(previous);
+            }
+            cells.compute(cell, (k, members) -> {
+                Map<Long, Entry> target = members == null ? new ConcurrentHashMap<>() : members;
+                target.put(id, entry);
+                return target;
+            });
+            return entry;
+        });
+    }
+
+
+    /**
+     * Removes the position for the given id, if present.
+     */
+    public void remove(long id)
+    {
+        entries.computeIfPresent(id, (key, previous) -> {
+            removeFromCell(previous);
+            return null;
+        });
+    }
+
+
+    public boolean contains(long id)
+    {
+        return entries.containsKey(id);
+    }
+
+
+    public int size()
+    {
+        return entries.size();
+    }
+
+
+    public void clear()
+    {
+        entries.clear();
+        cells.clear();
+    }
+
+
+    /**
+     * Finds all indexed positions within {@code radiusKm} of the query point, closest first.
+     */
+    public List<Neighbour> withinRadius(double latitude, double longitude, double radiusKm)
+    {
+        return nearest(latitude, longitude, radiusKm, Integer.MAX_VALUE);
+    }
+
+
+    /**
+     * Finds at most {@code limit} indexed positions within {@code radiusKm} of the query point, closest first.
+     */
+    public List<Neighbour> nearest(double latitude, double longitude, double radiusKm, int limit)
+    {
+        if (limit <= 0 || radiusKm < 0 || entries.isEmpty())
+        {
+            return new ArrayList<>();
+        }
+
+        double radiusDegreesLatitude = radiusKm / GeoMath.KM_PER_DEGREE_LATITUDE;
+        double widestLatitude = Math.min(90d, Math.abs(latitude) + radiusDegreesLatitude);
+        double kmPerDegreeLongitude = GeoMath.kmPerDegreeLongitude(widestLatitude);
+
+        int rowSpan = (int) Math.ceil(radiusDegreesLatitude / cellSizeDegrees);
+        int columnSpan = kmPerDegreeLongitude <= 0 ?
+            longitudeCells :
+            (int) Math.ceil(radiusKm / kmPerDegreeLongitude / cellSizeDegrees);
+        columnSpan = Math.min(columnSpan, (longitudeCells - 1) / 2);
+        int maxRing = Math.max(rowSpan, columnSpan);
+        double minCellKm = cellSizeDegrees * Math.min(GeoMath.KM_PER_DEGREE_LATITUDE, kmPerDegreeLongitude);
+
+        PriorityQueue<Neighbour> best = new PriorityQueue<>(FARTHEST_FIRST);
+        if ((2d * rowSpan + 1) * (2d * columnSpan + 1) > entries.size())
+        {
+            // the radius covers more cells than there are entries, a plain scan is cheaper
+            collect(entries, latitude, longitude, radiusKm, limit, best);
+            return sorted(best);
+        }
+
+        int centerRow = row(latitude);
+        int centerColumn = column(longitude);
+        for (int ring = 0; ring <= maxRing; ring++)
+        {
+            if (best.size() == limit && (ring - 1) * minCellKm > best.peek().getDistanceKm())
+            {
+                break;
+            }
+            for (int dRow = -ring; dRow <= ring; dRow++)
+            {
+                if (Math.abs(dRow) > rowSpan)
+                {
+                    continue;
+                }
+                int currentRow = centerRow + dRow;
+                if (currentRow < 0 || currentRow >= latitudeCells)
+                {
+                    continue;
+                }
+                int step = Math.abs(dRow) == ring ? 1 : 2 * ring;
+                for (int dColumn = -ring; dColumn <= ring; dColumn += step)
+                {
+                    if (Math.abs(dColumn) > columnSpan)
+                    {
+                        continue;
+                    }
+                    int currentColumn = Math.floorMod(centerColumn + dColumn, longitudeCells);
+                    Map<Long, Entry> members = cells.get(key(currentRow, currentColumn));
+                    if (members != null)
+                    {
+                        collect(members, latitude, longitude, radiusKm, limit, best);
+                    }
+                }
+            }
+        }
+
+        return sorted(best);
+    }
+
+
+    private static List<Neighbour> sorted(PriorityQueue<Neighbour> best)
+    {
+        List<Neighbour> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(Neighbour::getDistanceKm));
+        return result;
+    }
+
+
+    private static void collect(
+        Map<Long, Entry> members, double latitude, double longitude, double radiusKm, int limit, PriorityQueue<Neighbour> best)
+    {
+        for (Entry entry : members.values())
+        {
+            double distance = GeoMath.distanceKm(latitude, longitude, entry.latitude, entry.longitude);
+            if (distance > radiusKm)
+            {
+                continue;
+            }
+            if (best.size() < limit)
+            {
+                best.add(new Neighbour(entry.id, entry.latitude, entry.longitude, distance));
+            }
+            else if (distance < best.peek().getDistanceKm())
+            {
+                best.poll();
+                best.add(new Neighbour(entry.id, entry.latitude, entry.longitude, distance));
+            }
+        }
+    }
+
+
+    private void removeFromCell(Entry entry)
+    {
+        cells.computeIfPresent(entry.cell, (k, members) -> {
+            members.remove(entry.id);
+            return members.isEmpty() ? null : members;
+        });
+    }
+
+
+    private long cellOf(double latitude, double longitude)
+    {
+        return key(row(latitude), column(longitude));
+    }
+
+
+    private int row(double latitude)
+    {
+        int row = (int) Math.floor((latitude + 90d) / cellSizeDegrees);
+        return Math.max(0, Math.min(latitudeCells - 1, row));
+    }
+
+
+    private int column(double longitude)
+    {
+        return Math.floorMod((int) Math.floor((longitude + 180d) / cellSizeDegrees), longitudeCells);
+    }
+
+
+    private long key(int row, int column)
+    {
+        return (long) row * longitudeCells + column;
+    }
+
+
+    private static final class Entry
+    {
+        private final long id;
+        private final double latitude;
+        private final double longitude;
+        private final long cell;
+
+
+        private Entry(long id, double latitude, double longitude, long cell)
+        {
+            this.id = id;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.cell = cell;
+        }
+    }
+}
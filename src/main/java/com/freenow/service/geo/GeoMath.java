@@ -0,0 +1,42 @@
+package com.freenow.service.geo;
+
+/**
+ * Small set of spherical helpers shared by the in-memory spatial structures.
+ * <p/>
+ */
+public final class GeoMath
+{
+
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+    public static final double KM_PER_DEGREE_LATITUDE = Math.PI * EARTH_RADIUS_KM / 180d;
+
+
+    private GeoMath()
+    {
+    }
+
+
+    /**
+     * Great-circle distance between two points using the haversine formula.
+     *
+     * @return distance in kilometers
+     */
+    public static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2)
+    {
+        double dLat = Math.toRadians(latitude2 - latitude1);
+        double dLon = Math.toRadians(longitude2 - longitude1);
+        double sinLat = Math.sin(dLat / 2);
+        double sinLon = Math.sin(dLon / 2);
+        double a = sinLat * sinLat + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2)) * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1d, Math.sqrt(a)));
+    }
+
+
+    /**
+     * Length of one degree of longitude at the given latitude.
+     */
+    public static double kmPerDegreeLongitude(double latitude)
+    {
+        return KM_PER_DEGREE_LATITUDE * Math.cos(Math.toRadians(latitude));
+    }
+}
@@ -0,0 +1,46 @@
+package com.freenow.service.geo;
+
+/**
+ * A single hit of a spatial query, i.e. an indexed id together with its position and the distance to the query point.
+ * <p/>
+ */
+public final class Neighbour
+{
+    private final long id;
+    private final double latitude;
+    private final double longitude;
+    private final double distanceKm;
+
+
+    public Neighbour(long id, double latitude, double longitude, double distanceKm)
+    {
+        this.id = id;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.distanceKm = distanceKm;
+    }
+
+
+    public long getId()
+    {
+        return id;
+    }
+
+
+    public double getLatitude()
+    {
+        return latitude;
+    }
+
+
+    public double getLongitude()
+    {
+        return longitude;
+    }
+
+
+    public double getDistanceKm()
+    {
+        return distanceKm;
+    }
+}
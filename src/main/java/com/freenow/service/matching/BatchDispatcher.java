@@ -0,0 +1,471 @@
+package com.freenow.service.matching;
+
+import com.freenow.domainvalue.DriverMatch;
+import com.freenow.domainvalue.RideRequest;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dispatches ride requests in batches instead of one by one: requests are collected over a window and then assigned
+ * to drivers all at once, so a driver goes to the request it serves best instead of the one that happened to ask
+ * first.
+ * <p/>
+ * Every tick groups the collected requests by the grid cell of the pickup point and solves the cells in parallel on a
+ * fork-join pool. Within a cell the candidates of every request come from {@link MatchingService} and the assignment
+ * with the highest total score is found with {@link HungarianAssignment}. Drivers are then claimed atomically; a driver
+ * that is also wanted by a request of a neighbouring cell goes to whoever claims first, the other request falls back
+ * to its next candidate that can still be claimed. If solving a cell fails, the drivers it claimed are released and its
+ * rides complete exceptionally, so no caller waits for a result that never comes.
+ * <p/>
+ * Ticks run on a thread of their own, so the dispatch window does not wait for the flushes and expiry jobs on the shared
+ * task scheduler.
+ */
+@Component
+public class BatchDispatcher
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(BatchDispatcher.class);
+
+    private final MatchingService matchingService;
+    private final int capacity;
+    private final int candidatesPerRequest;
+    private final double cellSizeDegrees;
+    private final long windowMillis;
+    private final ForkJoinPool solvers;
+    private final ScheduledExecutorService ticker;
+
+    private final Queue<PendingRide> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    private final Timer solveTimer;
+    private final DistributionSummary batchSize;
+    private final DistributionSummary optimalScore;
+    private final DistributionSummary greedyScore;
+    private final DistributionSummary optimalAssignments;
+    private final DistributionSummary greedyAssignments;
+    private final MeterRegistry meterRegistry;
+
+
+    public BatchDispatcher(
+        MatchingService matchingService,
+        MeterRegistry meterRegistry,
+        @Value("${matching.batch.capacity:10000}") int capacity,
+        @Value("${matching.batch.candidates-per-request:5}") int candidatesPerRequest,
+        @Value("${matching.batch.cell-size-degrees:0.05}") double cellSizeDegrees,
+        @Value("${matching.batch.parallelism:0}") int parallelism,
+        @Value("${matching.batch.window-ms:2000}") long windowMillis)
+    {
+        this.matchingService = matchingService;
+        this.capacity = capacity;
+        this.candidatesPerRequest = candidatesPerRequest;
+        this.cellSizeDegrees = cellSizeDegrees;
+        this.windowMillis = windowMillis;
+        this.solvers = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.ticker = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("batch-dispatch").setDaemon(true).build());
+        this.meterRegistry = meterRegistry;
+
+        meterRegistry.gauge("matching.batch.pending", pendingCount);
+        this.solveTimer = meterRegistry.timer("matching.batch.solve");
+        this.batchSize = meterRegistry.summary("matching.batch.size");
+        this.optimalScore = meterRegistry.summary("matching.batch.score", "solver", "optimal");
+        this.greedyScore = meterRegistry.summary("matching.batch.score", "solver", "greedy");
+        this.optimalAssignments = meterRegistry.summary("matching.batch.assignments", "solver", "optimal");
+        this.greedyAssignments = meterRegistry.summary("matching.batch.assignments", "solver", "greedy");
+    }
+
+
+    /**
+     * Queues a ride for the next tick.
+     *
+     * @return completes with the claimed driver after the next tick, empty if no driver is available
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public CompletableFuture<Optional<DriverMatch>> submit(RideRequest request)
+    {
+        if (pendingCount.incrementAndGet() > capacity)
+        {
+            pendingCount.decrementAndGet();
+            throw new RejectedExecutionException("Dispatch queue is full");
+        }
+        PendingRide ride = new PendingRide(request.withLimit(candidatesPerRequest));
+        pending.add(ride);
+        return ride.result;
+    }
+
+
+    public int pendingCount()
+    {
+        return pendingCount.get();
+    }
+
+
+    /**
+     * Starts ticking every {@code matching.batch.window-ms}, tests construct the dispatcher and tick by hand.
+     */
+    @PostConstruct
+    public void start()
+    {
+        ticker.scheduleWithFixedDelay(this::scheduledTick, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+
+    private void scheduledTick()
+    {
+        if (pending.isEmpty())
+        {
+            return;
+        }
+        try
+        {
+            tick();
+        }
+        catch (RuntimeException e)
+        {
+            // an exception would cancel all further ticks
+            LOG.error("Dispatch tick failed", e);
+        }
+    }
+
+
+    /**
+     * Assigns all rides collected since the last tick.
+     */
+    public TickReport tick()
+    {
+        List<PendingRide> rides = new ArrayList<>();
+        for (PendingRide ride = pending.poll(); ride != null; ride = pending.poll())
+        {
+            pendingCount.decrementAndGet();
+            rides.add(ride);
+        }
+        if (rides.isEmpty())
+        {
+            return new TickReport(0, 0, 0, 0, 0, 0, 0);
+        }
+
+        long start = System.nanoTime();
+        Map<Long, List<PendingRide>> cells = new LinkedHashMap<>();
+        for (PendingRide ride : rides)
+        {
+            cells.computeIfAbsent(cellOf(ride.request), cell -> new ArrayList<>()).add(ride);
+        }
+        List<Callable<TickReport>> tasks = new ArrayList<>(cells.size());
+        cells.values().forEach(cellRides -> tasks.add(() -> dispatch(cellRides)));
+
+        TickReport report = new TickReport(0, 0, 0, 0, 0, 0, 0);
+        for (Future<TickReport> result : solvers.invokeAll(tasks))
+        {
+            report = report.plus(join(result));
+        }
+        long solveNanos = System.nanoTime() - start;
+        report = new TickReport(
+            report.requests, report.assigned, report.optimalAssignments, report.optimalScore, report.greedyAssignments, report.greedyScore,
+            solveNanos);
+
+        solveTimer.record(solveNanos, TimeUnit.NANOSECONDS);
+        batchSize.record(report.requests);
+        optimalScore.record(report.optimalScore);
+        greedyScore.record(report.greedyScore);
+        optimalAssignments.record(report.optimalAssignments);
+        greedyAssignments.record(report.greedyAssignments);
+        meterRegistry.counter("matching.batch.requests", Tags.of("result", "assigned")).increment(report.assigned);
+        meterRegistry.counter("matching.batch.requests", Tags.of("result", "unassigned")).increment(report.requests - report.assigned);
+        LOG.debug("Dispatched {} of {} rides in {} cells in {} ms, score {} (greedy {})",
+            report.assigned, report.requests, cells.size(), solveNanos / 1_000_000, report.optimalScore, report.greedyScore);
+        return report;
+    }
+
+
+    @PreDestroy
+    public void shutdown()
+    {
+        ticker.shutdownNow();
+        solvers.shutdownNow();
+        for (PendingRide ride = pending.poll(); ride != null; ride = pending.poll())
+        {
+            ride.result.complete(Optional.empty());
+        }
+    }
+
+
+    private TickReport dispatch(List<PendingRide> rides)
+    {
+        List<Long> claimed = new ArrayList<>();
+        try
+        {
+            return solve(rides, claimed);
+        }
+        catch (RuntimeException e)
+        {
+            LOG.error("Dispatching {} rides failed, releasing {} claimed drivers", rides.size(), claimed.size(), e);
+            claimed.forEach(matchingService::release);
+            rides.forEach(ride -> ride.result.completeExceptionally(e));
+            meterRegistry.counter("matching.batch.requests", Tags.of("result", "failed")).increment(rides.size());
+            return new TickReport(rides.size(), 0, 0, 0, 0, 0, 0);
+        }
+    }
+
+
+    /**
+     * Assigns the rides of one cell, every claimed driver is added to claimed before the rides are completed.
+     */
+    private TickReport solve(List<PendingRide> rides, List<Long> claimed)
+    {
+        List<List<DriverMatch>> candidates = new ArrayList<>(rides.size());
+        Map<Long, Integer> columnOfDriver = new HashMap<>();
+        for (PendingRide ride : rides)
+        {
+            List<DriverMatch> matches = matchingService.match(ride.request);
+            candidates.add(matches);
+            matches.forEach(match -> columnOfDriver.putIfAbsent(match.getDriverId(), columnOfDriver.size()));
+        }
+
+        double[][] scores = new double[rides.size()][columnOfDriver.size()];
+        for (int row = 0; row < rides.size(); row++)
+        {
+            Arrays.fill(scores[row], Double.NaN);
+            for (DriverMatch match : candidates.get(row))
+            {
+                scores[row][columnOfDriver.get(match.getDriverId())] = match.getScore();
+            }
+        }
+        int[] assignment = HungarianAssignment.maximize(scores);
+
+        DriverMatch[] assigned = new DriverMatch[rides.size()];
+        int optimalAssignments = 0;
+        double optimalScore = 0;
+        for (int row = 0; row < rides.size(); row++)
+        {
+            if (assignment[row] != HungarianAssignment.UNASSIGNED)
+            {
+                optimalAssignments++;
+                optimalScore += scores[row][assignment[row]];
+                int column = assignment[row];
+                DriverMatch match = candidates.get(row).stream()
+                    .filter(candidate -> columnOfDriver.get(candidate.getDriverId()) == column)
+                    .findFirst()
+                    .orElse(null);
+                if (match != null && matchingService.claim(match.getDriverId()))
+                {
+                    claimed.add(match.getDriverId());
+                    assigned[row] = match;
+                }
+            }
+        }
+        // claimed by a request of another cell in the meantime, fall back to the next candidate that is still free
+        for (int row = 0; row < rides.size(); row++)
+        {
+            if (assigned[row] == null)
+            {
+                for (DriverMatch candidate : candidates.get(row))
+                {
+                    if (matchingService.claim(candidate.getDriverId()))
+                    {
+                        claimed.add(candidate.getDriverId());
+                        assigned[row] = candidate;
+                        break;
+                    }
+                }
+            }
+        }
+
+        double[] greedy = greedy(scores);
+        int assignedCount = 0;
+        for (int row = 0; row < rides.size(); row++)
+        {
+            if (assigned[row] != null)
+            {
+                assignedCount++;
+            }
+            rides.get(row).result.complete(Optional.ofNullable(assigned[row]));
+        }
+        return new TickReport(rides.size(), assignedCount, optimalAssignments, optimalScore, (int) greedy[0], greedy[1], 0);
+    }
+
+
+    /**
+     * Baseline for the assignment quality: pairs taken in descending score order while row and column are free.
+     *
+     * @return number of assigned rows and their total score
+     */
+    private static double[] greedy(double[][] scores)
+    {
+        List<int[]> pairs = new ArrayList<>();
+        for (int row = 0; row < scores.length; row++)
+        {
+            for (int column = 0; column < scores[row].length; column++)
+            {
+                if (!Double.isNaN(scores[row][column]))
+                {
+                    pairs.add(new int[] {row, column});
+                }
+            }
+        }
+        pairs.sort(Comparator.comparingDouble(pair -> -scores[pair[0]][pair[1]]));
+        boolean[] rowTaken = new boolean[scores.length];
+        boolean[] columnTaken = new boolean[scores.length == 0 ? 0 : scores[0].length];
+        double[] result = new double[2];
+        for (int[] pair : pairs)
+        {
+            if (!rowTaken[pair[0]] && !columnTaken[pair[1]])
+            {
+                rowTaken[pair[0]] = true;
+                columnTaken[pair[1]] = true;
+                result[0]++;
+                result[1] += scores[pair[0]][pair[1]];
+            }
+        }
+        return result;
+    }
+
+
+    private long cellOf(RideRequest request)
+    {
+        long row = (long) Math.floor((request.getLatitude() + 90d) / cellSizeDegrees);
+        long column = (long) Math.floor((request.getLongitude() + 180d) / cellSizeDegrees);
+        return row * (long) Math.ceil(360d / cellSizeDegrees) + column;
+    }
+
+
+    private static TickReport join(Future<TickReport> result)
+    {
+        try
+        {
+            return result.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while dispatching", e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new IllegalStateException("Dispatching a cell failed", e.getCause());
+        }
+    }
+
+
+    private static final class PendingRide
+    {
+        private final RideRequest request;
+        private final CompletableFuture<Optional<DriverMatch>> result = new CompletableFuture<>();
+
+
+        private PendingRide(RideRequest request)
+        {
+            this.request = request;
+        }
+    }
+
+
+    /**
+     * Outcome of one tick. The optimal and greedy figures are those of the assignment before claiming, the greedy one
+     * is what matching the requests one by one with the best free driver would have achieved.
+     */
+    public static final class TickReport
+    {
+        private final int requests;
+        private final int assigned;
+        private final int optimalAssignments;
+        private final double optimalScore;
+        private final int greedyAssignments;
+        private final double greedyScore;
+        private final long solveNanos;
+
+
+        TickReport(
+            int requests, int assigned, int optimalAssignments, double optimalScore, int greedyAssignments, double greedyScore,
+            long solveNanos)
+        {
+            this.requests = requests;
+            this.assigned = assigned;
+            this.optimalAssignments = optimalAssignments;
+            this.optimalScore = optimalScore;
+            this.greedyAssignments = greedyAssignments;
+            this.greedyScore = greedyScore;
+            this.solveNanos = solveNanos;
+        }
+
+
+        private TickReport plus(TickReport other)
+        {
+            return new TickReport(
+                requests + other.requests, assigned + other.assigned, optimalAssignments + other.optimalAssignments,
+                optimalScore + other.optimalScore, greedyAssignments + other.greedyAssignments, greedyScore + other.greedyScore,
+                solveNanos + other.solveNanos);
+        }
+
+
+        public int getRequests()
+        {
+            return requests;
+        }
+
+
+        public int getAssigned()
+        {
+            return assigned;
+        }
+
+
+        public int getOptimalAssignments()
+        {
+            return optimalAssignments;
+        }
+
+
+        public double getOptimalScore()
+        {
+            return optimalScore;
+        }
+
+
+        public int getGreedyAssignments()
+        {
+            return greedyAssignments;
+        }
+
+
+        public double getGreedyScore()
+        {
+            return greedyScore;
+        }
+
+
+        public long getSolveNanos()
+        {
+            return solveNanos;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.freenow.service.matching;
+
+import com.freenow.domainobject.CarDO;
+import com.freenow.domainobject.DriverDO;
+import com.freenow.domainvalue.DriverMatch;
+import com.freenow.domainvalue.DriverUpdate;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.domainvalue.RideRequest;
+import com.freenow.exception.EntityNotFoundException;
+import com.freenow.service.car.CarService;
+import com.freenow.service.car.CarUpdateEvent;
+import com.freenow.service.driver.DriverService;
+import com.freenow.service.driver.DriverUpdateEvent;
+import com.freenow.service.geo.GeoGridIndex;
+import com.freenow.service.geo.Neighbour;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matches ride requests with available drivers from memory only: candidates come from the location index of ONLINE
+ * drivers, their car attributes from a table of driver profiles that is kept up to date by the driver and car update
+ * events, so a match never queries the database.
+ * <p/>
+ * Only the {@code matching.candidate-pool-size} closest candidates are scored. If too few of them fulfill the
+ * requirements of the request, the pool grows until enough do or it covers all candidates within the radius.
+ * <p/>
+ * Drivers handed out by dispatch are claimed and left out of matches until the claim is released or expires. A claim
+ * is released explicitly when the ride is over and with every status update of the driver.
+ */
+@Service
+public class DefaultMatchingService implements MatchingService
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(DefaultMatchingService.class);
+
+    private static final Comparator<DriverMatch> BEST_FIRST = Comparator.comparingDouble(DriverMatch::getScore).reversed()
+        .thenComparingDouble(DriverMatch::getDistanceKm);
+
+    // growth of the candidate pool while too few candidates fulfill the requirements
+    private static final int POOL_GROWTH = 4;
+
+    private final Map<Long, DriverProfile> profiles = new ConcurrentHashMap<>();
+    private final Map<Long, Long> claimedUntil = new ConcurrentHashMap<>();
+    private final DriverService driverService;
+    private final CarService carService;
+    private final GeoGridIndex locationIndex;
+    private final MatchScorer scorer;
+    private final int candidatePoolSize;
+    private final long claimMillis;
+
+
+    public DefaultMatchingService(
+        DriverService driverService, CarService carService, GeoGridIndex locationIndex, MatchScorer scorer,
+        MeterRegistry meterRegistry, @Value("${matching.candidate-pool-size:50}") int candidatePoolSize,
+        @Value("${matching.claim-seconds:30}") long claimSeconds)
+    {
+        this.driverService = driverService;
+        this.carService = carService;
+        this.locationIndex = locationIndex;
+        this.scorer = scorer;
+        this.candidatePoolSize = candidatePoolSize;
+        this.claimMillis = TimeUnit.SECONDS.toMillis(claimSeconds);
+        meterRegistry.gaugeMapSize("matching.profiles", Tags.empty(), profiles);
+    }
+
+
+    /**
+     * Fills the profiles of all ONLINE drivers with a selected car once the application is up.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadProfiles()
+    {
+        for (DriverDO driverDO : driverService.find(OnlineStatus.ONLINE))
+        {
+            CarDO carDO = driverDO.getCarDO();
+            if (!Boolean.TRUE.equals(driverDO.getDeleted()) && carDO != null)
+            {
+                profiles.put(driverDO.getId(), DriverProfile.of(driverDO.getId(), carDO));
+            }
+        }
+        LOG.info("Matching loaded with {} available drivers", profiles.size());
+    }
+
+
+    /**
+     * Finds the best ranked available drivers for a ride.
+     *
+     * @param request
+     * @return at most {@link RideRequest#getLimit()} matches, capped at {@value #MAX_MATCHES}, best first
+     */
+    @Override
+    @Timed("matching.service")
+    public List<DriverMatch> match(RideRequest request)
+    {
+        int limit = Math.min(request.getLimit(), MAX_MATCHES);
+        if (limit <= 0 || profiles.isEmpty())
+        {
+            return new ArrayList<>();
+        }
+        int poolSize = Math.max(limit, candidatePoolSize);
+        while (true)
+        {
+            List<Neighbour> candidates = locationIndex.nearest(request.getLatitude(), request.getLongitude(), request.getRadiusKm(), poolSize);
+            List<DriverMatch> matches = rank(request, candidates, limit);
+            if (matches.size() == limit || candidates.size() < poolSize || poolSize > Integer.MAX_VALUE / POOL_GROWTH)
+            {
+                return matches;
+            }
+            poolSize *= POOL_GROWTH;
+        }
+    }
+
+
+    /**
+     * Claims an available driver for a dispatched ride, a compare-and-set so a driver is never handed out twice.
+     *
+     * @return false if the driver is not available or claimed already
+     */
+    @Override
+    public boolean claim(long driverId)
+    {
+        if (!profiles.containsKey(driverId))
+        {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        boolean[] claimed = {false};
+        claimedUntil.compute(driverId, (id, until) -> {
+            if (until != null && until > now)
+            {
+                return until;
+            }
+            claimed[0] = true;
+            return now + claimMillis;
+        });
+        return claimed[0];
+    }
+
+
+    /**
+     * Makes a claimed driver available for matches again.
+     */
+    @Override
+    public void release(long driverId)
+    {
+        claimedUntil.remove(driverId);
+    }
+
+
+    @Override
+    public int size()
+    {
+        return profiles.size();
+    }
+
+
+    /**
+     * Status updates add, replace or drop the profile of the driver and release its claim: the driver went offline,
+     * was deleted or changed its car. Runs after commit, so rolled back changes never show up in matches.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDriverUpdate(DriverUpdateEvent event)
+    {
+        for (DriverUpdate update : event.getUpdates())
+        {
+            if (update.hasStatus())
+            {
+                release(update.getDriverId());
+                applyStatus(update);
+            }
+        }
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarUpdate(CarUpdateEvent event)
+    {
+        CarDO carDO = event.getCarDO();
+        for (DriverProfile profile : profiles.values())
+        {
+            if (profile.getCarId() == event.getCarId())
+            {
+                if (carDO == null)
+                {
+                    profiles.remove(profile.getDriverId(), profile);
+                }
+                else
+                {
+                    profiles.replace(profile.getDriverId(), profile, DriverProfile.of(profile.getDriverId(), carDO));
+                }
+            }
+        }
+    }
+
+
+    private void applyStatus(DriverUpdate update)
+    {
+        long driverId = update.getDriverId();
+        if (update.getOnlineStatus() != OnlineStatus.ONLINE || Boolean.TRUE.equals(update.getDeleted()) || update.getCarId() == null)
+        {
+            profiles.remove(driverId);
+            return;
+        }
+        try
+        {
+            profiles.put(driverId, DriverProfile.of(driverId, carService.find(update.getCarId())));
+        }
+        catch (EntityNotFoundException e)
+        {
+            LOG.warn("Car {} of driver {} does not exist anymore", update.getCarId(), driverId);
+            profiles.remove(driverId);
+        }
+    }
+
+
+    private boolean isClaimed(long driverId)
+    {
+        if (claimedUntil.isEmpty())
+        {
+            return false;
+        }
+        Long until = claimedUntil.get(driverId);
+        if (until == null)
+        {
+            return false;
+        }
+        if (until > System.currentTimeMillis())
+        {
+            return true;
+        }
+        claimedUntil.remove(driverId, until);
+        return false;
+    }
+
+
+    private List<DriverMatch> rank(RideRequest request, List<Neighbour> candidates, int limit)
+    {
+        PriorityQueue<DriverMatch> best = new PriorityQueue<>(limit + 1, BEST_FIRST.reversed());
+        for (Neighbour candidate : candidates)
+        {
+            DriverProfile profile = profiles.get(candidate.getId());
+            if (profile == null || !profile.fulfills(request) || isClaimed(candidate.getId()))
+            {
+                continue;
+            }
+            double score = scorer.score(request, profile, candidate.getDistanceKm());
+            if (best.size() < limit || score > best.peek().getScore())
+            {
+                best.add(new DriverMatch(
+                    profile.getDriverId(), profile.getCarId(), candidate.getLatitude(), candidate.getLongitude(),
+                    candidate.getDistanceKm(), score));
+                if (best.size() > limit)
+                {
+                    best.poll();
+                }
+            }
+        }
+        List<DriverMatch> matches = new ArrayList<>(best);
+        matches.sort(BEST_FIRST);
+        return matches;
+    }
+}
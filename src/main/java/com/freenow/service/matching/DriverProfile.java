@@ -0,0 +1,88 @@
+package com.freenow.service.matching;
+
+import com.freenow.domainobject.CarDO;
+import com.freenow.domainvalue.RideRequest;
+
+/**
+ * Immutable copy of the attributes of an available driver and the selected car that matching needs, so a match
+ * never touches entities or the database.
+ * <p/>
+ */
+public final class DriverProfile
+{
+    private final long driverId;
+    private final long carId;
+    private final int seatCount;
+    private final boolean convertible;
+    private final double rating;
+    private final String engineType;
+
+
+    public DriverProfile(long driverId, long carId, int seatCount, boolean convertible, double rating, String engineType)
+    {
+        this.driverId = driverId;
+        this.carId = carId;
+        this.seatCount = seatCount;
+        this.convertible = convertible;
+        this.rating = rating;
+        this.engineType = engineType;
+    }
+
+
+    public static DriverProfile of(long driverId, CarDO carDO)
+    {
+        return new DriverProfile(
+            driverId,
+            carDO.getId(),
+            carDO.getSeatCount() != null ? carDO.getSeatCount() : 0,
+            Boolean.TRUE.equals(carDO.getConvertible()),
+            carDO.getRatingScore() != null ? carDO.getRatingScore() : 0,
+            carDO.getEngineType());
+    }
+
+
+    /**
+     * @return true if the car fulfills the hard requirements of the request
+     */
+    public boolean fulfills(RideRequest request)
+    {
+        return (request.getSeatCount() == null || seatCount >= request.getSeatCount())
+            && (request.getConvertible() == null || convertible == request.getConvertible());
+    }
+
+
+    public long getDriverId()
+    {
+        return driverId;
+    }
+
+
+    public long getCarId()
+    {
+        return carId;
+    }
+
+
+    public int getSeatCount()
+    {
+        return seatCount;
+    }
+
+
+    public boolean isConvertible()
+    {
+        return convertible;
+    }
+
+
+    public double getRating()
+    {
+        return rating;
+    }
+
+
+    public String getEngineType()
+    {
+        return engineType;
+    }
+}
@@ -0,0 +1,141 @@
+package com.freenow.service.matching;
+
+import java.util.Arrays;
+
+/**
+ * Optimal assignment of rows to columns with the Hungarian method in O(n² m) for n rows and m columns.
+ * <p/>
+ * Pairs without a score can not be assigned. The solution assigns as many rows as possible and, among those, has the
+ * highest total score; every row gets a dummy column of its own, so rows without any feasible pair stay unassigned.
+ */
+public final class HungarianAssignment
+{
+
+    public static final int UNASSIGNED = -1;
+
+
+    private HungarianAssignment()
+    {
+    }
+
+
+    /**
+     * @param scores scores by row and column, {@link Double#NaN} for pairs that can not be assigned
+     * @return the assigned column by row, {@link #UNASSIGNED} for rows without a column
+     */
+    public static int[] maximize(double[][] scores)
+    {
+        int rows = scores.length;
+        int[] assignment = new int[rows];
+        Arrays.fill(assignment, UNASSIGNED);
+        if (rows == 0)
+        {
+            return assignment;
+        }
+        int columns = scores[0].length;
+
+        double minScore = Double.POSITIVE_INFINITY;
+        double maxScore = Double.NEGATIVE_INFINITY;
+        for (double[] row : scores)
+        {
+            for (double score : row)
+            {
+                if (!Double.isNaN(score))
+                {
+                    minScore = Math.min(minScore, score);
+                    maxScore = Math.max(maxScore, score);
+                }
+            }
+        }
+        if (minScore == Double.POSITIVE_INFINITY)
+        {
+            return assignment;
+        }
+        // every assigned pair outweighs any score difference, so more assigned rows always win
+        double bonus = rows * (maxScore - minScore) + Math.abs(minScore) + 1d;
+        // worse than any dummy column, of which there is always one left
+        double infeasible = 1d;
+
+        // 1-based as in the textbook formulation, column 0 is the virtual start
+        int width = columns + rows;
+        double[] u = new double[rows + 1];
+        double[] v = new double[width + 1];
+        int[] rowOfColumn = new int[width + 1];
+        int[] way = new int[width + 1];
+        double[] minSlack = new double[width + 1];
+        boolean[] used = new boolean[width + 1];
+        for (int row = 1; row <= rows; row++)
+        {
+            rowOfColumn[0] = row;
+            int column0 = 0;
+            Arrays.fill(minSlack, Double.POSITIVE_INFINITY);
+            Arrays.fill(used, false);
+            do
+            {
+                used[column0] = true;
+                int row0 = rowOfColumn[column0];
+                double delta = Double.POSITIVE_INFINITY;
+                int column1 = 0;
+                for (int column = 1; column <= width; column++)
+                {
+                    if (!used[column])
+                    {
+                        double slack = cost(scores, row0 - 1, column - 1, columns, bonus, infeasible) - u[row0] - v[column];
+                        if (slack < minSlack[column])
+                        {
+                            minSlack[column] = slack;
+                            way[column] = column0;
+                        }
+                        if (minSlack[column] < delta)
+                        {
+                            delta = minSlack[column];
+                            column1 = column;
+                        }
+                    }
+                }
+                for (int column = 0; column <= width; column++)
+                {
+                    if (used[column])
+                    {
+                        u[rowOfColumn[column]] += delta;
+                        v[column] -= delta;
+                    }
+                    else
+                    {
+                        minSlack[column] -= delta;
+                    }
+                }
+                column0 = column1;
+            }
+            while (rowOfColumn[column0] != 0);
+            do
+            {
+                int column1 = way[column0];
+                rowOfColumn[column0] = rowOfColumn[column1];
+                column0 = column1;
+            }
+            while (column0 != 0);
+        }
+
+        for (int column = 1; column <= columns; column++)
+        {
+            int row = rowOfColumn[column];
+            if (row != 0 && !Double.isNaN(scores[row - 1][column - 1]))
+            {
+                assignment[row - 1] = column - 1;
+            }
+        }
+        return assignment;
+    }
+
+
+    private static double cost(double[][] scores, int row, int column, int columns, double bonus, double infeasible)
+    {
+        if (column >= columns)
+        {
+            return 0d;
+        }
+        double score = scores[row][column];
+        return Double.isNaN(score) ? infeasible : -(score + bonus);
+    }
+}
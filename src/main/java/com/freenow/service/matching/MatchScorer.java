@@ -0,0 +1,16 @@
+package com.freenow.service.matching;
+
+import com.freenow.domainvalue.RideRequest;
+
+/**
+ * Ranks the candidates of a ride request, a higher score is a better match. Only called for candidates within the
+ * radius that fulfill the hard requirements of the request.
+ * <p/>
+ * Scorers are called for every candidate of every match, so they must be cheap and must not block. Declare a
+ * {@code @Primary} bean of this type to replace {@link WeightedMatchScorer}.
+ */
+@FunctionalInterface
+public interface MatchScorer
+{
+    double score(RideRequest request, DriverProfile profile, double distanceKm);
+}
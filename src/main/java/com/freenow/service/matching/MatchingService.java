@@ -0,0 +1,20 @@
+package com.freenow.service.matching;
+
+import com.freenow.domainvalue.DriverMatch;
+import com.freenow.domainvalue.RideRequest;
+
+import java.util.List;
+
+public interface MatchingService
+{
+
+    int MAX_MATCHES = 100;
+
+    List<DriverMatch> match(RideRequest request);
+
+    boolean claim(long driverId);
+
+    void release(long driverId);
+
+    int size();
+}
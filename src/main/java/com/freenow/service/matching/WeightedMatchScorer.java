@@ -0,0 +1,47 @@
+package com.freenow.service.matching;
+
+import com.freenow.domainvalue.RideRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Weighted sum of the closeness to the pickup point, the car rating and the preferred engine type, each normalized to
+ * [0, 1]: a driver at the pickup point scores the full distance weight, one at the edge of the radius nothing. Car
+ * ratings are free-form numbers, the configured maximum rating scores the full rating weight.
+ */
+@Component
+public class WeightedMatchScorer implements MatchScorer
+{
+
+    private final double distanceWeight;
+    private final double ratingWeight;
+    private final double engineTypeWeight;
+    private final double maxRating;
+
+
+    public WeightedMatchScorer(
+        @Value("${matching.weight.distance:1.0}") double distanceWeight,
+        @Value("${matching.weight.rating:0.3}") double ratingWeight,
+        @Value("${matching.weight.engine-type:0.2}") double engineTypeWeight,
+        @Value("${matching.max-rating:100}") double maxRating)
+    {
+        if (maxRating <= 0)
+        {
+            throw new IllegalArgumentException("maxRating must be positive: " + maxRating);
+        }
+        this.distanceWeight = distanceWeight;
+        this.ratingWeight = ratingWeight;
+        this.engineTypeWeight = engineTypeWeight;
+        this.maxRating = maxRating;
+    }
+
+
+    @Override
+    public double score(RideRequest request, DriverProfile profile, double distanceKm)
+    {
+        double closeness = request.getRadiusKm() > 0 ? 1d - Math.min(1d, distanceKm / request.getRadiusKm()) : 1d;
+        double rating = Math.max(0d, Math.min(1d, profile.getRating() / maxRating));
+        double engineType = request.getEngineType() != null && request.getEngineType().equalsIgnoreCase(profile.getEngineType()) ? 1d : 0d;
+        return distanceWeight * closeness + ratingWeight * rating + engineTypeWeight * engineType;
+    }
+}
@@ -0,0 +1,67 @@
+package com.freenow.util;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+
+/**
+ * Binary encodings of the REST payloads next to JSON, picked by the {@code Accept} and {@code Content-Type} headers.
+ * <p/>
+ * CBOR and Smile encode the same Jackson model as JSON, so the transfer objects need no schema of their own. The
+ * converters share the configuration of the JSON object mapper and come after the JSON converter, so clients that do
+ * not ask for a binary type keep getting JSON.
+ */
+@Configuration
+public class BinaryFormatConfiguration
+{
+
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+
+
+    /**
+     * @param accept value of the {@code Accept} header, may be null
+     * @return true if JSON is the most specific type the client accepts, also for a missing header or wildcards
+     */
+    public static boolean prefersJson(String accept)
+    {
+        if (!StringUtils.hasText(accept))
+        {
+            return true;
+        }
+        try
+        {
+            List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+            MediaType.sortBySpecificityAndQuality(mediaTypes);
+            return mediaTypes.isEmpty() || mediaTypes.get(0).includes(MediaType.APPLICATION_JSON);
+        }
+        catch (InvalidMediaTypeException e)
+        {
+            // left to the content negotiation to reject
+            return false;
+        }
+    }
+
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder objectMapperBuilder)
+    {
+        return new MappingJackson2CborHttpMessageConverter(objectMapperBuilder.createXmlMapper(false).factory(new CBORFactory()).build());
+    }
+
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder objectMapperBuilder)
+    {
+        return new MappingJackson2SmileHttpMessageConverter(objectMapperBuilder.createXmlMapper(false).factory(new SmileFactory()).build());
+    }
+}
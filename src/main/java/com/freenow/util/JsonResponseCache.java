@@ -0,0 +1,250 @@
+package com.freenow.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Cache of the encoded JSON representation of single entities, served without mapping and serializing them again.
+ * <p/>
+ * Every entry carries an ETag derived from its bytes, so clients sending it back with {@code If-None-Match} get a 304
+ * without a body as long as the representation is unchanged. The services invalidate entries when they change an
+ * entity; a load that overlaps with an invalidation of the same entity is served but not cached, so it can not put an
+ * old representation back. Changes made elsewhere, by other application instances for example, are picked up once the
+ * entry expires.
+ */
+@Component
+public class JsonResponseCache
+{
+
+    private final boolean enabled;
+    private final ObjectMapper objectMapper;
+    private final Cache<Key, Entry> entries;
+    // one token per key that is being loaded, an invalidation removes it so the load is not cached
+    private final Map<Key, Object> loading = new ConcurrentHashMap<>();
+
+
+    public JsonResponseCache(
+        ObjectMapper objectMapper,
+        MeterRegistry meterRegistry,
+        @Value("${web.response-cache.enabled:true}") boolean enabled,
+        @Value("${web.response-cache.maximum-size:10000}") long maximumSize,
+        @Value("${web.response-cache.time-to-live-seconds:60}") long timeToLiveSeconds)
+    {
+        this.enabled = enabled;
+        this.objectMapper = objectMapper;
+        this.entries = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(Duration.ofSeconds(timeToLiveSeconds))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, "jsonResponses");
+    }
+
+
+    /**
+     * @param type   entity type the representation belongs to
+     * @param loader loads the transfer object of the entity, only called if the entry is not cached
+     * @return the encoded representation
+     */
+    public <E extends Exception> Entry get(Class<?> type, long id, Loader<E> loader) throws E
+    {
+        if (!enabled)
+        {
+            return encode(loader.load());
+        }
+        Key key = new Key(type, id);
+        Entry entry = entries.getIfPresent(key);
+        if (entry != null)
+        {
+            return entry;
+        }
+        Object token = new Object();
+        loading.put(key, token);
+        try
+        {
+            Entry loaded = encode(loader.load());
+            // cached only if the key was not invalidated meanwhile, atomically with respect to the invalidation
+            loading.computeIfPresent(key, (k, current) -> {
+                if (current == token)
+                {
+                    entries.asMap().putIfAbsent(key, loaded);
+                    return null;
+                }
+                return current;
+            });
+            return loaded;
+        }
+        finally
+        {
+            loading.remove(key, token);
+        }
+    }
+
+
+    /**
+     * Invalidates the entry now and, inside a transaction, once more after commit so a concurrent load can not put the
+     * state from before the commit back.
+     */
+    public void invalidate(Class<?> type, long id)
+    {
+        invalidate(type, Collections.singletonList(id));
+    }
+
+
+    public void invalidate(Class<?> type, Collection<Long> ids)
+    {
+        if (ids.isEmpty())
+        {
+            return;
+        }
+        List<Key> keys = ids.stream().map(id -> new Key(type, id)).collect(Collectors.toList());
+        evict(() -> {
+            keys.forEach(loading::remove);
+            entries.invalidateAll(keys);
+        });
+    }
+
+
+    /**
+     * Invalidates all entries of the type, for changes of entities that are embedded in the representation of others.
+     */
+    public void invalidateAll(Class<?> type)
+    {
+        evict(() -> {
+            loading.keySet().removeIf(key -> key.type == type);
+            entries.asMap().keySet().removeIf(key -> key.type == type);
+        });
+    }
+
+
+    /**
+     * The eviction has to drop the loading tokens before the entries, so a load finishing in between is either not
+     * cached or its entry is evicted.
+     */
+    private void evict(Runnable eviction)
+    {
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    eviction.run();
+                }
+            });
+        }
+    }
+
+
+    private Entry encode(Object value)
+    {
+        try
+        {
+            return new Entry(objectMapper.writeValueAsBytes(value));
+        }
+        catch (JsonProcessingException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    @FunctionalInterface
+    public interface Loader<E extends Exception>
+    {
+        Object load() throws E;
+    }
+
+
+    public static final class Entry
+    {
+        private final byte[] json;
+        private final String eTag;
+
+
+        Entry(byte[] json)
+        {
+            this.json = json;
+            this.eTag = "\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+        }
+
+
+        public String getETag()
+        {
+            return eTag;
+        }
+
+
+        /**
+         * The bytes are written to the response as they are, a matching {@code If-None-Match} turns it into a 304.
+         */
+        public ResponseEntity<byte[]> toResponse()
+        {
+            return ResponseEntity.ok()
+                .eTag(eTag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(json.length)
+                .body(json);
+        }
+    }
+
+
+    private static final class Key
+    {
+        private final Class<?> type;
+        private final long id;
+
+
+        Key(Class<?> type, long id)
+        {
+            this.type = type;
+            this.id = id;
+        }
+
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+            if (!(o instanceof Key))
+            {
+                return false;
+            }
+            Key key = (Key) o;
+            return id == key.id && type == key.type;
+        }
+
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(type, id);
+        }
+    }
+}
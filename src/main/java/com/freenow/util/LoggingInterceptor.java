@@ -1,33 +1,147 @@
 package com.freenow.util;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import org.apache.juli.logging.Log;
-import org.apache.juli.logging.LogFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
 import org.springframework.web.servlet.AsyncHandlerInterceptor;
 
+/**
+ * Writes one structured line per request: method, uri, status, remote address and latency.
+ * <p/>
+ * Failed requests (an exception or a status of 400 and above) are always logged. Successful requests are logged with
+ * the configured sample rate and not at all for error-only paths. The line is rendered into a per-thread buffer and
+ * handed to the asynchronous request log appender (see logback-spring.xml), so the request thread never waits for I/O.
+ */
+@Component
 public class LoggingInterceptor implements AsyncHandlerInterceptor
 {
-    private static final Log LOG = LogFactory.getLog(LoggingInterceptor.class);
+    private static final Logger LOG = LoggerFactory.getLogger(LoggingInterceptor.class);
+
+    private static final String START_ATTRIBUTE = LoggingInterceptor.class.getName() + ".start";
+
+    // buffers that grew on an unusually long uri are dropped instead of being kept per thread forever
+    private static final int MAX_RETAINED_BUFFER = 4096;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private final PathMatcher pathMatcher = new AntPathMatcher();
+    private final double sampleRate;
+    private final List<String> errorOnlyPaths;
+
+
+    /**
+     * @param sampleRate     share of successful requests to log, between 0 and 1
+     * @param errorOnlyPaths comma separated ant patterns of paths where only failed requests are logged
+     */
+    public LoggingInterceptor(
+        @Value("${logging.request.sample-rate:1.0}") double sampleRate,
+        @Value("${logging.request.error-only-paths:}") String errorOnlyPaths)
+    {
+        this.sampleRate = Math.max(0, Math.min(1, sampleRate));
+        this.errorOnlyPaths = Arrays.stream(errorOnlyPaths.split(","))
+            .map(String::trim)
+            .filter(path -> !path.isEmpty())
+            .collect(Collectors.toList());
+    }
+
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+    {
+        // async requests are dispatched twice, the latency is measured from the first dispatch
+        if (request.getAttribute(START_ATTRIBUTE) == null)
+        {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+        return true;
+    }
 
 
     @Override
     public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex)
     {
-        StringBuilder logMessage = new StringBuilder();
-        logMessage.append("method: ").append(request.getMethod()).append("\t");
-        logMessage.append("uri: ").append(request.getRequestURI()).append("\t");
-        logMessage.append("status: ").append(response.getStatus()).append("\t");
-        logMessage.append("remoteAddress: ").append(request.getRemoteAddr()).append("\t");
+        int status = response.getStatus();
+        boolean failed = ex != null || status >= 400;
+        if (failed ? !LOG.isWarnEnabled() : !LOG.isInfoEnabled() || !sampled(request.getRequestURI()))
+        {
+            return;
+        }
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        long latencyMicros = start instanceof Long ? (System.nanoTime() - (Long) start) / 1000 : 0;
+
+        StringBuilder logMessage = buffer();
+        logMessage.append("method=").append(request.getMethod());
+        logMessage.append(" uri=").append(request.getRequestURI());
+        logMessage.append(" status=").append(status);
+        logMessage.append(" remoteAddress=").append(request.getRemoteAddr());
+        logMessage.append(" latencyMs=").append(latencyMicros / 1000).append('.');
+        appendPadded(logMessage, latencyMicros % 1000);
+        String message = logMessage.toString();
 
         if (ex != null)
         {
-            LoggingInterceptor.LOG.error(logMessage.toString(), ex);
+            LOG.error(message, ex);
+        }
+        else if (status >= 500)
+        {
+            LOG.error(message);
+        }
+        else if (failed)
+        {
+            LOG.warn(message);
         }
         else
         {
-            LoggingInterceptor.LOG.info(logMessage.toString());
+            LOG.info(message);
+        }
+    }
+
+
+    private boolean sampled(String uri)
+    {
+        for (String errorOnlyPath : errorOnlyPaths)
+        {
+            if (pathMatcher.match(errorOnlyPath, uri))
+            {
+                return false;
+            }
+        }
+        return sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+
+    private static StringBuilder buffer()
+    {
+        StringBuilder buffer = BUFFER.get();
+        if (buffer.capacity() > MAX_RETAINED_BUFFER)
+        {
+            buffer = new StringBuilder(256);
+            BUFFER.set(buffer);
         }
+        buffer.setLength(0);
+        return buffer;
     }
 
+
+    private static void appendPadded(StringBuilder buffer, long fraction)
+    {
+        if (fraction < 100)
+        {
+            buffer.append('0');
+        }
+        if (fraction < 10)
+        {
+            buffer.append('0');
+        }
+        buffer.append(fraction);
+    }
 }
@@ -0,0 +1,50 @@
+package com.freenow.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.util.concurrent.ThreadPoolExecutor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+/**
+ * Opt-in execution mode serving the blocking REST endpoints from a bounded executor sized like the connection pool,
+ * see {@link OffloadingHandlerAdapter}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "web.offload.enabled", havingValue = "true")
+public class OffloadingConfiguration
+{
+
+    @Bean
+    public WebMvcRegistrations offloadingWebMvcRegistrations(
+        MeterRegistry meterRegistry,
+        @Value("${web.offload.pool-size:${spring.datasource.hikari.maximum-pool-size:10}}") int poolSize,
+        @Value("${web.offload.queue-capacity:1000}") int queueCapacity,
+        @Value("${web.offload.timeout-ms:30000}") long timeoutMs)
+    {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("web-offload-");
+        // the queue check before submitting can race, run on the container thread rather than failing then
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        ExecutorServiceMetrics.monitor(meterRegistry, executor.getThreadPoolExecutor(), "web.offload", Tags.empty());
+
+        return new WebMvcRegistrations()
+        {
+            @Override
+            public RequestMappingHandlerAdapter getRequestMappingHandlerAdapter()
+            {
+                return new OffloadingHandlerAdapter(executor, timeoutMs, "com.freenow.controller");
+            }
+        };
+    }
+}
@@ -0,0 +1,119 @@
+package com.freenow.util;
+
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.servlet.ServletResponse;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Runs blocking controller methods on a bounded executor instead of the servlet container thread.
+ * <p/>
+ * Arguments are still resolved on the container thread, only the controller call itself is handed to the executor as
+ * a {@link WebAsyncTask}, so the response is written by the usual return value handling once the result is there.
+ * Handlers that are asynchronous already or write to the raw response stay on the container thread. When the executor
+ * queue is full the request is rejected with 503 right away instead of queueing in the container.
+ */
+public class OffloadingHandlerAdapter extends RequestMappingHandlerAdapter implements DisposableBean
+{
+
+    private static final Class<?>[] ASYNC_RETURN_TYPES = {
+        Callable.class, WebAsyncTask.class, DeferredResult.class, CompletionStage.class, ResponseBodyEmitter.class,
+        StreamingResponseBody.class};
+    private static final Class<?>[] RAW_RESPONSE_TYPES = {ServletResponse.class, OutputStream.class, Writer.class};
+
+    private final ThreadPoolTaskExecutor executor;
+    private final long timeoutMs;
+    private final String basePackage;
+    private final Map<Method, Boolean> offloaded = new ConcurrentHashMap<>();
+
+
+    public OffloadingHandlerAdapter(ThreadPoolTaskExecutor executor, long timeoutMs, String basePackage)
+    {
+        this.executor = executor;
+        this.timeoutMs = timeoutMs;
+        this.basePackage = basePackage;
+    }
+
+
+    @Override
+    protected ServletInvocableHandlerMethod createInvocableHandlerMethod(HandlerMethod handlerMethod)
+    {
+        if (offloaded.computeIfAbsent(handlerMethod.getMethod(), method -> isOffloadable(handlerMethod)))
+        {
+            return new OffloadedHandlerMethod(handlerMethod);
+        }
+        return super.createInvocableHandlerMethod(handlerMethod);
+    }
+
+
+    @Override
+    public void destroy()
+    {
+        executor.shutdown();
+    }
+
+
+    private boolean isOffloadable(HandlerMethod handlerMethod)
+    {
+        if (!handlerMethod.getBeanType().getName().startsWith(basePackage))
+        {
+            return false;
+        }
+        Class<?> returnType = handlerMethod.getReturnType().getParameterType();
+        for (Class<?> asyncType : ASYNC_RETURN_TYPES)
+        {
+            if (asyncType.isAssignableFrom(returnType))
+            {
+                return false;
+            }
+        }
+        for (MethodParameter parameter : handlerMethod.getMethodParameters())
+        {
+            for (Class<?> rawType : RAW_RESPONSE_TYPES)
+            {
+                if (rawType.isAssignableFrom(parameter.getParameterType()))
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+
+    private class OffloadedHandlerMethod extends ServletInvocableHandlerMethod
+    {
+
+        OffloadedHandlerMethod(HandlerMethod handlerMethod)
+        {
+            super(handlerMethod);
+        }
+
+
+        @Override
+        protected Object doInvoke(Object... args)
+        {
+            if (executor.getThreadPoolExecutor().getQueue().remainingCapacity() == 0)
+            {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many requests waiting for the database");
+            }
+            return new WebAsyncTask<>(timeoutMs, executor, () -> OffloadedHandlerMethod.super.doInvoke(args));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.freenow.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Writes listings as one array element by element while the producer hands them over, so neither the entities nor the
+ * transfer objects of the whole listing are held in memory and the client receives the first elements right away.
+ * <p/>
+ * The encoding is negotiated like for the other endpoints, JSON unless the client prefers CBOR or Smile.
+ * <p/>
+ * The array is only closed once the producer is done. The status is already sent when the producer fails halfway, so
+ * the body is left unterminated for the client to notice that the listing is incomplete.
+ */
+@Component
+public class StreamingArrayWriter
+{
+
+    private final Map<MediaType, ObjectMapper> objectMappers = new LinkedHashMap<>();
+    private final int flushInterval;
+
+
+    public StreamingArrayWriter(
+        ObjectMapper objectMapper,
+        MappingJackson2CborHttpMessageConverter cborConverter,
+        MappingJackson2SmileHttpMessageConverter smileConverter,
+        @Value("${web.streaming.flush-interval:500}") int flushInterval)
+    {
+        objectMappers.put(MediaType.APPLICATION_JSON, objectMapper);
+        objectMappers.put(MediaType.APPLICATION_CBOR, cborConverter.getObjectMapper());
+        objectMappers.put(BinaryFormatConfiguration.APPLICATION_SMILE, smileConverter.getObjectMapper());
+        this.flushInterval = flushInterval;
+    }
+
+
+    /**
+     * @param accept   value of the {@code Accept} header, may be null
+     * @param type     element type
+     * @param producer hands the elements to the given sink one by one
+     * @throws HttpMediaTypeNotAcceptableException if the client accepts none of the supported encodings
+     */
+    public <T> void write(String accept, HttpServletResponse response, Class<T> type, Consumer<Consumer<T>> producer)
+        throws IOException, HttpMediaTypeNotAcceptableException
+    {
+        MediaType mediaType = negotiate(accept);
+        ObjectMapper objectMapper = objectMappers.get(mediaType);
+        ObjectWriter writer = objectMapper.writerFor(type).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        response.setContentType(mediaType.toString());
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream()))
+        {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            generator.writeStartArray();
+            int[] written = {0};
+            producer.accept(element -> {
+                try
+                {
+                    writer.writeValue(generator, element);
+                    if (++written[0] % flushInterval == 0)
+                    {
+                        generator.flush();
+                    }
+                }
+                catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+        }
+    }
+
+
+    private MediaType negotiate(String accept) throws HttpMediaTypeNotAcceptableException
+    {
+        List<MediaType> supported = new ArrayList<>(objectMappers.keySet());
+        if (!StringUtils.hasText(accept))
+        {
+            return MediaType.APPLICATION_JSON;
+        }
+        List<MediaType> accepted;
+        try
+        {
+            accepted = MediaType.parseMediaTypes(accept);
+        }
+        catch (InvalidMediaTypeException e)
+        {
+            throw new HttpMediaTypeNotAcceptableException(e.getMessage());
+        }
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType acceptedType : accepted)
+        {
+            for (MediaType supportedType : supported)
+            {
+                if (acceptedType.includes(supportedType))
+                {
+                    return supportedType;
+                }
+            }
+        }
+        throw new HttpMediaTypeNotAcceptableException(supported);
+    }
+}
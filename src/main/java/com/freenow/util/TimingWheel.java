@@ -0,0 +1,152 @@
+package com.freenow.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel for large numbers of deadlines that are pushed back much more often than they expire, like
+ * heartbeat timeouts.
+ * <p/>
+ * Scheduling and cancelling are O(1) and never touch other keys: a key is put into the bucket of its deadline and
+ * stale bucket entries of rescheduled or cancelled keys are dropped lazily once their bucket comes up. Advancing only
+ * visits the buckets of the elapsed ticks. Deadlines further out than one rotation stay in their bucket until the
+ * rotation they are due in. Deadlines are only precise to one tick.
+ * <p/>
+ * Scheduling and cancelling are thread safe, {@link #advance(long, Consumer)} is meant to be called by one thread at a
+ * time and is serialized.
+ */
+public class TimingWheel<K>
+{
+
+    private final long tickMillis;
+    private final List<Set<K>> buckets;
+    private final Map<K, Timeout> timeouts = new ConcurrentHashMap<>();
+
+    // last tick whose bucket was processed
+    private volatile long currentTick;
+
+
+    public TimingWheel(long tickMillis, int wheelSize, long nowMillis)
+    {
+        if (tickMillis <= 0 || wheelSize <= 0)
+        {
+            throw new IllegalArgumentException("tickMillis and wheelSize must be positive: " + tickMillis + ", " + wheelSize);
+        }
+        this.tickMillis = tickMillis;
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++)
+        {
+            buckets.add(ConcurrentHashMap.newKeySet());
+        }
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+
+    /**
+     * Schedules the key or moves its existing deadline. Deadlines in the past expire with the next tick.
+     */
+    public void schedule(K key, long deadlineMillis)
+    {
+        // the bucket of the first tick at or after the deadline, so the key is due whenever its bucket comes up
+        long tick = Math.max(Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis), currentTick + 1);
+        Timeout timeout = new Timeout(deadlineMillis, slot(tick));
+        timeouts.put(key, timeout);
+        buckets.get(timeout.slot).add(key);
+    }
+
+
+    /**
+     * @return true if the key was scheduled
+     */
+    public boolean cancel(K key)
+    {
+        return timeouts.remove(key) != null;
+    }
+
+
+    public boolean contains(K key)
+    {
+        return timeouts.containsKey(key);
+    }
+
+
+    public int size()
+    {
+        return timeouts.size();
+    }
+
+
+    /**
+     * Processes the buckets of all ticks up to the given time and hands every expired key to the consumer once.
+     *
+     * @return the number of expired keys
+     */
+    public synchronized int advance(long nowMillis, Consumer<K> expired)
+    {
+        long targetTick = nowMillis / tickMillis;
+        long elapsed = Math.min(targetTick - currentTick, buckets.size());
+        int count = 0;
+        for (long tick = targetTick - elapsed + 1; tick <= targetTick; tick++)
+        {
+            int slot = slot(tick);
+            Set<K> bucket = buckets.get(slot);
+            for (Iterator<K> keys = bucket.iterator(); keys.hasNext(); )
+            {
+                K key = keys.next();
+                Timeout timeout = timeouts.get(key);
+                if (timeout == null || timeout.slot != slot)
+                {
+                    keys.remove();
+                    readdIfRescheduled(key, slot, bucket);
+                }
+                else if (timeout.deadlineMillis <= nowMillis && timeouts.remove(key, timeout))
+                {
+                    keys.remove();
+                    readdIfRescheduled(key, slot, bucket);
+                    expired.accept(key);
+                    count++;
+                }
+            }
+        }
+        currentTick = Math.max(currentTick, targetTick);
+        return count;
+    }
+
+
+    /**
+     * A concurrent schedule into this bucket may have added the key just before it was removed.
+     */
+    private void readdIfRescheduled(K key, int slot, Set<K> bucket)
+    {
+        Timeout timeout = timeouts.get(key);
+        if (timeout != null && timeout.slot == slot)
+        {
+            bucket.add(key);
+        }
+    }
+
+
+    private int slot(long tick)
+    {
+        return (int) Math.floorMod(tick, (long) buckets.size());
+    }
+
+
+    private static final class Timeout
+    {
+        private final long deadlineMillis;
+        private final int slot;
+
+
+        private Timeout(long deadlineMillis, int slot)
+        {
+            this.deadlineMillis = deadlineMillis;
+            this.slot = slot;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.freenow.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free table of token buckets keyed by long, for rate limiting a large number of clients.
+ * <p/>
+ * Every bucket is a single long holding its theoretical arrival time, the time at which the bucket is full again (the
+ * generic cell rate algorithm, equivalent to a token bucket with the given rate and burst). Taking a permit is one CAS,
+ * so together with the key a tracked client costs 16 bytes per slot, about 32 bytes per key at the table's load. The
+ * slots are probed linearly from the hash of the key; a slot whose bucket is full again holds no state worth keeping and
+ * is taken over by the next new key. If all probed slots hold recently limited keys the request is let through and
+ * counted as overflow, the table never blocks and never grows.
+ * <p/>
+ * The slots are allocated on first use. Keys must not be 0.
+ */
+public class TokenBucketTable
+{
+
+    private static final int MAX_PROBES = 16;
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long EMPTY = 0;
+
+    private final int mask;
+    private final long intervalNanos;
+    private final long burstNanos;
+    // arrival times are relative to a point well before construction, so the zeroed slots hold full buckets
+    private final long origin = System.nanoTime() - TimeUnit.DAYS.toNanos(1);
+    private final AtomicLong overflows = new AtomicLong();
+
+    // key and theoretical arrival time relative to origin per slot, side by side
+    private volatile AtomicLongArray slots;
+
+
+    /**
+     * @param maxKeys           number of keys tracked at the same time
+     * @param permitsPerSecond  sustained rate per key
+     * @param burst             permits a key can take at once after being idle
+     */
+    public TokenBucketTable(int maxKeys, double permitsPerSecond, int burst)
+    {
+        if (maxKeys <= 0 || permitsPerSecond <= 0 || burst <= 0)
+        {
+            throw new IllegalArgumentException("maxKeys, permitsPerSecond and burst must be positive");
+        }
+        // twice as many slots as keys keeps the linear probes short
+        int slotCount = Integer.highestOneBit(Math.max(MAX_PROBES, maxKeys) * 2 - 1) << 1;
+        this.mask = slotCount - 1;
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.burstNanos = intervalNanos * burst;
+    }
+
+
+    /**
+     * Takes a permit of the key.
+     *
+     * @param nowNanos current {@link System#nanoTime()}
+     * @return 0 if the permit was taken, otherwise the nanoseconds until the next permit is available
+     */
+    public long tryAcquire(long key, long nowNanos)
+    {
+        if (key == EMPTY)
+        {
+            throw new IllegalArgumentException("key must not be 0");
+        }
+        AtomicLongArray table = slots();
+        long now = nowNanos - origin;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++)
+        {
+            int slot = find(table, key, now);
+            if (slot >= 0)
+            {
+                return acquire(table, slot, now);
+            }
+            if (slot == -1)
+            {
+                break;
+            }
+        }
+        overflows.incrementAndGet();
+        return 0;
+    }
+
+
+    /**
+     * Looks at the bucket of the key without taking a permit, so a permit can be checked against several tables before
+     * it is taken from any of them.
+     *
+     * @param nowNanos current {@link System#nanoTime()}
+     * @return 0 if a permit is available, otherwise the nanoseconds until the next permit is available
+     */
+    public long waitNanos(long key, long nowNanos)
+    {
+        if (key == EMPTY)
+        {
+            throw new IllegalArgumentException("key must not be 0");
+        }
+        AtomicLongArray table = slots();
+        long now = nowNanos - origin;
+        int start = (int) mix(key) & mask;
+        for (int probe = 0; probe < MAX_PROBES; probe++)
+        {
+            int slot = (start + probe) & mask;
+            long slotKey = table.get(slot << 1);
+            if (slotKey == key)
+            {
+                long wait = Math.max(table.get((slot << 1) + 1), now) + intervalNanos - now - burstNanos;
+                return Math.max(0, wait);
+            }
+            if (slotKey == EMPTY)
+            {
+                break;
+            }
+        }
+        // an untracked key has a full bucket
+        return 0;
+    }
+
+
+    /**
+     * @return number of requests let through because the probed slots were all taken
+     */
+    public long overflowCount()
+    {
+        return overflows.get();
+    }
+
+
+    /**
+     * @return the slot holding the key, taking over a free one for a new key; -1 if there is none, -2 if the slot
+     *     was taken concurrently and the lookup has to be repeated
+     */
+    private int find(AtomicLongArray table, long key, long now)
+    {
+        int start = (int) mix(key) & mask;
+        int free = -1;
+        long freeKey = EMPTY;
+        for (int probe = 0; probe < MAX_PROBES; probe++)
+        {
+            int slot = (start + probe) & mask;
+            long slotKey = table.get(slot << 1);
+            if (slotKey == key)
+            {
+                return slot;
+            }
+            if (free < 0 && (slotKey == EMPTY || table.get((slot << 1) + 1) <= now))
+            {
+                free = slot;
+                freeKey = slotKey;
+            }
+            if (slotKey == EMPTY)
+            {
+                // keys are never removed, none of them is probed behind an empty slot
+                break;
+            }
+        }
+        if (free < 0)
+        {
+            return -1;
+        }
+        // the bucket of a taken over slot is full already, the arrival time in the past is as good as none
+        return table.compareAndSet(free << 1, freeKey, key) ? free : -2;
+    }
+
+
+    private long acquire(AtomicLongArray table, int slot, long now)
+    {
+        int index = (slot << 1) + 1;
+        while (true)
+        {
+            long arrival = table.get(index);
+            long next = Math.max(arrival, now) + intervalNanos;
+            long wait = next - now - burstNanos;
+            if (wait > 0)
+            {
+                return wait;
+            }
+            if (table.compareAndSet(index, arrival, next))
+            {
+                return 0;
+            }
+        }
+    }
+
+
+    private AtomicLongArray slots()
+    {
+        AtomicLongArray table = slots;
+        if (table == null)
+        {
+            synchronized (this)
+            {
+                table = slots;
+                if (table == null)
+                {
+                    table = new AtomicLongArray((mask + 1) * 2);
+                    slots = table;
+                }
+            }
+        }
+        return table;
+    }
+
+
+    /**
+     * 64 bit finalizer of MurmurHash3, spreads sequential ids over the table.
+     */
+    static long mix(long key)
+    {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb53a85e10ca3L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
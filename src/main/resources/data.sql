@@ -27,23 +27,23 @@ insert into driver (id, date_created, deleted, online_status, password, username
 
 -- Create 1 OFFLINE driver with coordinate(longitude=9.5&latitude=55.954)
 
-insert into driver (id, coordinate, date_coordinate_updated, date_created, deleted, online_status, password, username)
+insert into driver (id, latitude, longitude, date_coordinate_updated, date_created, deleted, online_status, password, username)
 values
  (7,
- 'aced0005737200226f72672e737072696e676672616d65776f726b2e646174612e67656f2e506f696e7431b9e90ef11a4006020002440001784400017978704023000000000000404bfa1cac083127', now(), now(), false, 'OFFLINE',
+ 55.954, 9.5, now(), now(), false, 'OFFLINE',
 'driver07pw', 'driver07');
 
 -- Create 1 ONLINE driver with coordinate(longitude=9.5&latitude=55.954)
 
-insert into driver (id, coordinate, date_coordinate_updated, date_created, deleted, online_status, password, username)
+insert into driver (id, latitude, longitude, date_coordinate_updated, date_created, deleted, online_status, password, username)
 values
  (8,
- 'aced0005737200226f72672e737072696e676672616d65776f726b2e646174612e67656f2e506f696e7431b9e90ef11a4006020002440001784400017978704023000000000000404bfa1cac083127', now(), now(), false, 'ONLINE',
+ 55.954, 9.5, now(), now(), false, 'ONLINE',
 'driver08pw', 'driver08');
 
 
-insert into car (id,date_created, license_plate, seat_count, convertible, rating, engine_type)
-values (1,now(), '20 ABC 11', 4, false, 12, 'electric');
+insert into car (id, date_created, license_plate, seat_count, convertible, rating, rating_score, engine_type, version)
+values (1, now(), '20 ABC 11', 4, false, 12, 12, 'electric', 0);
 
-insert into car (id, date_created,license_plate, seat_count, convertible, rating, engine_type)
-values (2,now(), '10 KMK 22', 2, true, 33, 'diesel');
+insert into car (id, date_created, license_plate, seat_count, convertible, rating, rating_score, engine_type, version)
+values (2, now(), '10 KMK 22', 2, true, 33, 33, 'diesel', 0);
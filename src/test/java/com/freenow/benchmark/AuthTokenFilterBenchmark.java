@@ -0,0 +1,87 @@
+package com.freenow.benchmark;
+
+import com.freenow.controller.payload.UserVO;
+import com.freenow.security.AuthTokenFilter;
+import com.freenow.security.JwtUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of authenticating one request in {@link AuthTokenFilter}; a claims cache size of 0 measures the uncached path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthTokenFilterBenchmark
+{
+    private static final String SECRET = "BvPHGM8C0ia4uOuxxqPD5DTbWC9F9TWvPStp3pb7ARo0oK2mJ3pd3YG4lxA9i8bj6OTbadwezxgeEByY";
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> {
+    };
+
+    @Param({"0", "10000"})
+    private long claimsCacheSize;
+
+    private AuthTokenFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, "86400", claimsCacheSize, new SimpleMeterRegistry());
+        filter = new AuthTokenFilter();
+        ReflectionTestUtils.setField(filter, "jwtUtil", jwtUtil);
+
+        UserVO user = new UserVO();
+        user.setRole("USER");
+        user.setUserName("benchmark");
+        request = new MockHttpServletRequest("GET", "/v1/drivers/1");
+        request.addHeader(AuthTokenFilter.AUTHORIZATION_HEADER, "Bearer " + jwtUtil.generate(user, "ACCESS"));
+        response = new MockHttpServletResponse();
+    }
+
+
+    @Benchmark
+    public Object authenticate() throws ServletException, IOException
+    {
+        // OncePerRequestFilter marks the request, clear the marker so every invocation runs the filter
+        request.clearAttributes();
+        filter.doFilter(request, response, NO_OP_CHAIN);
+        Object authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(AuthTokenFilterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,164 @@
+package com.freenow.benchmark;
+
+import com.freenow.domainobject.CarDO;
+import com.freenow.domainvalue.DriverUpdate;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.domainvalue.RideRequest;
+import com.freenow.exception.EntityNotFoundException;
+import com.freenow.service.car.CarService;
+import com.freenow.service.driver.DriverService;
+import com.freenow.service.driver.DriverUpdateEvent;
+import com.freenow.service.geo.GeoGridIndex;
+import com.freenow.service.matching.BatchDispatcher;
+import com.freenow.service.matching.DefaultMatchingService;
+import com.freenow.service.matching.WeightedMatchScorer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of one dispatch tick with 50k ONLINE drivers over the Hamburg metropolitan area, and its assignment quality
+ * against assigning the same rides greedily. Claims are released after every tick so every tick sees the full fleet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchDispatchBenchmark
+{
+    private static final double MIN_LATITUDE = 53.40;
+    private static final double MIN_LONGITUDE = 9.70;
+    private static final double SPAN = 0.40;
+
+    private static final int DRIVER_COUNT = 50000;
+    private static final String[] ENGINE_TYPES = {"electric", "gas", "diesel"};
+
+    @Param({"100", "1000", "5000"})
+    private int ridesPerTick;
+
+    private GeoGridIndex locationIndex;
+    private DefaultMatchingService matchingService;
+    private BatchDispatcher dispatcher;
+    private Random random;
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws EntityNotFoundException
+    {
+        random = new Random(42);
+        Map<Long, CarDO> cars = new HashMap<>();
+        CarService carService = Mockito.mock(CarService.class);
+        Mockito.when(carService.find(Mockito.anyLong())).thenAnswer(invocation -> cars.get(invocation.<Long>getArgument(0)));
+
+        locationIndex = new GeoGridIndex(0.01);
+        matchingService = new DefaultMatchingService(
+            Mockito.mock(DriverService.class), carService, locationIndex, new WeightedMatchScorer(1.0, 0.3, 0.2, 100), new SimpleMeterRegistry(), 50, 30);
+        dispatcher = new BatchDispatcher(matchingService, new SimpleMeterRegistry(), Integer.MAX_VALUE, 5, 0.05, 0, 2000);
+        for (long id = 1; id <= DRIVER_COUNT; id++)
+        {
+            cars.put(id, new CarDO(id, "HH-" + id, 2 + random.nextInt(4), random.nextInt(10) == 0,
+                String.valueOf(1 + random.nextInt(5)), ENGINE_TYPES[random.nextInt(ENGINE_TYPES.length)]));
+            double latitude = randomLatitude();
+            double longitude = randomLongitude();
+            locationIndex.update(id, latitude, longitude);
+            matchingService.onDriverUpdate(new DriverUpdateEvent(
+                new DriverUpdate(id, latitude, longitude, OnlineStatus.ONLINE, false, id, ZonedDateTime.now())));
+        }
+    }
+
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        dispatcher.shutdown();
+    }
+
+
+    @Setup(Level.Invocation)
+    public void submitRides()
+    {
+        for (int ride = 0; ride < ridesPerTick; ride++)
+        {
+            boolean convertible = random.nextInt(20) == 0;
+            dispatcher.submit(new RideRequest(randomLatitude(), randomLongitude(), 2, 1, null, convertible ? Boolean.TRUE : null, null));
+        }
+    }
+
+
+    @Benchmark
+    public BatchDispatcher.TickReport tick(Quality quality)
+    {
+        BatchDispatcher.TickReport report = dispatcher.tick();
+        quality.assigned += report.getOptimalAssignments();
+        quality.greedyAssigned += report.getGreedyAssignments();
+        quality.score += report.getOptimalScore();
+        quality.greedyScore += report.getGreedyScore();
+        return report;
+    }
+
+
+    @TearDown(Level.Invocation)
+    public void releaseDrivers()
+    {
+        for (long id = 1; id <= DRIVER_COUNT; id++)
+        {
+            matchingService.release(id);
+        }
+    }
+
+
+    /**
+     * Summed over the iteration, compare the optimal with the greedy figures.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Quality
+    {
+        public long assigned;
+        public long greedyAssigned;
+        public double score;
+        public double greedyScore;
+    }
+
+
+    private double randomLatitude()
+    {
+        return MIN_LATITUDE + random.nextDouble() * SPAN;
+    }
+
+
+    private double randomLongitude()
+    {
+        return MIN_LONGITUDE + random.nextDouble() * SPAN;
+    }
+
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(BatchDispatchBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,74 @@
+package com.freenow.benchmark;
+
+import com.freenow.FreeNowServerApplicantTestApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Application context on the in-memory H2 database seeded with a synthetic fleet for the database backed benchmarks.
+ * <p/>
+ * Every driver has a car, about one in four drivers is ONLINE, seats are 2 to 5, ratings 1 to 5, and the drivers are
+ * spread over the Hamburg metropolitan area.
+ */
+final class BenchmarkFleet
+{
+    // above the ids of data.sql
+    static final long FIRST_ID = 1000;
+
+    private static final String[] ENGINE_TYPES = {"electric", "gas", "diesel"};
+    private static final String[] ONLINE_STATUSES = {"ONLINE", "OFFLINE", "OFFLINE", "OFFLINE"};
+
+
+    private BenchmarkFleet()
+    {
+    }
+
+
+    static ConfigurableApplicationContext start(int driverCount, String... properties)
+    {
+        return start(driverCount, new Class<?>[0], properties);
+    }
+
+
+    static ConfigurableApplicationContext start(int driverCount, Class<?>[] sources, String... properties)
+    {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(FreeNowServerApplicantTestApplication.class)
+            .sources(sources)
+            .properties("server.port=0", "spring.jpa.show-sql=false", "logging.level.root=WARN", "logging.level.com.freenow.util.LoggingInterceptor=WARN")
+            .properties(properties)
+            .run();
+        insertDrivers(context.getBean(JdbcTemplate.class), driverCount);
+        return context;
+    }
+
+
+    private static void insertDrivers(JdbcTemplate jdbcTemplate, int driverCount)
+    {
+        Random random = new Random(42);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Object[]> cars = new ArrayList<>(driverCount);
+        List<Object[]> drivers = new ArrayList<>(driverCount);
+        for (long id = FIRST_ID; id < FIRST_ID + driverCount; id++)
+        {
+            int rating = 1 + random.nextInt(5);
+            cars.add(new Object[] {id, now, "HH-" + id, 2 + random.nextInt(4), random.nextBoolean(),
+                String.valueOf(rating), rating, ENGINE_TYPES[random.nextInt(ENGINE_TYPES.length)]});
+            drivers.add(new Object[] {id, now, ONLINE_STATUSES[random.nextInt(ONLINE_STATUSES.length)], "driver" + id + "pw",
+                "driver" + id, 53.4 + random.nextDouble() * 0.4, 9.7 + random.nextDouble() * 0.4, now, id});
+        }
+        jdbcTemplate.batchUpdate(
+            "insert into car (id, date_created, license_plate, seat_count, convertible, rating, rating_score, engine_type, version)"
+                + " values (?, ?, ?, ?, ?, ?, ?, ?, 0)",
+            cars);
+        jdbcTemplate.batchUpdate(
+            "insert into driver (id, date_created, deleted, online_status, password, username, latitude, longitude, date_coordinate_updated, car_id)"
+                + " values (?, ?, false, ?, ?, ?, ?, ?, ?, ?)",
+            drivers);
+    }
+}
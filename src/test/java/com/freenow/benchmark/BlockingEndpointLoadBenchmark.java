@@ -0,0 +1,176 @@
+package com.freenow.benchmark;
+
+import com.freenow.controller.payload.UserVO;
+import com.freenow.security.JwtUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of the thread-per-request model against the offloading execution mode over real HTTP.
+ * <p/>
+ * The database is slowed down by a fixed latency per connection checkout and tomcat is limited to 16 threads, so 48
+ * clients looking up drivers saturate the connection pool. Meanwhile 4 clients call an endpoint without database
+ * access; with thread-per-request they queue behind the blocked tomcat threads, with offloading they do not.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class BlockingEndpointLoadBenchmark
+{
+
+    @Param({"false", "true"})
+    private boolean offload;
+
+    @Param({"20"})
+    private int dbLatencyMs;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+    private String authorization;
+
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        context = BenchmarkFleet.start(
+            1000,
+            new Class<?>[] {SlowDatabase.class},
+            "web.offload.enabled=" + offload,
+            "benchmark.db-latency-ms=" + dbLatencyMs,
+            "server.tomcat.threads.max=16",
+            "spring.datasource.hikari.maximum-pool-size=8");
+        baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+        UserVO user = new UserVO();
+        user.setRole("USER");
+        user.setUserName("benchmark");
+        authorization = context.getBean(JwtUtil.class).generate(user, "ACCESS");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(Duration.ofSeconds(5)).build();
+    }
+
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        context.close();
+    }
+
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(48)
+    public int driverLookup() throws IOException, InterruptedException
+    {
+        long driverId = BenchmarkFleet.FIRST_ID + ThreadLocalRandom.current().nextInt(1000);
+        return get("/v1/drivers/" + driverId);
+    }
+
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public int withoutDatabase() throws IOException, InterruptedException
+    {
+        return get("/actuator/info");
+    }
+
+
+    private int get(String path) throws IOException, InterruptedException
+    {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .header("Authorization", authorization)
+            .timeout(Duration.ofSeconds(30))
+            .build();
+        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status != 200)
+        {
+            throw new IllegalStateException(path + " answered " + status);
+        }
+        return status;
+    }
+
+
+    /**
+     * Holds every connection for a fixed time after checkout, like a database that answers slowly. Not annotated, so
+     * the component scan of the application does not pick it up; it is only added as source by this benchmark.
+     */
+    static class SlowDatabase
+    {
+
+        @Bean
+        static BeanPostProcessor slowDataSource(@Value("${benchmark.db-latency-ms}") long latencyMs)
+        {
+            return new BeanPostProcessor()
+            {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName)
+                {
+                    if (!(bean instanceof DataSource))
+                    {
+                        return bean;
+                    }
+                    return new DelegatingDataSource((DataSource) bean)
+                    {
+                        @Override
+                        public Connection getConnection() throws SQLException
+                        {
+                            Connection connection = super.getConnection();
+                            try
+                            {
+                                Thread.sleep(latencyMs);
+                            }
+                            catch (InterruptedException e)
+                            {
+                                Thread.currentThread().interrupt();
+                            }
+                            return connection;
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(BlockingEndpointLoadBenchmark.class.getSimpleName()).build()).run();
+    }
+}
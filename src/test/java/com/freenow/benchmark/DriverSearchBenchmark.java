@@ -0,0 +1,146 @@
+package com.freenow.benchmark;
+
+import com.freenow.datatransferobject.DriverSearchDTO;
+import com.freenow.domainobject.DriverDO;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.service.driver.DriverService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link DriverService#search(DriverSearchDTO)} with the former {@code DriverRepository.findByParams} JPQL
+ * on the same criteria. The legacy query is run with plain parameters, so it is measured without the SpEL evaluation
+ * it had in the repository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class DriverSearchBenchmark
+{
+    private static final String LEGACY_QUERY = "select d from DriverDO d where "
+        + "  (:deleted is null OR d.deleted = :deleted)"
+        + " AND (:username is null OR d.username = :username)"
+        + " AND ( d.onlineStatus = 'ONLINE')"
+        + " AND (:licensePlate is null OR d.carDO.licensePlate = :licensePlate)"
+        + " AND (:engineType is null OR d.carDO.engineType = :engineType)"
+        + " AND (:rating is null OR d.carDO.rating = :rating)"
+        + " AND (:seatCount is null OR d.carDO.seatCount = :seatCount)"
+        + " AND (:convertible is null OR d.carDO.convertible = :convertible)";
+
+    @Param({"100000"})
+    private int driverCount;
+
+    private ConfigurableApplicationContext context;
+    private DriverService driverService;
+    private EntityManagerFactory entityManagerFactory;
+    private DriverSearchDTO byCar;
+    private String username;
+    private DriverSearchDTO byUsername;
+
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        context = BenchmarkFleet.start(driverCount);
+        driverService = context.getBean(DriverService.class);
+        entityManagerFactory = context.getBean(EntityManagerFactory.class);
+
+        byCar = DriverSearchDTO.newBuilder()
+            .setOnlineStatus(OnlineStatus.ONLINE)
+            .setEngineType("electric")
+            .setConvertible(true)
+            .setSeatCount(4)
+            .createDriverSearchDTO();
+        username = "driver" + (BenchmarkFleet.FIRST_ID + driverCount / 2);
+        byUsername = DriverSearchDTO.newBuilder()
+            .setOnlineStatus(OnlineStatus.ONLINE)
+            .setUsername(username)
+            .createDriverSearchDTO();
+    }
+
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        context.close();
+    }
+
+
+    @Benchmark
+    public List<DriverDO> searchByCar()
+    {
+        return driverService.search(byCar);
+    }
+
+
+    @Benchmark
+    public List<DriverDO> legacyByCar()
+    {
+        return legacy(null, "electric", 4, true);
+    }
+
+
+    @Benchmark
+    public List<DriverDO> searchByUsername()
+    {
+        return driverService.search(byUsername);
+    }
+
+
+    @Benchmark
+    public List<DriverDO> legacyByUsername()
+    {
+        return legacy(username, null, null, null);
+    }
+
+
+    private List<DriverDO> legacy(String username, String engineType, Integer seatCount, Boolean convertible)
+    {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try
+        {
+            return entityManager.createQuery(LEGACY_QUERY, DriverDO.class)
+                .setParameter("deleted", null)
+                .setParameter("username", username)
+                .setParameter("licensePlate", null)
+                .setParameter("engineType", engineType)
+                .setParameter("rating", null)
+                .setParameter("seatCount", seatCount)
+                .setParameter("convertible", convertible)
+                .getResultList();
+        }
+        finally
+        {
+            entityManager.close();
+        }
+    }
+
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(DriverSearchBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,91 @@
+package com.freenow.benchmark;
+
+import com.freenow.datatransferobject.CarDTO;
+import com.freenow.datatransferobject.DriverDTO;
+import com.freenow.domainobject.DriverDO;
+import com.freenow.service.driver.DriverService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DriverService#findDriverByParams(DriverDTO)} end to end against the in-memory H2 database of the application,
+ * seeded by {@link BenchmarkFleet}. The searched combination of engine type and seat count matches roughly one in twelve
+ * cars.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class FindDriverByParamsBenchmark
+{
+    @Param({"1000", "10000", "100000"})
+    private int driverCount;
+
+    private ConfigurableApplicationContext context;
+    private DriverService driverService;
+    private DriverDTO byCar;
+    private DriverDTO byUsername;
+
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        context = BenchmarkFleet.start(driverCount);
+        driverService = context.getBean(DriverService.class);
+
+        byCar = DriverDTO.newBuilder()
+            .setCarDTO(CarDTO.newBuilder().setEngineType("electric").setSeatCount(4).createCarDTO())
+            .createDriverDTO();
+        byUsername = DriverDTO.newBuilder()
+            .setUsername("driver" + (BenchmarkFleet.FIRST_ID + driverCount / 2))
+            .setCarDTO(CarDTO.newBuilder().createCarDTO())
+            .createDriverDTO();
+    }
+
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        context.close();
+    }
+
+
+    @Benchmark
+    public List<DriverDO> findByCar()
+    {
+        return driverService.findDriverByParams(byCar);
+    }
+
+
+    @Benchmark
+    public List<DriverDO> findByUsername()
+    {
+        return driverService.findDriverByParams(byUsername);
+    }
+
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(FindDriverByParamsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
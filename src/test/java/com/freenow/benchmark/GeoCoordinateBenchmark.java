@@ -0,0 +1,106 @@
+package com.freenow.benchmark;
+
+import com.freenow.domainvalue.GeoCoordinate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction, equality and hashing of {@link GeoCoordinate}, measured per batch of {@code coordinateCount} positions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeoCoordinateBenchmark
+{
+    @Param({"1000", "100000", "1000000"})
+    private int coordinateCount;
+
+    private double[] latitudes;
+    private double[] longitudes;
+    private GeoCoordinate[] coordinates;
+    private GeoCoordinate[] copies;
+
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        Random random = new Random(42);
+        latitudes = new double[coordinateCount];
+        longitudes = new double[coordinateCount];
+        coordinates = new GeoCoordinate[coordinateCount];
+        copies = new GeoCoordinate[coordinateCount];
+        for (int i = 0; i < coordinateCount; i++)
+        {
+            latitudes[i] = 53.4 + random.nextDouble() * 0.4;
+            longitudes[i] = 9.7 + random.nextDouble() * 0.4;
+            coordinates[i] = new GeoCoordinate(latitudes[i], longitudes[i]);
+            copies[i] = new GeoCoordinate(latitudes[i], longitudes[i]);
+        }
+    }
+
+
+    @Benchmark
+    public void construct(Blackhole blackhole)
+    {
+        for (int i = 0; i < coordinateCount; i++)
+        {
+            blackhole.consume(new GeoCoordinate(latitudes[i], longitudes[i]));
+        }
+    }
+
+
+    @Benchmark
+    public int equalsCopy()
+    {
+        int equal = 0;
+        for (int i = 0; i < coordinateCount; i++)
+        {
+            if (coordinates[i].equals(copies[i]))
+            {
+                equal++;
+            }
+        }
+        return equal;
+    }
+
+
+    @Benchmark
+    public int hashSetDistinct()
+    {
+        Set<GeoCoordinate> distinct = new HashSet<>(coordinateCount * 2);
+        for (int i = 0; i < coordinateCount; i++)
+        {
+            distinct.add(coordinates[i]);
+            distinct.add(copies[i]);
+        }
+        return distinct.size();
+    }
+
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(GeoCoordinateBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,89 @@
+package com.freenow.benchmark;
+
+import com.freenow.controller.payload.UserVO;
+import com.freenow.security.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token issuing and verification. {@code tokenCount} distinct tokens are verified round robin, so with a claims cache
+ * smaller than {@code tokenCount} the cache misses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtUtilBenchmark
+{
+    private static final String SECRET = "BvPHGM8C0ia4uOuxxqPD5DTbWC9F9TWvPStp3pb7ARo0oK2mJ3pd3YG4lxA9i8bj6OTbadwezxgeEByY";
+
+    @Param({"0", "10000"})
+    private long claimsCacheSize;
+
+    @Param({"1000"})
+    private int tokenCount;
+
+    private JwtUtil jwtUtil;
+    private UserVO user;
+    private String[] tokens;
+    private int next;
+
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        jwtUtil = new JwtUtil(SECRET, "86400", claimsCacheSize, new SimpleMeterRegistry());
+        user = new UserVO();
+        user.setRole("USER");
+        user.setUserName("benchmark");
+        tokens = new String[tokenCount];
+        for (int i = 0; i < tokenCount; i++)
+        {
+            UserVO tokenUser = new UserVO();
+            tokenUser.setRole("USER");
+            tokenUser.setUserName("driver" + i);
+            tokens[i] = jwtUtil.generate(tokenUser, "ACCESS");
+        }
+    }
+
+
+    @Benchmark
+    public String generate()
+    {
+        return jwtUtil.generate(user, "ACCESS");
+    }
+
+
+    @Benchmark
+    public Claims getAllClaimsFromToken()
+    {
+        String token = tokens[next];
+        next = next + 1 == tokens.length ? 0 : next + 1;
+        return jwtUtil.getAllClaimsFromToken(token);
+    }
+
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(JwtUtilBenchmark.class.getSimpleName()).build()).run();
+    }
+}
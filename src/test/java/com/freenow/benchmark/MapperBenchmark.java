@@ -0,0 +1,91 @@
+package com.freenow.benchmark;
+
+import com.freenow.controller.mapper.CarMapper;
+import com.freenow.controller.mapper.DriverMapper;
+import com.freenow.datatransferobject.CarDTO;
+import com.freenow.datatransferobject.DriverDTO;
+import com.freenow.domainobject.CarDO;
+import com.freenow.domainobject.DriverDO;
+import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.domainvalue.OnlineStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of mapping result lists to DTOs, every driver is ONLINE, has a coordinate and a selected car.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class MapperBenchmark
+{
+    private static final String[] ENGINE_TYPES = {"electric", "gas"};
+
+    @Param({"1000", "100000", "1000000"})
+    private int driverCount;
+
+    private List<DriverDO> drivers;
+    private List<CarDO> cars;
+
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        Random random = new Random(42);
+        drivers = new ArrayList<>(driverCount);
+        cars = new ArrayList<>(driverCount);
+        for (long id = 1; id <= driverCount; id++)
+        {
+            CarDO carDO = new CarDO(id, "HH-" + id, 2 + random.nextInt(6), random.nextBoolean(),
+                String.valueOf(1 + random.nextInt(5)), ENGINE_TYPES[random.nextInt(ENGINE_TYPES.length)]);
+            DriverDO driverDO = new DriverDO("driver" + id, "driver" + id + "pw");
+            driverDO.setId(id);
+            driverDO.setOnlineStatus(OnlineStatus.ONLINE);
+            driverDO.setCoordinate(new GeoCoordinate(53.4 + random.nextDouble() * 0.4, 9.7 + random.nextDouble() * 0.4));
+            driverDO.setCarDO(carDO);
+            cars.add(carDO);
+            drivers.add(driverDO);
+        }
+    }
+
+
+    @Benchmark
+    public List<DriverDTO> makeDriverDTOList()
+    {
+        return DriverMapper.makeDriverDTOList(drivers);
+    }
+
+
+    @Benchmark
+    public List<CarDTO> makeCarDTOList()
+    {
+        return CarMapper.makeCarDTOList(cars);
+    }
+
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(MapperBenchmark.class.getSimpleName()).build()).run();
+    }
+}
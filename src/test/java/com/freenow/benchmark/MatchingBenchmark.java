@@ -0,0 +1,119 @@
+package com.freenow.benchmark;
+
+import com.freenow.domainobject.CarDO;
+import com.freenow.domainvalue.DriverMatch;
+import com.freenow.domainvalue.DriverUpdate;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.domainvalue.RideRequest;
+import com.freenow.exception.EntityNotFoundException;
+import com.freenow.service.car.CarService;
+import com.freenow.service.driver.DriverService;
+import com.freenow.service.driver.DriverUpdateEvent;
+import com.freenow.service.geo.GeoGridIndex;
+import com.freenow.service.matching.DefaultMatchingService;
+import com.freenow.service.matching.WeightedMatchScorer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Match throughput with the ONLINE drivers spread over the Hamburg metropolitan area, for requests with a preferred
+ * engine type only and for requests whose hard requirements only a few cars fulfill.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchingBenchmark
+{
+    private static final double MIN_LATITUDE = 53.40;
+    private static final double MIN_LONGITUDE = 9.70;
+    private static final double SPAN = 0.40;
+
+    private static final String[] ENGINE_TYPES = {"electric", "gas", "diesel"};
+
+    @Param({"50000"})
+    private int driverCount;
+
+    private DefaultMatchingService matchingService;
+    private Random random;
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws EntityNotFoundException
+    {
+        random = new Random(42);
+        Map<Long, CarDO> cars = new HashMap<>();
+        CarService carService = Mockito.mock(CarService.class);
+        Mockito.when(carService.find(Mockito.anyLong())).thenAnswer(invocation -> cars.get(invocation.<Long>getArgument(0)));
+
+        GeoGridIndex locationIndex = new GeoGridIndex(0.01);
+        matchingService = new DefaultMatchingService(
+            Mockito.mock(DriverService.class), carService, locationIndex, new WeightedMatchScorer(1.0, 0.3, 0.2, 100), new SimpleMeterRegistry(), 50, 30);
+        for (long id = 1; id <= driverCount; id++)
+        {
+            cars.put(id, new CarDO(id, "HH-" + id, 2 + random.nextInt(4), random.nextInt(10) == 0,
+                String.valueOf(1 + random.nextInt(5)), ENGINE_TYPES[random.nextInt(ENGINE_TYPES.length)]));
+            double latitude = randomLatitude();
+            double longitude = randomLongitude();
+            locationIndex.update(id, latitude, longitude);
+            matchingService.onDriverUpdate(new DriverUpdateEvent(
+                new DriverUpdate(id, latitude, longitude, OnlineStatus.ONLINE, false, id, ZonedDateTime.now())));
+        }
+    }
+
+
+    @Benchmark
+    public List<DriverMatch> preferredEngineType()
+    {
+        return matchingService.match(new RideRequest(randomLatitude(), randomLongitude(), 5, 5, null, null, "electric"));
+    }
+
+
+    @Benchmark
+    public List<DriverMatch> convertibleWithFiveSeats()
+    {
+        return matchingService.match(new RideRequest(randomLatitude(), randomLongitude(), 5, 5, 5, true, null));
+    }
+
+
+    private double randomLatitude()
+    {
+        return MIN_LATITUDE + random.nextDouble() * SPAN;
+    }
+
+
+    private double randomLongitude()
+    {
+        return MIN_LONGITUDE + random.nextDouble() * SPAN;
+    }
+
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(MatchingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,132 @@
+package com.freenow.benchmark;
+
+import com.freenow.domainobject.DriverDO;
+import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.service.geo.GeoGridIndex;
+import com.freenow.service.geo.GeoMath;
+import com.freenow.service.geo.Neighbour;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the grid index against the O(n) scan over all ONLINE drivers that clients have to do today.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NearestDriverBenchmark
+{
+    // roughly the Hamburg metropolitan area
+    private static final double MIN_LATITUDE = 53.40;
+    private static final double MIN_LONGITUDE = 9.70;
+    private static final double SPAN = 0.40;
+
+    private static final double RADIUS_KM = 5;
+    private static final int LIMIT = 10;
+
+    @Param({"1000", "10000", "100000"})
+    private int driverCount;
+
+    private List<DriverDO> onlineDrivers;
+    private GeoGridIndex index;
+    private Random random;
+
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        random = new Random(42);
+        onlineDrivers = new ArrayList<>(driverCount);
+        index = new GeoGridIndex(0.01);
+        for (long id = 1; id <= driverCount; id++)
+        {
+            DriverDO driverDO = new DriverDO("driver" + id, "pw");
+            driverDO.setId(id);
+            driverDO.setOnlineStatus(OnlineStatus.ONLINE);
+            driverDO.setCoordinate(new GeoCoordinate(randomLatitude(), randomLongitude()));
+            onlineDrivers.add(driverDO);
+            index.update(id, driverDO.getCoordinate().getLatitude(), driverDO.getCoordinate().getLongitude());
+        }
+    }
+
+
+    @Benchmark
+    public List<Long> fullScan()
+    {
+        double latitude = randomLatitude();
+        double longitude = randomLongitude();
+        PriorityQueue<Neighbour> best = new PriorityQueue<>(Comparator.comparingDouble(Neighbour::getDistanceKm).reversed());
+        for (DriverDO driverDO : onlineDrivers)
+        {
+            GeoCoordinate coordinate = driverDO.getCoordinate();
+            double distance = GeoMath.distanceKm(latitude, longitude, coordinate.getLatitude(), coordinate.getLongitude());
+            if (distance <= RADIUS_KM)
+            {
+                best.add(new Neighbour(driverDO.getId(), coordinate.getLatitude(), coordinate.getLongitude(), distance));
+                if (best.size() > LIMIT)
+                {
+                    best.poll();
+                }
+            }
+        }
+        List<Long> ids = new ArrayList<>(best.size());
+        best.forEach(neighbour -> ids.add(neighbour.getId()));
+        return ids;
+    }
+
+
+    @Benchmark
+    public List<Neighbour> indexNearest()
+    {
+        return index.nearest(randomLatitude(), randomLongitude(), RADIUS_KM, LIMIT);
+    }
+
+
+    @Benchmark
+    public List<Neighbour> indexRadius()
+    {
+        return index.withinRadius(randomLatitude(), randomLongitude(), 1);
+    }
+
+
+    private double randomLatitude()
+    {
+        return MIN_LATITUDE + random.nextDouble() * SPAN;
+    }
+
+
+    private double randomLongitude()
+    {
+        return MIN_LONGITUDE + random.nextDouble() * SPAN;
+    }
+
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(NearestDriverBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,60 @@
+package com.freenow.benchmark;
+
+import com.freenow.util.TokenBucketTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limit check of location pings, random drivers out of {@code keyCount} against a table sized for a million keys.
+ * With one permit per second nearly every check after the first round is limited, which is the hot path under abuse.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenBucketTableBenchmark
+{
+
+    @Param({"1000", "1000000"})
+    private int keyCount;
+
+    private TokenBucketTable table;
+
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        table = new TokenBucketTable(1_000_000, 1, 5);
+    }
+
+
+    @Benchmark
+    public long tryAcquire()
+    {
+        return table.tryAcquire(ThreadLocalRandom.current().nextInt(keyCount) + 1, System.nanoTime());
+    }
+
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(TokenBucketTableBenchmark.class.getSimpleName()).build()).run();
+    }
+}
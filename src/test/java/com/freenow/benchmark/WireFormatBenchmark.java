@@ -0,0 +1,123 @@
+package com.freenow.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.freenow.controller.mapper.DriverMapper;
+import com.freenow.datatransferobject.DriverDTO;
+import com.freenow.domainobject.CarDO;
+import com.freenow.domainobject.DriverDO;
+import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.domainvalue.OnlineStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of encoding and decoding the driver listing of {@link DriverMapper#makeDriverDTOList(java.util.Collection)} per
+ * wire format, every driver is ONLINE, has a coordinate and a selected car. The encoded size is printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class WireFormatBenchmark
+{
+    private static final String[] ENGINE_TYPES = {"electric", "gas"};
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"1000", "100000"})
+    private int driverCount;
+
+    private List<DriverDTO> drivers;
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private byte[] encoded;
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException
+    {
+        Random random = new Random(42);
+        List<DriverDO> driverDOs = new ArrayList<>(driverCount);
+        for (long id = 1; id <= driverCount; id++)
+        {
+            CarDO carDO = new CarDO(id, "HH-" + id, 2 + random.nextInt(6), random.nextBoolean(),
+                String.valueOf(1 + random.nextInt(5)), ENGINE_TYPES[random.nextInt(ENGINE_TYPES.length)]);
+            DriverDO driverDO = new DriverDO("driver" + id, "driver" + id + "pw");
+            driverDO.setId(id);
+            driverDO.setOnlineStatus(OnlineStatus.ONLINE);
+            driverDO.setCoordinate(new GeoCoordinate(53.4 + random.nextDouble() * 0.4, 9.7 + random.nextDouble() * 0.4));
+            driverDO.setCarDO(carDO);
+            driverDOs.add(driverDO);
+        }
+        drivers = DriverMapper.makeDriverDTOList(driverDOs);
+
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().factory(factory()).build();
+        writer = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, DriverDTO.class));
+        reader = objectMapper.readerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, DriverDTO.class));
+        encoded = writer.writeValueAsBytes(drivers);
+        System.out.printf("%n%s: %d drivers encode to %d bytes (%.1f bytes per driver)%n",
+            format, driverCount, encoded.length, (double) encoded.length / driverCount);
+    }
+
+
+    private JsonFactory factory()
+    {
+        switch (format)
+        {
+            case "cbor":
+                return new CBORFactory();
+            case "smile":
+                return new SmileFactory();
+            default:
+                return new JsonFactory();
+        }
+    }
+
+
+    @Benchmark
+    public byte[] encode() throws IOException
+    {
+        return writer.writeValueAsBytes(drivers);
+    }
+
+
+    @Benchmark
+    public List<DriverDTO> decode() throws IOException
+    {
+        return reader.readValue(encoded);
+    }
+
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(WireFormatBenchmark.class.getSimpleName()).build()).run();
+    }
+}
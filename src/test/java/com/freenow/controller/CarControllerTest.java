@@ -22,7 +22,10 @@ import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
@@ -133,7 +136,10 @@ public class CarControllerTest extends Auth
         List<CarDO> carDOList = new ArrayList<>();
         CarDO carDO = new CarDO(1l, "new Plate", null, false, null, null);
         carDOList.add(carDO);
-        when(carService.findAll()).thenReturn(carDOList);
+        doAnswer(invocation -> {
+            carDOList.forEach(invocation.<Consumer<CarDO>>getArgument(0));
+            return null;
+        }).when(carService).stream(any());
 
         mockMvc.perform(MockMvcRequestBuilders
             .get("/v1/cars")
@@ -0,0 +1,91 @@
+package com.freenow.controller;
+
+import com.freenow.FreeNowServerApplicantTestApplication;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Compression is applied by the servlet container, so it is only visible on a real connection. The minimum size is
+ * lowered to fit the sample data, a listing of a few more cars is above it and a single car below.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(classes = FreeNowServerApplicantTestApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = "server.compression.min-response-size=256B")
+public class CompressionTest extends Auth
+{
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+
+    @Test
+    public void streamedListingIsCompressed() throws IOException, InterruptedException
+    {
+        // the two seeded cars stay below the minimum size
+        for (long id = 700; id < 710; id++)
+        {
+            jdbcTemplate.update("insert into car (id, date_created, license_plate, seat_count, convertible, rating, rating_score,"
+                + " engine_type, version) values (?, now(), ?, 4, false, '3', 3, 'gas', 0)", id, "HH-" + id);
+        }
+        try
+        {
+            HttpResponse<byte[]> response = send(request("/v1/cars").GET());
+
+            Assertions.assertEquals(200, response.statusCode());
+            Assertions.assertEquals("gzip", response.headers().firstValue(HttpHeaders.CONTENT_ENCODING).orElse(null));
+            try (GZIPInputStream body = new GZIPInputStream(new ByteArrayInputStream(response.body())))
+            {
+                Assertions.assertTrue(new String(body.readAllBytes(), StandardCharsets.UTF_8).startsWith("[{\"id\":"));
+            }
+        }
+        finally
+        {
+            jdbcTemplate.update("delete from car where id >= 700 and id < 710");
+        }
+    }
+
+
+    @Test
+    public void responseBelowMinimumSizeIsNotCompressed() throws IOException, InterruptedException
+    {
+        HttpResponse<byte[]> response = send(request("/v1/cars/1").GET());
+
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertFalse(response.headers().firstValue(HttpHeaders.CONTENT_ENCODING).isPresent());
+    }
+
+
+    private HttpRequest.Builder request(String path)
+    {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+            .header(HttpHeaders.AUTHORIZATION, "Bearer " + getJWT())
+            .header(HttpHeaders.ACCEPT_ENCODING, "gzip");
+    }
+
+
+    private HttpResponse<byte[]> send(HttpRequest.Builder request) throws IOException, InterruptedException
+    {
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
@@ -1,16 +1,31 @@
 package com.freenow.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.freenow.FreeNowServerApplicantTestApplication;
 import com.freenow.controller.mapper.DriverMapper;
 import com.freenow.datatransferobject.CarSelectDTO;
 import com.freenow.datatransferobject.DriverDTO;
+import com.freenow.datatransferobject.DriverLocationDTO;
 import com.freenow.domainobject.CarDO;
 import com.freenow.domainobject.DriverDO;
+import com.freenow.domainvalue.DriverMatch;
+import com.freenow.domainvalue.DriverSummary;
+import com.freenow.domainvalue.DriverUpdate;
 import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.domainvalue.LocationPing;
+import com.freenow.domainvalue.LocationUpdateStatus;
 import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.domainvalue.RideRequest;
 import com.freenow.exception.CarAlreadyInUseException;
 import com.freenow.service.driver.DriverService;
+import com.freenow.service.driver.DriverUpdateBroadcaster;
+import com.freenow.service.driver.DriverUpdateEvent;
+import com.freenow.service.matching.BatchDispatcher;
+import com.freenow.service.matching.MatchingService;
+import com.freenow.util.BinaryFormatConfiguration;
 import org.aspectj.lang.annotation.Before;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -20,19 +35,28 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.web.util.NestedServletException;
 
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
@@ -49,6 +73,15 @@ public class DriverControllerTest extends Auth
     @MockBean
     protected DriverService driverService;
 
+    @MockBean
+    protected MatchingService matchingService;
+
+    @MockBean
+    protected BatchDispatcher dispatcher;
+
+    @Autowired
+    protected DriverUpdateBroadcaster updateBroadcaster;
+
 
     @Before("driverService")
     public void setUp()
@@ -96,6 +129,31 @@ public class DriverControllerTest extends Auth
     }
 
 
+    @Test
+    public void getDriverNotModified() throws Exception
+    {
+        // given
+        DriverDO driverDO = new DriverDO("etag-username", "password");
+        driverDO.setId(2L);
+        // when
+        when(driverService.find(driverDO.getId())).thenReturn(driverDO);
+        String eTag = mockMvc.perform(MockMvcRequestBuilders
+            .get(endPoint.concat("/{driverId}"), driverDO.getId())
+            .header("Authorization", getJWT()))
+            .andExpect(status().isOk())
+            .andExpect(header().exists(HttpHeaders.ETAG))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        // then
+        mockMvc.perform(MockMvcRequestBuilders
+            .get(endPoint.concat("/{driverId}"), driverDO.getId())
+            .header("Authorization", getJWT())
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(content().bytes(new byte[0]));
+        verify(driverService, times(1)).find(driverDO.getId());
+    }
+
+
     @Test
     public void deleteDriver() throws Exception
     {
@@ -126,16 +184,74 @@ public class DriverControllerTest extends Auth
     }
 
 
+    @Test
+    public void updateStatus() throws Exception
+    {
+        mockMvc.perform(MockMvcRequestBuilders
+            .put(endPoint.concat("/{driverId}/status"), 1)
+            .header("Authorization", getJWT())
+            .param("onlineStatus", OnlineStatus.ONLINE.name()))
+            .andExpect(status().isOk());
+
+        verify(driverService).updateStatus(1L, OnlineStatus.ONLINE);
+    }
+
+
+    @Test
+    public void updateLocations() throws Exception
+    {
+        // given
+        List<DriverLocationDTO> locations = new ArrayList<>();
+        locations.add(new DriverLocationDTO(1L, 53.55, 9.99, null));
+        locations.add(new DriverLocationDTO(2L, 53.56, 9.98, null));
+        // when
+        when(driverService.updateLocations(Mockito.anyList()))
+            .thenReturn(List.of(LocationUpdateStatus.UPDATED, LocationUpdateStatus.NOT_FOUND));
+        // then
+        mockMvc.perform(MockMvcRequestBuilders
+            .put(endPoint.concat("/locations"))
+            .header("Authorization", getJWT())
+            .content(asJsonString(locations))
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON))
+            .andDo(print())
+            .andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$[0].driverId").value(1))
+            .andExpect(MockMvcResultMatchers.jsonPath("$[0].status").value(LocationUpdateStatus.UPDATED.name()))
+            .andExpect(MockMvcResultMatchers.jsonPath("$[1].driverId").value(2))
+            .andExpect(MockMvcResultMatchers.jsonPath("$[1].status").value(LocationUpdateStatus.NOT_FOUND.name()));
+    }
+
+
+    @Test
+    public void updateLocationsRejectsOversizedBatch() throws Exception
+    {
+        List<DriverLocationDTO> locations = new ArrayList<>();
+        for (long i = 0; i <= DriverService.MAX_LOCATION_BATCH_SIZE; i++)
+        {
+            locations.add(new DriverLocationDTO(i, 53.55, 9.99, null));
+        }
+        mockMvc.perform(MockMvcRequestBuilders
+            .put(endPoint.concat("/locations"))
+            .header("Authorization", getJWT())
+            .content(asJsonString(locations))
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+        verify(driverService, never()).updateLocations(Mockito.anyList());
+    }
+
+
     @Test
     public void findDrivers() throws Exception
     {
         // given
-        List<DriverDO> driverDOList = new ArrayList<>();
+        List<DriverSummary> driverDOList = new ArrayList<>();
         DriverDO driverDO = new DriverDO("username", "password");
         driverDO.setId(1l);
-        driverDOList.add(driverDO);
+        driverDOList.add(summaryOf(driverDO));
         // when
-        when(driverService.find(OnlineStatus.ONLINE)).thenReturn(driverDOList);
+        when(driverService.findSummaries(OnlineStatus.ONLINE)).thenReturn(driverDOList);
         // then
         mockMvc.perform(MockMvcRequestBuilders
             .get(endPoint)
@@ -149,6 +265,254 @@ public class DriverControllerTest extends Auth
     }
 
 
+    @Test
+    public void findDriversAsCbor() throws Exception
+    {
+        // given
+        List<DriverSummary> driverDOList = new ArrayList<>();
+        DriverDO driverDO = new DriverDO("username", "password");
+        driverDO.setId(1l);
+        driverDOList.add(summaryOf(driverDO));
+        // when
+        when(driverService.findSummaries(OnlineStatus.ONLINE)).thenReturn(driverDOList);
+        // then
+        byte[] body = mockMvc.perform(MockMvcRequestBuilders
+            .get(endPoint)
+            .header("Authorization", getJWT())
+            .param("onlineStatus", OnlineStatus.ONLINE.name())
+            .accept(MediaType.APPLICATION_CBOR))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+            .andReturn().getResponse().getContentAsByteArray();
+        JsonNode drivers = new ObjectMapper(new CBORFactory()).readTree(body);
+        Assertions.assertThat(drivers.get(0).get("username").asText()).isEqualTo(driverDO.getUsername());
+        Assertions.assertThat(body.length).isLessThan(asJsonString(DriverMapper.makeDriverDTOList(List.of(driverDO))).length());
+    }
+
+
+    @Test
+    public void updateLocationsAsSmile() throws Exception
+    {
+        // given
+        ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+        List<DriverLocationDTO> locations = new ArrayList<>();
+        locations.add(new DriverLocationDTO(1L, 53.55, 9.99, null));
+        // when
+        when(driverService.updateLocations(Mockito.anyList())).thenReturn(List.of(LocationUpdateStatus.UPDATED));
+        // then
+        byte[] body = mockMvc.perform(MockMvcRequestBuilders
+            .put(endPoint.concat("/locations"))
+            .header("Authorization", getJWT())
+            .content(smileMapper.writeValueAsBytes(locations))
+            .contentType(BinaryFormatConfiguration.APPLICATION_SMILE)
+            .accept(BinaryFormatConfiguration.APPLICATION_SMILE))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsByteArray();
+        Assertions.assertThat(smileMapper.readTree(body).get(0).get("status").asText()).isEqualTo(LocationUpdateStatus.UPDATED.name());
+        verify(driverService).updateLocations(argThat(list -> list.size() == 1 && list.get(0).getLatitude() == 53.55));
+    }
+
+
+    @Test
+    public void getDriverAsCbor() throws Exception
+    {
+        // given
+        DriverDO driverDO = new DriverDO("cbor-username", "password");
+        driverDO.setId(3L);
+        // when
+        when(driverService.find(driverDO.getId())).thenReturn(driverDO);
+        // then
+        byte[] body = mockMvc.perform(MockMvcRequestBuilders
+            .get(endPoint.concat("/{driverId}"), driverDO.getId())
+            .header("Authorization", getJWT())
+            .accept(MediaType.APPLICATION_CBOR))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+            .andReturn().getResponse().getContentAsByteArray();
+        Assertions.assertThat(new ObjectMapper(new CBORFactory()).readTree(body).get("username").asText()).isEqualTo(driverDO.getUsername());
+    }
+
+
+    @Test
+    public void matchDrivers() throws Exception
+    {
+        // given
+        RideRequest[] request = new RideRequest[1];
+        // when
+        when(matchingService.match(Mockito.any())).thenAnswer(invocation -> {
+            request[0] = invocation.getArgument(0);
+            return Collections.singletonList(new DriverMatch(4L, 2L, 53.55, 9.99, 0.4, 1.1));
+        });
+        // then
+        mockMvc.perform(MockMvcRequestBuilders
+            .get(endPoint.concat("/match"))
+            .header("Authorization", getJWT())
+            .param("latitude", "53.55")
+            .param("longitude", "9.99")
+            .param("seatCount", "4")
+            .param("engineType", "electric")
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$[0].driverId").value(4))
+            .andExpect(MockMvcResultMatchers.jsonPath("$[0].carId").value(2))
+            .andExpect(MockMvcResultMatchers.jsonPath("$[0].score").value(1.1));
+        Assertions.assertThat(request[0].getSeatCount()).isEqualTo(4);
+        Assertions.assertThat(request[0].getConvertible()).isNull();
+        Assertions.assertThat(request[0].getEngineType()).isEqualTo("electric");
+        Assertions.assertThat(request[0].getLimit()).isEqualTo(5);
+    }
+
+
+    @Test
+    public void dispatchRide() throws Exception
+    {
+        // when
+        when(dispatcher.submit(Mockito.any()))
+            .thenReturn(CompletableFuture.completedFuture(Optional.of(new DriverMatch(4L, 2L, 53.55, 9.99, 0.4, 1.1))))
+            .thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+        // then
+        MvcResult assigned = mockMvc.perform(MockMvcRequestBuilders
+            .post(endPoint.concat("/dispatch"))
+            .header("Authorization", getJWT())
+            .param("latitude", "53.55")
+            .param("longitude", "9.99"))
+            .andExpect(MockMvcResultMatchers.request().asyncStarted())
+            .andReturn();
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(assigned))
+            .andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.driverId").value(4));
+
+        MvcResult unassigned = mockMvc.perform(MockMvcRequestBuilders
+            .post(endPoint.concat("/dispatch"))
+            .header("Authorization", getJWT())
+            .param("latitude", "53.55")
+            .param("longitude", "9.99"))
+            .andReturn();
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(unassigned))
+            .andExpect(status().isNoContent());
+    }
+
+
+    @Test
+    public void releaseDriver() throws Exception
+    {
+        mockMvc.perform(MockMvcRequestBuilders
+            .put(endPoint.concat("/4/release"))
+            .header("Authorization", getJWT()))
+            .andExpect(status().isOk());
+        verify(matchingService).release(4L);
+    }
+
+
+    @Test
+    public void findNearestDrivers() throws Exception
+    {
+        // given
+        List<DriverDO> driverDOList = new ArrayList<>();
+        DriverDO driverDO = new DriverDO("username", "password");
+        driverDO.setId(1l);
+        driverDO.setOnlineStatus(OnlineStatus.ONLINE);
+        driverDO.setCoordinate(new GeoCoordinate(53.55, 9.99));
+        driverDOList.add(driverDO);
+        // when
+        when(driverService.findNearest(53.55, 9.99, 2, 5)).thenReturn(driverDOList);
+        // then
+        mockMvc.perform(MockMvcRequestBuilders
+            .get(endPoint.concat("/nearest"))
+            .header("Authorization", getJWT())
+            .param("latitude", "53.55")
+            .param("longitude", "9.99")
+            .param("radiusKm", "2")
+            .param("limit", "5")
+            .accept(MediaType.APPLICATION_JSON))
+            .andDo(print())
+            .andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(driverDO.getId()))
+            .andExpect(MockMvcResultMatchers.jsonPath("$[0].coordinate.latitude").value(53.55));
+    }
+
+
+    @Test
+    public void findDriversPage() throws Exception
+    {
+        // given
+        List<DriverSummary> driverDOList = new ArrayList<>();
+        for (long id = 5; id <= 6; id++)
+        {
+            DriverDO driverDO = new DriverDO("username" + id, "password");
+            driverDO.setId(id);
+            driverDO.setOnlineStatus(OnlineStatus.ONLINE);
+            driverDOList.add(summaryOf(driverDO));
+        }
+        // when
+        when(driverService.findPage(OnlineStatus.ONLINE, 4, 2)).thenReturn(driverDOList);
+        // then
+        mockMvc.perform(MockMvcRequestBuilders
+            .get(endPoint.concat("/page"))
+            .header("Authorization", getJWT())
+            .param("onlineStatus", "ONLINE")
+            .param("afterId", "4")
+            .param("size", "2")
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.drivers.length()").value(2))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.drivers[0].id").value(5))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.nextAfterId").value(6));
+    }
+
+
+    @Test
+    public void streamDrivers() throws Exception
+    {
+        // given
+        DriverDO first = new DriverDO("first", "password");
+        first.setId(4L);
+        DriverDO second = new DriverDO("second", "password");
+        second.setId(5L);
+        // when
+        doAnswer(invocation -> {
+            Consumer<DriverDO> consumer = invocation.getArgument(1);
+            consumer.accept(first);
+            consumer.accept(second);
+            return null;
+        }).when(driverService).stream(Mockito.eq(OnlineStatus.ONLINE), Mockito.any());
+        // then
+        String body = mockMvc.perform(MockMvcRequestBuilders
+            .get(endPoint.concat("/stream"))
+            .header("Authorization", getJWT())
+            .param("onlineStatus", "ONLINE"))
+            .andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.content().contentType("application/x-ndjson"))
+            .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        Assertions.assertThat(lines).hasSize(2);
+        Assertions.assertThat(new ObjectMapper().readTree(lines[1]).get("username").asText()).isEqualTo("second");
+    }
+
+
+    @Test
+    public void searchDrivers() throws Exception
+    {
+        // given
+        DriverDO driverDO = new DriverDO("username", "password");
+        driverDO.setId(4L);
+        driverDO.setOnlineStatus(OnlineStatus.ONLINE);
+        // when
+        when(driverService.search(Mockito.any())).thenReturn(List.of(driverDO));
+        // then
+        mockMvc.perform(MockMvcRequestBuilders
+            .post(endPoint.concat("/search"))
+            .header("Authorization", getJWT())
+            .content("{\"engineType\":\"electric\",\"minSeatCount\":4,\"latitude\":53.55,\"longitude\":9.99,\"radiusKm\":5}")
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(4));
+        verify(driverService).search(Mockito.argThat(criteria -> "electric".equals(criteria.getEngineType())
+            && criteria.getMinSeatCount() == 4 && criteria.hasDistanceCriteria()));
+    }
+
+
     @Test
     public void selectCar() throws Exception
     {
@@ -228,7 +592,10 @@ public class DriverControllerTest extends Auth
         DriverDTO driverDTO = DriverMapper.makeDriverDTO(driverDO);
 
         // when
-        when(driverService.findDriverByParams(Mockito.any())).thenReturn(driverDOList);
+        doAnswer(invocation -> {
+            driverDOList.forEach(invocation.<Consumer<DriverDO>>getArgument(1));
+            return null;
+        }).when(driverService).streamDriverByParams(Mockito.any(), Mockito.any());
         // then
         mockMvc.perform(MockMvcRequestBuilders
             .post(endPoint.concat("/findDriverByParams"))
@@ -249,6 +616,82 @@ public class DriverControllerTest extends Auth
     }
 
 
+    @Test
+    public void findLocationHistory() throws Exception
+    {
+        // given
+        ZonedDateTime from = ZonedDateTime.parse("2021-05-01T10:00:00Z");
+        List<LocationPing> history = new ArrayList<>();
+        history.add(new LocationPing(4L, 53.55, 9.99, from.plusMinutes(1)));
+        // when
+        when(driverService.findLocationHistory(4L, from, from.plusHours(1), 1000)).thenReturn(history);
+        // then
+        mockMvc.perform(MockMvcRequestBuilders
+            .get(endPoint.concat("/{driverId}/locations"), 4L)
+            .header("Authorization", getJWT())
+            .param("from", "2021-05-01T10:00:00Z")
+            .param("to", "2021-05-01T11:00:00Z")
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$[0].driverId").value(4))
+            .andExpect(MockMvcResultMatchers.jsonPath("$[0].latitude").value(53.55));
+    }
+
+
+    @Test
+    public void findLocationHistoryWithReversedRange() throws Exception
+    {
+        mockMvc.perform(MockMvcRequestBuilders
+            .get(endPoint.concat("/{driverId}/locations"), 4L)
+            .header("Authorization", getJWT())
+            .param("from", "2021-05-02T10:00:00Z")
+            .param("to", "2021-05-01T11:00:00Z")
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+        verify(driverService, never()).findLocationHistory(Mockito.anyLong(), Mockito.any(), Mockito.any(), Mockito.anyInt());
+    }
+
+
+    @Test
+    public void subscribeDriverUpdates() throws Exception
+    {
+        // given
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+            .get(endPoint.concat("/updates"))
+            .header("Authorization", getJWT())
+            .param("minLatitude", "53")
+            .param("maxLatitude", "54")
+            .param("minLongitude", "9")
+            .param("maxLongitude", "11")
+            .accept(MediaType.TEXT_EVENT_STREAM))
+            .andExpect(MockMvcResultMatchers.request().asyncStarted())
+            .andReturn();
+        // when
+        updateBroadcaster.onDriverUpdate(new DriverUpdateEvent(DriverUpdate.location(7L, 48.13, 11.57, ZonedDateTime.now())));
+        updateBroadcaster.onDriverUpdate(new DriverUpdateEvent(DriverUpdate.location(4L, 53.55, 9.99, ZonedDateTime.now())));
+        // then
+        String content = "";
+        for (int i = 0; i < 100 && !content.contains("driverId"); i++)
+        {
+            Thread.sleep(20);
+            content = result.getResponse().getContentAsString();
+        }
+        Assertions.assertThat(content).startsWith("event:drivers").contains("\"driverId\":4").doesNotContain("\"driverId\":7");
+    }
+
+
+    @Test
+    public void subscribeDriverUpdatesWithPartialBoundingBox() throws Exception
+    {
+        mockMvc.perform(MockMvcRequestBuilders
+            .get(endPoint.concat("/updates"))
+            .header("Authorization", getJWT())
+            .param("minLatitude", "53")
+            .accept(MediaType.TEXT_EVENT_STREAM))
+            .andExpect(status().isBadRequest());
+    }
+
+
     public static String asJsonString(final Object obj)
     {
         try
@@ -260,4 +703,11 @@ public class DriverControllerTest extends Auth
             throw new RuntimeException(e);
         }
     }
+
+
+    private static DriverSummary summaryOf(DriverDO driverDO)
+    {
+        return new DriverSummary(driverDO.getId(), driverDO.getUsername(), driverDO.getPassword(), null, null, null,
+            driverDO.getOnlineStatus(), null, null, null, null, null, null);
+    }
 }
@@ -0,0 +1,147 @@
+package com.freenow.controller;
+
+import com.freenow.dataaccessobject.DriverRepository;
+import com.freenow.service.driver.DriverPresence;
+import com.freenow.service.driver.LocationIngestionPipeline;
+import com.freenow.service.driver.PositionExpiry;
+import com.freenow.service.geo.GeoGridIndex;
+import com.freenow.util.JsonResponseCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.List;
+import java.util.Map;
+
+public class LocationRateLimitInterceptorTest
+{
+
+    private final DriverRepository driverRepository = Mockito.mock(DriverRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DriverPresence presence = new DriverPresence(driverRepository, meterRegistry, 60, 600, 1000);
+    private final LocationIngestionPipeline pipeline = new LocationIngestionPipeline(
+        driverRepository, new GeoGridIndex(0.01), presence,
+        new PositionExpiry(meterRegistry, 300, 1000), Mockito.mock(JsonResponseCache.class), Mockito.mock(ApplicationEventPublisher.class),
+        meterRegistry, false, 10);
+
+
+    @BeforeEach
+    public void setUp()
+    {
+        presence.online(1L);
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken("driver-app", null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+    }
+
+
+    @AfterEach
+    public void tearDown()
+    {
+        SecurityContextHolder.clearContext();
+    }
+
+
+    @Test
+    public void pingsOverTheLimitAreRejected()
+    {
+        LocationRateLimitInterceptor interceptor = interceptor(LocationRateLimitInterceptor.Mode.REJECT);
+        Assertions.assertTrue(interceptor.preHandle(ping(1L), new MockHttpServletResponse(), null));
+        Assertions.assertTrue(interceptor.preHandle(ping(1L), new MockHttpServletResponse(), null));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Assertions.assertFalse(interceptor.preHandle(ping(1L), response, null));
+
+        Assertions.assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), response.getStatus());
+        Assertions.assertEquals("1", response.getHeader(HttpHeaders.RETRY_AFTER));
+        Assertions.assertTrue(interceptor.preHandle(ping(2L), new MockHttpServletResponse(), null));
+        Assertions.assertEquals(1d, meterRegistry.counter("web.rate-limit.location", "result", "rejected").count());
+    }
+
+
+    @Test
+    public void pingsOverTheLimitAreCoalesced()
+    {
+        LocationRateLimitInterceptor interceptor = interceptor(LocationRateLimitInterceptor.Mode.COALESCE);
+        interceptor.preHandle(ping(1L), new MockHttpServletResponse(), null);
+        interceptor.preHandle(ping(1L), new MockHttpServletResponse(), null);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockHttpServletRequest request = ping(1L);
+        request.setParameter("latitude", "53.6");
+        Assertions.assertFalse(interceptor.preHandle(request, response, null));
+
+        Assertions.assertEquals(HttpStatus.ACCEPTED.value(), response.getStatus());
+        Assertions.assertEquals(53.6, pipeline.latest(1L).get().getLatitude());
+    }
+
+
+    @Test
+    public void pingsOfDriversNotOnlineAreRejectedInsteadOfCoalesced()
+    {
+        LocationRateLimitInterceptor interceptor = interceptor(LocationRateLimitInterceptor.Mode.COALESCE);
+        interceptor.preHandle(ping(100L), new MockHttpServletResponse(), null);
+        interceptor.preHandle(ping(100L), new MockHttpServletResponse(), null);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Assertions.assertFalse(interceptor.preHandle(ping(100L), response, null));
+
+        Assertions.assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), response.getStatus());
+        Assertions.assertFalse(pipeline.latest(100L).isPresent());
+        Mockito.verifyNoInteractions(driverRepository);
+    }
+
+
+    @Test
+    public void subjectLimitDoesNotUseUpTheDriverAllowance()
+    {
+        LocationRateLimitInterceptor interceptor = new LocationRateLimitInterceptor(
+            pipeline, meterRegistry, LocationRateLimitInterceptor.Mode.REJECT, 1, 1, 100, 1, 1, 100);
+        Assertions.assertTrue(interceptor.preHandle(ping(1L), new MockHttpServletResponse(), null));
+        Assertions.assertFalse(interceptor.preHandle(ping(2L), new MockHttpServletResponse(), null));
+
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken("other-app", null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+        Assertions.assertTrue(interceptor.preHandle(ping(2L), new MockHttpServletResponse(), null));
+    }
+
+
+    @Test
+    public void requestsWithoutTheRoleAreLeftToTheEndpoint()
+    {
+        SecurityContextHolder.clearContext();
+        LocationRateLimitInterceptor interceptor = interceptor(LocationRateLimitInterceptor.Mode.COALESCE);
+        for (int i = 0; i < 5; i++)
+        {
+            Assertions.assertTrue(interceptor.preHandle(ping(1L), new MockHttpServletResponse(), null));
+        }
+        Assertions.assertFalse(pipeline.latest(1L).isPresent());
+    }
+
+
+    private LocationRateLimitInterceptor interceptor(LocationRateLimitInterceptor.Mode mode)
+    {
+        return new LocationRateLimitInterceptor(pipeline, meterRegistry, mode, 1, 2, 100, 1000, 1000, 100);
+    }
+
+
+    private static MockHttpServletRequest ping(long driverId)
+    {
+        MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/v1/drivers/" + driverId);
+        request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Map.of("driverId", String.valueOf(driverId)));
+        request.setParameter("latitude", "53.55");
+        request.setParameter("longitude", "9.99");
+        return request;
+    }
+}
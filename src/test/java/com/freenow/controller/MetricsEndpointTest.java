@@ -0,0 +1,53 @@
+package com.freenow.controller;
+
+import com.freenow.FreeNowServerApplicantTestApplication;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(classes = FreeNowServerApplicantTestApplication.class)
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+public class MetricsEndpointTest extends Auth
+{
+
+    @Autowired
+    protected MockMvc mockMvc;
+
+
+    @Test
+    public void scrapeContainsRouteServiceQueryAndCacheMetrics() throws Exception
+    {
+        mockMvc.perform(MockMvcRequestBuilders.get("/v1/cars").header("Authorization", getJWT()))
+            .andExpect(status().isOk());
+        // query metrics are registered when the next entities are loaded
+        mockMvc.perform(MockMvcRequestBuilders.post("/v1/drivers/search")
+            .header("Authorization", getJWT())
+            .content("{\"onlineStatus\":\"ONLINE\"}")
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk());
+
+        String scrape = mockMvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+
+        Assertions.assertThat(scrape)
+            .contains("http_server_requests_seconds_bucket{exception=\"None\",method=\"GET\",outcome=\"SUCCESS\",status=\"200\",uri=\"/v1/cars\"")
+            .contains("car_service_seconds_bucket{class=\"com.freenow.service.car.DefaultCarService\",exception=\"none\",method=\"stream\"")
+            .contains("hibernate_statements_total")
+            .contains("hibernate_query_execution_total")
+            .contains("hibernate_second_level_cache_requests_total{entityManagerFactory=\"entityManagerFactory\",region=\"driver\",result=\"miss\"")
+            .contains("hibernate_second_level_cache_hit_ratio{region=\"car\"");
+    }
+}
@@ -0,0 +1,110 @@
+package com.freenow.controller;
+
+import com.freenow.FreeNowServerApplicantTestApplication;
+import com.freenow.domainobject.DriverDO;
+import com.freenow.exception.EntityNotFoundException;
+import com.freenow.service.driver.DriverService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(classes = FreeNowServerApplicantTestApplication.class, properties = "web.offload.enabled=true")
+@AutoConfigureMockMvc
+public class OffloadingModeTest extends Auth
+{
+
+    @Autowired
+    protected MockMvc mockMvc;
+
+    @MockBean
+    protected DriverService driverService;
+
+
+    @Test
+    public void blockingEndpointRunsOnOffloadExecutor() throws Exception
+    {
+        // given
+        DriverDO driverDO = new DriverDO("username", "password");
+        driverDO.setId(1L);
+        AtomicReference<String> thread = new AtomicReference<>();
+        // when
+        when(driverService.find(1L)).thenAnswer(invocation -> {
+            thread.set(Thread.currentThread().getName());
+            return driverDO;
+        });
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+            .get("/v1/drivers/{driverId}", 1L)
+            .header("Authorization", getJWT())
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        // then
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.username").value("username"));
+        org.assertj.core.api.Assertions.assertThat(thread.get()).startsWith("web-offload-");
+    }
+
+
+    @Test
+    public void exceptionsAreResolvedAfterOffloading() throws Exception
+    {
+        when(driverService.find(2L)).thenThrow(new EntityNotFoundException("Could not find entity with id: 2"));
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+            .get("/v1/drivers/{driverId}", 2L)
+            .header("Authorization", getJWT()))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+            .andExpect(status().isNotFound());
+    }
+
+
+    @Test
+    public void createdStatusIsKept() throws Exception
+    {
+        when(driverService.create(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+            .post("/v1/drivers")
+            .header("Authorization", getJWT())
+            .content("{\"username\":\"offloaded\",\"password\":\"secret\"}")
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+            .andExpect(status().isCreated())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.username").value("offloaded"));
+    }
+
+
+    @Test
+    public void streamingEndpointStaysOnContainerThread() throws Exception
+    {
+        mockMvc.perform(MockMvcRequestBuilders
+            .get("/v1/drivers/stream")
+            .header("Authorization", getJWT())
+            .param("onlineStatus", "ONLINE"))
+            .andExpect(request().asyncNotStarted())
+            .andExpect(status().isOk());
+    }
+}
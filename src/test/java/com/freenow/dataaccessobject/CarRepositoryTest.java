@@ -0,0 +1,53 @@
+package com.freenow.dataaccessobject;
+
+import com.freenow.FreeNowServerApplicantTestApplication;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(classes = FreeNowServerApplicantTestApplication.class)
+public class CarRepositoryTest
+{
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+
+    @Test
+    public void findLockedByIdIncrementsVersionOnCommit()
+    {
+        long before = carRepository.findById(2L).get().getVersion();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> carRepository.findLockedById(2L).get());
+
+        Assertions.assertEquals(before + 1, carRepository.findById(2L).get().getVersion());
+    }
+
+
+    @Test
+    public void ratingScoreMigrationCopiesNumericRatings()
+    {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            status.setRollbackOnly();
+            jdbcTemplate.update("update car set rating_score = null where id in (1, 2)");
+            jdbcTemplate.update("update car set rating = 'five stars' where id = 2");
+
+            Assertions.assertEquals(1, new CarRatingScoreMigration(jdbcTemplate).migrate());
+            Assertions.assertEquals(12d, jdbcTemplate.queryForObject("select rating_score from car where id = 1", Double.class));
+            Assertions.assertNull(jdbcTemplate.queryForObject("select rating_score from car where id = 2", Double.class));
+        });
+    }
+}
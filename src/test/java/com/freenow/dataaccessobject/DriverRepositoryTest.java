@@ -0,0 +1,327 @@
+package com.freenow.dataaccessobject;
+
+import com.freenow.FreeNowServerApplicantTestApplication;
+import com.freenow.datatransferobject.DriverSearchDTO;
+import com.freenow.domainobject.DriverDO;
+import com.freenow.domainvalue.DriverSummary;
+import com.freenow.domainvalue.LocationPing;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.service.driver.DriverSearchSpecification;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.geo.Point;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.SerializationUtils;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(classes = FreeNowServerApplicantTestApplication.class)
+public class DriverRepositoryTest
+{
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+
+    @Test
+    public void updateLocations()
+    {
+        List<LocationPing> pings = List.of(
+            new LocationPing(1L, 53.55, 9.99, ZonedDateTime.now()),
+            new LocationPing(999L, 53.55, 9.99, ZonedDateTime.now()));
+
+        int[] counts = driverRepository.updateLocations(pings);
+
+        Assertions.assertArrayEquals(new int[] {1, 0}, counts);
+        DriverDO driverDO = driverRepository.findById(1L).get();
+        Assertions.assertEquals(53.55, driverDO.getCoordinate().getLatitude());
+        Assertions.assertEquals(9.99, driverDO.getCoordinate().getLongitude());
+    }
+
+
+    @Test
+    public void updateLocationsSkipsStalePings()
+    {
+        ZonedDateTime now = ZonedDateTime.now();
+        driverRepository.updateLocations(List.of(new LocationPing(2L, 53.55, 9.99, now)));
+
+        int[] counts = driverRepository.updateLocations(List.of(new LocationPing(2L, 48.13, 11.57, now.minusMinutes(1))));
+
+        Assertions.assertArrayEquals(new int[] {0}, counts);
+        Assertions.assertEquals(53.55, driverRepository.findById(2L).get().getCoordinate().getLatitude());
+    }
+
+
+    @Test
+    public void findAllOnlineDriverIds()
+    {
+        List<Long> online = driverRepository.findAllOnlineDriverIds();
+        Assertions.assertTrue(online.containsAll(List.of(4L, 8L)));
+        Assertions.assertFalse(online.contains(1L));
+    }
+
+
+    @Test
+    public void updateOnlineStatuses()
+    {
+        driverRepository.findById(3L);
+        try
+        {
+            driverRepository.updateOnlineStatuses(Map.of(3L, OnlineStatus.ONLINE, 999L, OnlineStatus.ONLINE));
+
+            Assertions.assertEquals(OnlineStatus.ONLINE, driverRepository.findById(3L).get().getOnlineStatus());
+        }
+        finally
+        {
+            driverRepository.updateOnlineStatuses(Map.of(3L, OnlineStatus.OFFLINE));
+        }
+    }
+
+
+    @Test
+    public void findWithinBoundingBox()
+    {
+        List<DriverDO> drivers = driverRepository.findWithinBoundingBox(OnlineStatus.ONLINE, 55.9, 56.0, 9.4, 9.6);
+        Assertions.assertEquals(1, drivers.size());
+        Assertions.assertEquals(8L, drivers.get(0).getId());
+    }
+
+
+    @Test
+    public void findPagesAfterId()
+    {
+        List<Long> all = onlineDriverIds();
+
+        List<DriverSummary> first = driverRepository.findSummariesByOnlineStatusAfter(OnlineStatus.ONLINE, 0L, PageRequest.of(0, 2));
+        Long afterId = first.get(first.size() - 1).getId();
+        List<DriverSummary> second = driverRepository.findSummariesByOnlineStatusAfter(OnlineStatus.ONLINE, afterId, PageRequest.of(0, 2));
+
+        Assertions.assertEquals(all.subList(0, 2), first.stream().map(DriverSummary::getId).collect(Collectors.toList()));
+        Assertions.assertEquals(all.subList(2, 4), second.stream().map(DriverSummary::getId).collect(Collectors.toList()));
+    }
+
+
+    @Test
+    public void streamByOnlineStatus()
+    {
+        List<Long> streamed = new TransactionTemplate(transactionManager).execute(status -> {
+            try (Stream<DriverDO> drivers = driverRepository.streamByOnlineStatus(OnlineStatus.ONLINE))
+            {
+                return drivers.map(DriverDO::getId).collect(Collectors.toList());
+            }
+        });
+
+        Assertions.assertEquals(onlineDriverIds(), streamed);
+    }
+
+
+    @Test
+    public void searchByCarCriteria()
+    {
+        jdbcTemplate.update("update driver set car_id = 1 where id = 5");
+        jdbcTemplate.update("update driver set car_id = 2 where id = 6");
+        try
+        {
+            List<DriverDO> electric = driverRepository.findAll(DriverSearchSpecification.of(DriverSearchDTO.newBuilder()
+                .setOnlineStatus(OnlineStatus.ONLINE)
+                .setEngineType("electric")
+                .setMinSeatCount(3)
+                .createDriverSearchDTO()));
+            List<DriverDO> rated = driverRepository.findAll(DriverSearchSpecification.of(DriverSearchDTO.newBuilder()
+                .setMinRating(20d)
+                .createDriverSearchDTO()));
+
+            Assertions.assertEquals(List.of(5L), electric.stream().map(DriverDO::getId).collect(Collectors.toList()));
+            Assertions.assertEquals("electric", electric.get(0).getCarDO().getEngineType());
+            Assertions.assertEquals(List.of(6L), rated.stream().map(DriverDO::getId).collect(Collectors.toList()));
+        }
+        finally
+        {
+            jdbcTemplate.update("update driver set car_id = null where id in (5, 6)");
+        }
+    }
+
+
+    @Test
+    public void searchWithoutCarCriteriaKeepsDriversWithoutCar()
+    {
+        List<DriverDO> drivers = driverRepository.findAll(DriverSearchSpecification.of(DriverSearchDTO.newBuilder()
+            .setOnlineStatus(OnlineStatus.ONLINE)
+            .setLatitude(55.954)
+            .setLongitude(9.5)
+            .setRadiusKm(1d)
+            .createDriverSearchDTO()));
+
+        Assertions.assertEquals(List.of(8L), drivers.stream().map(DriverDO::getId).collect(Collectors.toList()));
+    }
+
+
+    @Test
+    public void searchWithCarSkipsDriversWithoutCar()
+    {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            status.setRollbackOnly();
+            jdbcTemplate.update("update driver set car_id = 1 where id = 5");
+
+            List<DriverDO> drivers = driverRepository.findAll(DriverSearchSpecification.of(DriverSearchDTO.newBuilder()
+                .setOnlineStatus(OnlineStatus.ONLINE)
+                .setWithCar(true)
+                .createDriverSearchDTO()));
+
+            Assertions.assertEquals(List.of(5L), drivers.stream().map(DriverDO::getId).collect(Collectors.toList()));
+        });
+    }
+
+
+    /**
+     * Far from the equator the circle reaches further east and west north of its center than at the center latitude.
+     */
+    @Test
+    public void searchBoundingBoxCoversTheWidestLatitudeOfTheCircle()
+    {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            status.setRollbackOnly();
+            jdbcTemplate.update("insert into driver (id, latitude, longitude, date_coordinate_updated, date_created, deleted,"
+                + " online_status, password, username) values (900, 61.27, 28.1, now(), now(), false, 'ONLINE', 'pw', 'north-east')");
+
+            List<DriverDO> drivers = driverRepository.findAll(DriverSearchSpecification.of(DriverSearchDTO.newBuilder()
+                .setUsername("north-east")
+                .setLatitude(60d)
+                .setLongitude(10d)
+                .setRadiusKm(1000d)
+                .createDriverSearchDTO()));
+
+            Assertions.assertEquals(List.of(900L), drivers.stream().map(DriverDO::getId).collect(Collectors.toList()));
+        });
+    }
+
+
+    @Test
+    public void searchByMinRatingSkipsRatingsThatAreNoNumber()
+    {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            status.setRollbackOnly();
+            jdbcTemplate.update("update driver set car_id = 1 where id = 5");
+            jdbcTemplate.update("update driver set car_id = 2 where id = 6");
+            jdbcTemplate.update("update car set rating = 'five stars', rating_score = null where id = 1");
+
+            List<DriverDO> rated = driverRepository.findAll(DriverSearchSpecification.of(DriverSearchDTO.newBuilder()
+                .setMinRating(1d)
+                .createDriverSearchDTO()));
+
+            Assertions.assertEquals(List.of(6L), rated.stream().map(DriverDO::getId).collect(Collectors.toList()));
+        });
+    }
+
+
+    @Test
+    public void searchBoundingBoxWrapsAroundTheAntimeridian()
+    {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            status.setRollbackOnly();
+            jdbcTemplate.update("insert into driver (id, latitude, longitude, date_coordinate_updated, date_created, deleted,"
+                + " online_status, password, username) values (901, 0, 179.99, now(), now(), false, 'ONLINE', 'pw', 'date-line')");
+
+            List<DriverDO> drivers = driverRepository.findAll(DriverSearchSpecification.of(DriverSearchDTO.newBuilder()
+                .setUsername("date-line")
+                .setLatitude(0d)
+                .setLongitude(-179.99d)
+                .setRadiusKm(5d)
+                .createDriverSearchDTO()));
+
+            Assertions.assertEquals(List.of(901L), drivers.stream().map(DriverDO::getId).collect(Collectors.toList()));
+        });
+    }
+
+
+    @Test
+    public void isCarSelectedByOtherOnlineDriver()
+    {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            status.setRollbackOnly();
+            jdbcTemplate.update("update driver set car_id = 1 where id = 4");
+            jdbcTemplate.update("update driver set car_id = 2 where id = 1");
+
+            Assertions.assertTrue(driverRepository.isCarSelectedByOtherOnlineDriver(1L, 5L));
+            Assertions.assertFalse(driverRepository.isCarSelectedByOtherOnlineDriver(1L, 4L));
+            Assertions.assertFalse(driverRepository.isCarSelectedByOtherOnlineDriver(2L, 5L));
+        });
+    }
+
+
+    /**
+     * Runs against a scratch table, the seeded drivers and the schema of the shared database stay untouched.
+     */
+    @Test
+    public void migrateLegacyCoordinateColumn()
+    {
+        jdbcTemplate.execute("create table legacy_driver (id bigint primary key, latitude double, longitude double, coordinate varbinary(255))");
+        try
+        {
+            for (long id : new long[] {3, 5, 6})
+            {
+                jdbcTemplate.update("insert into legacy_driver (id, coordinate) values (?, ?)",
+                    id, SerializationUtils.serialize(new Point(11.57, 48.13)));
+            }
+            jdbcTemplate.update("insert into legacy_driver (id, latitude, longitude) values (4, 53.55, 9.99)");
+            LegacyCoordinateMigration migration = new LegacyCoordinateMigration(jdbcTemplate, "legacy_driver", 2, true);
+
+            int migrated = migration.migrate();
+
+            Assertions.assertEquals(3, migrated);
+            Map<String, Object> row = jdbcTemplate.queryForMap("select latitude, longitude from legacy_driver where id = 6");
+            Assertions.assertEquals(48.13, row.get("LATITUDE"));
+            Assertions.assertEquals(11.57, row.get("LONGITUDE"));
+            Assertions.assertEquals(0, migration.migrate());
+            Assertions.assertTrue(migration.dropLegacyColumn());
+            Assertions.assertEquals(0, migration.migrate());
+        }
+        finally
+        {
+            jdbcTemplate.execute("drop table if exists legacy_driver");
+        }
+    }
+
+
+    @Test
+    public void legacyCoordinateColumnIsKeptWhileRowsAreNotMigrated()
+    {
+        jdbcTemplate.execute("create table legacy_driver (id bigint primary key, latitude double, longitude double, coordinate varbinary(255))");
+        try
+        {
+            jdbcTemplate.update("insert into legacy_driver (id, coordinate) values (3, ?)",
+                (Object) SerializationUtils.serialize(new Point(11.57, 48.13)));
+
+            Assertions.assertFalse(new LegacyCoordinateMigration(jdbcTemplate, "legacy_driver", 2, true).dropLegacyColumn());
+            Assertions.assertEquals(1, jdbcTemplate.queryForObject("select count(*) from legacy_driver where coordinate is not null", Integer.class));
+        }
+        finally
+        {
+            jdbcTemplate.execute("drop table if exists legacy_driver");
+        }
+    }
+
+
+    private List<Long> onlineDriverIds()
+    {
+        return jdbcTemplate.queryForList("select id from driver where online_status = 'ONLINE' order by id", Long.class);
+    }
+}
@@ -0,0 +1,90 @@
+package com.freenow.dataaccessobject;
+
+import com.freenow.FreeNowServerApplicantTestApplication;
+import com.freenow.domainvalue.LocationPing;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(classes = FreeNowServerApplicantTestApplication.class)
+public class LocationHistoryRepositoryTest
+{
+
+    private static final ZonedDateTime DAY_ONE = ZonedDateTime.of(2020, 1, 1, 23, 50, 0, 0, ZoneOffset.UTC);
+
+    @Autowired
+    private LocationHistoryRepository historyRepository;
+
+
+    @AfterEach
+    public void tearDown()
+    {
+        historyRepository.dropPartitionsBefore(LocalDate.of(2020, 2, 1));
+    }
+
+
+    @Test
+    public void appendsIntoDayPartitionsAndQueriesAcrossThem()
+    {
+        historyRepository.append(Arrays.asList(
+            new LocationPing(1L, 53.55, 9.99, DAY_ONE.plusMinutes(20)),
+            new LocationPing(1L, 53.54, 9.98, DAY_ONE),
+            new LocationPing(2L, 48.13, 11.57, DAY_ONE.plusMinutes(5)),
+            new LocationPing(1L, 53.56, 9.97, DAY_ONE.plusDays(1))));
+
+        Assertions.assertTrue(historyRepository.partitions().containsAll(Arrays.asList(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 2))));
+
+        List<LocationPing> history = historyRepository.findBetween(1L, DAY_ONE, DAY_ONE.plusHours(1), 100);
+        Assertions.assertEquals(Arrays.asList(53.54, 53.55), history.stream().map(LocationPing::getLatitude).collect(Collectors.toList()));
+        Assertions.assertEquals(DAY_ONE.toInstant(), history.get(0).getTimestamp().toInstant());
+
+        Assertions.assertEquals(1, historyRepository.findBetween(1L, DAY_ONE, DAY_ONE.plusDays(2), 1).size());
+        Assertions.assertTrue(historyRepository.findBetween(1L, DAY_ONE.plusDays(5), DAY_ONE.plusDays(6), 100).isEmpty());
+    }
+
+
+    @Test
+    public void reversedRangeIsEmpty()
+    {
+        historyRepository.append(Arrays.asList(new LocationPing(1L, 53.54, 9.98, DAY_ONE)));
+
+        Assertions.assertTrue(historyRepository.findBetween(1L, DAY_ONE.plusDays(2), DAY_ONE.minusDays(1), 100).isEmpty());
+    }
+
+
+    @Test
+    public void futurePingsCreateNoPartition()
+    {
+        ZonedDateTime future = ZonedDateTime.now(ZoneOffset.UTC).plusYears(1);
+
+        historyRepository.append(Arrays.asList(new LocationPing(1L, 53.54, 9.98, future)));
+
+        Assertions.assertFalse(historyRepository.partitions().contains(future.toLocalDate()));
+    }
+
+
+    @Test
+    public void retentionDropsWholePartitions()
+    {
+        historyRepository.append(Arrays.asList(
+            new LocationPing(1L, 53.54, 9.98, DAY_ONE),
+            new LocationPing(1L, 53.56, 9.97, DAY_ONE.plusDays(1))));
+
+        List<LocalDate> dropped = historyRepository.dropPartitionsBefore(LocalDate.of(2020, 1, 2));
+
+        Assertions.assertEquals(Arrays.asList(LocalDate.of(2020, 1, 1)), dropped);
+        Assertions.assertEquals(1, historyRepository.findBetween(1L, DAY_ONE.minusDays(1), DAY_ONE.plusDays(2), 100).size());
+    }
+}
@@ -0,0 +1,62 @@
+package com.freenow.security;
+
+import com.freenow.controller.payload.UserVO;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class JwtUtilTest
+{
+
+    private static final String SECRET = "BvPHGM8C0ia4uOuxxqPD5DTbWC9F9TWvPStp3pb7ARo0oK2mJ3pd3YG4lxA9i8bj6OTbadwezxgeEByY";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final JwtUtil jwtUtil = new JwtUtil(SECRET, "60", 100, meterRegistry);
+
+
+    @Test
+    public void claimsAreCachedPerToken()
+    {
+        String token = jwtUtil.generate(user(), "ACCESS");
+
+        Claims first = jwtUtil.getAllClaimsFromToken(token);
+        Claims second = jwtUtil.getAllClaimsFromToken(token);
+
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals("deneme", second.get("userName"));
+        Assertions.assertFalse(jwtUtil.isInvalid(token));
+        Assertions.assertEquals(2d, meterRegistry.get("cache.gets").tag("cache", "jwtClaims").tag("result", "hit").functionCounter().count());
+    }
+
+
+    @Test
+    public void tamperedTokenIsRejected()
+    {
+        String token = jwtUtil.generate(user(), "ACCESS");
+        JwtUtil otherKey = new JwtUtil(SECRET.replace('B', 'C'), "60", 100, new SimpleMeterRegistry());
+
+        assertThrows(JwtException.class, () -> otherKey.getAllClaimsFromToken(token));
+    }
+
+
+    @Test
+    public void expiredTokenIsRejected()
+    {
+        String token = jwtUtil.generate(user(), "REFRESH");
+
+        assertThrows(JwtException.class, () -> jwtUtil.getAllClaimsFromToken(token));
+    }
+
+
+    private static UserVO user()
+    {
+        UserVO user = new UserVO();
+        user.setRole("USER");
+        user.setUserName("deneme");
+        return user;
+    }
+}
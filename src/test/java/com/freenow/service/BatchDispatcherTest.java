@@ -0,0 +1,166 @@
+package com.freenow.service;
+
+import com.freenow.domainobject.CarDO;
+import com.freenow.domainvalue.DriverMatch;
+import com.freenow.domainvalue.DriverUpdate;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.domainvalue.RideRequest;
+import com.freenow.exception.EntityNotFoundException;
+import com.freenow.service.car.CarService;
+import com.freenow.service.driver.DriverService;
+import com.freenow.service.driver.DriverUpdateEvent;
+import com.freenow.service.geo.GeoGridIndex;
+import com.freenow.service.matching.BatchDispatcher;
+import com.freenow.service.matching.DefaultMatchingService;
+import com.freenow.service.matching.MatchingService;
+import com.freenow.service.matching.WeightedMatchScorer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class BatchDispatcherTest
+{
+
+    private CarService carService;
+    private GeoGridIndex locationIndex;
+    private DefaultMatchingService matchingService;
+    private BatchDispatcher dispatcher;
+
+
+    @BeforeEach
+    public void setUp()
+    {
+        carService = Mockito.mock(CarService.class);
+        locationIndex = new GeoGridIndex(0.01);
+        matchingService = new DefaultMatchingService(
+            Mockito.mock(DriverService.class), carService, locationIndex, new WeightedMatchScorer(1.0, 0.3, 0.2, 100), new SimpleMeterRegistry(), 50, 30);
+        dispatcher = new BatchDispatcher(matchingService, new SimpleMeterRegistry(), 2, 5, 0.05, 2, 2000);
+    }
+
+
+    @AfterEach
+    public void tearDown()
+    {
+        dispatcher.shutdown();
+    }
+
+
+    @Test
+    public void assignsGloballyInsteadOfFirstComeFirstServed() throws EntityNotFoundException
+    {
+        // the convertible is the closest driver for both rides, but only the second ride has no other choice
+        online(1L, 53.5200, 9.9900, new CarDO(11L, "HH-1", 4, true, "5", "gas"));
+        online(2L, 53.5150, 9.9900, new CarDO(12L, "HH-2", 4, false, "5", "gas"));
+        CompletableFuture<Optional<DriverMatch>> first = dispatcher.submit(new RideRequest(53.5195, 9.9900, 5, 1, null, null, null));
+        CompletableFuture<Optional<DriverMatch>> second = dispatcher.submit(new RideRequest(53.5210, 9.9900, 5, 1, null, true, null));
+
+        BatchDispatcher.TickReport report = dispatcher.tick();
+
+        Assertions.assertEquals(2L, first.join().map(DriverMatch::getDriverId).orElse(null));
+        Assertions.assertEquals(1L, second.join().map(DriverMatch::getDriverId).orElse(null));
+        Assertions.assertEquals(2, report.getAssigned());
+        Assertions.assertEquals(1, report.getGreedyAssignments());
+        Assertions.assertTrue(matchingService.match(new RideRequest(53.5200, 9.9900, 5, 5, null, null, null)).isEmpty());
+    }
+
+
+    @Test
+    public void claimedDriversAreNotDispatchedAgain() throws EntityNotFoundException
+    {
+        online(1L, 53.5500, 9.9900, new CarDO(11L, "HH-1", 4, false, "5", "gas"));
+        CompletableFuture<Optional<DriverMatch>> first = dispatcher.submit(new RideRequest(53.5500, 9.9900, 5, 1, null, null, null));
+        dispatcher.tick();
+        CompletableFuture<Optional<DriverMatch>> second = dispatcher.submit(new RideRequest(53.5500, 9.9900, 5, 1, null, null, null));
+        dispatcher.tick();
+
+        Assertions.assertTrue(first.join().isPresent());
+        Assertions.assertFalse(second.join().isPresent());
+
+        matchingService.release(1L);
+        Assertions.assertEquals(1, matchingService.match(new RideRequest(53.5500, 9.9900, 5, 5, null, null, null)).size());
+    }
+
+
+    @Test
+    public void startedDispatcherTicksOnItsOwn() throws Exception
+    {
+        online(1L, 53.5500, 9.9900, new CarDO(11L, "HH-1", 4, false, "5", "gas"));
+        BatchDispatcher ticking = new BatchDispatcher(matchingService, new SimpleMeterRegistry(), 2, 5, 0.05, 2, 10);
+        try
+        {
+            ticking.start();
+            CompletableFuture<Optional<DriverMatch>> ride = ticking.submit(new RideRequest(53.5500, 9.9900, 5, 1, null, null, null));
+
+            Assertions.assertEquals(1L, ride.get(5, TimeUnit.SECONDS).map(DriverMatch::getDriverId).orElse(null));
+        }
+        finally
+        {
+            ticking.shutdown();
+        }
+    }
+
+
+    @Test
+    public void rejectsRidesBeyondCapacity()
+    {
+        dispatcher.submit(new RideRequest(53.55, 9.99, 5, 1, null, null, null));
+        dispatcher.submit(new RideRequest(53.55, 9.99, 5, 1, null, null, null));
+
+        Assertions.assertThrows(RejectedExecutionException.class, () -> dispatcher.submit(new RideRequest(53.55, 9.99, 5, 1, null, null, null)));
+        Assertions.assertEquals(2, dispatcher.tick().getRequests());
+        Assertions.assertEquals(0, dispatcher.pendingCount());
+    }
+
+
+    @Test
+    public void failingCellCompletesItsRidesAndReleasesItsClaims()
+    {
+        MatchingService failingService = Mockito.mock(MatchingService.class);
+        BatchDispatcher failingDispatcher = new BatchDispatcher(failingService, new SimpleMeterRegistry(), 2, 5, 0.05, 2, 2000);
+        RideRequest first = new RideRequest(53.5300, 9.9800, 5, 1, null, null, null);
+        RideRequest second = new RideRequest(53.5310, 9.9800, 5, 1, null, null, null);
+        Mockito.when(failingService.match(Mockito.any())).thenAnswer(invocation -> {
+            RideRequest request = invocation.getArgument(0);
+            return request.getLatitude() == first.getLatitude()
+                ? List.of(new DriverMatch(1L, 11L, 53.5300, 9.9800, 0.1, 1.0))
+                : List.of(new DriverMatch(2L, 12L, 53.5310, 9.9800, 0.1, 1.0));
+        });
+        Mockito.when(failingService.claim(1L)).thenReturn(true);
+        Mockito.when(failingService.claim(2L)).thenThrow(new IllegalStateException("claim store unavailable"));
+        try
+        {
+            CompletableFuture<Optional<DriverMatch>> claimed = failingDispatcher.submit(first);
+            CompletableFuture<Optional<DriverMatch>> failed = failingDispatcher.submit(second);
+
+            BatchDispatcher.TickReport report = failingDispatcher.tick();
+
+            Assertions.assertTrue(claimed.isCompletedExceptionally());
+            Assertions.assertTrue(failed.isCompletedExceptionally());
+            Assertions.assertEquals(0, report.getAssigned());
+            Mockito.verify(failingService).release(1L);
+        }
+        finally
+        {
+            failingDispatcher.shutdown();
+        }
+    }
+
+
+    private void online(long driverId, double latitude, double longitude, CarDO carDO) throws EntityNotFoundException
+    {
+        Mockito.when(carService.find(carDO.getId())).thenReturn(carDO);
+        locationIndex.update(driverId, latitude, longitude);
+        matchingService.onDriverUpdate(new DriverUpdateEvent(
+            new DriverUpdate(driverId, latitude, longitude, OnlineStatus.ONLINE, false, carDO.getId(), ZonedDateTime.now())));
+    }
+}
@@ -0,0 +1,50 @@
+package com.freenow.service;
+
+import com.freenow.domainobject.CarDO;
+import com.freenow.service.car.CarCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CarCacheTest
+{
+
+    @Test
+    public void hitsAndMissesAreReported()
+    {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CarCache carCache = new CarCache(true, 100, 300, meterRegistry);
+        CarDO car = new CarDO(1L, "abc", 4, false, "12", "electric");
+
+        CarDO first = carCache.get(1L, id -> car);
+        CarDO second = carCache.get(1L, id -> null);
+
+        Assertions.assertNotSame(car, first);
+        Assertions.assertNotSame(first, second);
+        Assertions.assertEquals("abc", second.getLicensePlate());
+        Assertions.assertNull(carCache.get(2L, id -> null));
+        Assertions.assertEquals(1d, meterRegistry.get("cache.gets").tag("cache", "cars").tag("result", "hit").functionCounter().count());
+        Assertions.assertEquals(2d, meterRegistry.get("cache.gets").tag("cache", "cars").tag("result", "miss").functionCounter().count());
+    }
+
+
+    @Test
+    public void disabledCacheAlwaysLoads()
+    {
+        CarCache carCache = new CarCache(false, 100, 300, new SimpleMeterRegistry());
+        AtomicInteger loads = new AtomicInteger();
+
+        carCache.get(1L, id -> {
+            loads.incrementAndGet();
+            return new CarDO(id, "abc", 4, false, "12", "electric");
+        });
+        carCache.get(1L, id -> {
+            loads.incrementAndGet();
+            return new CarDO(id, "abc", 4, false, "12", "electric");
+        });
+
+        Assertions.assertEquals(2, loads.get());
+    }
+}
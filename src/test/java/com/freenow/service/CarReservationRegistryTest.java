@@ -0,0 +1,95 @@
+package com.freenow.service;
+
+import com.freenow.service.car.CarReservationRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class CarReservationRegistryTest
+{
+
+    @Test
+    public void claimIsExclusiveAndIdempotent()
+    {
+        CarReservationRegistry registry = new CarReservationRegistry();
+
+        Assertions.assertTrue(registry.claim(1L, 10L));
+        Assertions.assertTrue(registry.claim(1L, 10L));
+        Assertions.assertFalse(registry.claim(1L, 20L));
+        Assertions.assertTrue(registry.isClaimedByOther(1L, 20L));
+        Assertions.assertEquals(Optional.of(10L), registry.owner(1L));
+    }
+
+
+    @Test
+    public void releaseOnlyByOwner()
+    {
+        CarReservationRegistry registry = new CarReservationRegistry();
+        registry.claim(1L, 10L);
+
+        Assertions.assertFalse(registry.release(1L, 20L));
+        Assertions.assertEquals(Optional.of(10L), registry.owner(1L));
+        Assertions.assertTrue(registry.release(1L, 10L));
+        Assertions.assertTrue(registry.claim(1L, 20L));
+    }
+
+
+    @Test
+    public void noDoubleBookingUnderContention() throws InterruptedException
+    {
+        CarReservationRegistry registry = new CarReservationRegistry();
+        int cars = 1000;
+        int drivers = 32;
+        // successful claims per car, every car has to end up with exactly one
+        AtomicLongArray claims = new AtomicLongArray(cars);
+
+        ExecutorService executor = Executors.newFixedThreadPool(drivers);
+        CountDownLatch start = new CountDownLatch(1);
+        for (long driverId = 1; driverId <= drivers; driverId++)
+        {
+            long driver = driverId;
+            executor.execute(() -> {
+                List<Integer> order = new ArrayList<>(cars);
+                for (int car = 0; car < cars; car++)
+                {
+                    order.add(car);
+                }
+                Collections.shuffle(order);
+                try
+                {
+                    start.await();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int car : order)
+                {
+                    if (registry.claim(car, driver))
+                    {
+                        claims.incrementAndGet(car);
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        for (int car = 0; car < cars; car++)
+        {
+            Assertions.assertEquals(1, claims.get(car), "claims of car " + car);
+        }
+        Assertions.assertEquals(cars, registry.size());
+    }
+}
@@ -5,8 +5,10 @@ import com.freenow.dataaccessobject.CarRepository;
 import com.freenow.domainobject.CarDO;
 import com.freenow.exception.ConstraintsViolationException;
 import com.freenow.exception.EntityNotFoundException;
+import com.freenow.service.car.CarCache;
 import com.freenow.service.car.CarService;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
@@ -35,6 +37,16 @@ public class CarServiceTest
     @MockBean
     protected CarRepository carRepository;
 
+    @Autowired
+    protected CarCache carCache;
+
+
+    @BeforeEach
+    public void setUp()
+    {
+        carCache.invalidateAll();
+    }
+
 
     @Test
     public void create() throws ConstraintsViolationException
@@ -135,6 +147,37 @@ public class CarServiceTest
     }
 
 
+    @Test
+    public void findIsCached() throws EntityNotFoundException
+    {
+        CarDO car = carFactory();
+        Mockito.when(carRepository.findById(car.getId())).thenReturn(Optional.of(car));
+
+        CarDO first = carService.find(car.getId());
+        first.setSeatCount(99);
+        CarDO second = carService.find(car.getId());
+
+        Mockito.verify(carRepository, Mockito.times(1)).findById(car.getId());
+        Assertions.assertEquals(car.getSeatCount(), second.getSeatCount());
+    }
+
+
+    @Test
+    public void updateInvalidatesCache() throws EntityNotFoundException
+    {
+        CarDO car = carFactory();
+        Mockito.when(carRepository.findById(car.getId())).thenReturn(Optional.of(car));
+        carService.find(car.getId());
+
+        CarDO carNew = carFactory();
+        carNew.setSeatCount(2);
+        Mockito.when(carRepository.findById(car.getId())).thenReturn(Optional.of(carNew));
+        carService.update(carNew);
+
+        Assertions.assertEquals(2, carService.find(car.getId()).getSeatCount());
+    }
+
+
     private CarDO carFactory()
     {
         CarDO car = new CarDO();
@@ -0,0 +1,121 @@
+package com.freenow.service;
+
+import com.freenow.FreeNowServerApplicantTestApplication;
+import com.freenow.datatransferobject.DriverDTO;
+import com.freenow.datatransferobject.DriverSearchDTO;
+import com.freenow.domainobject.DriverDO;
+import com.freenow.domainvalue.DriverSummary;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.service.driver.DriverService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Every driver listing has to be served by a single SQL statement, independent of the number of drivers and cars.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+    classes = FreeNowServerApplicantTestApplication.class,
+    properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class DriverListingStatementCountTest
+{
+
+    @Autowired
+    private DriverService driverService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+
+    @BeforeEach
+    public void setUp()
+    {
+        jdbcTemplate.update("update driver set car_id = 1 where id = 4");
+        jdbcTemplate.update("update driver set car_id = 2 where id = 5");
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+
+    @AfterEach
+    public void tearDown()
+    {
+        jdbcTemplate.update("update driver set car_id = null where id in (4, 5)");
+    }
+
+
+    @Test
+    public void findSummaries()
+    {
+        List<DriverSummary> drivers = driverService.findSummaries(OnlineStatus.ONLINE);
+
+        Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(0, statistics.getEntityLoadCount());
+        Assertions.assertEquals("electric", drivers.get(0).getEngineType());
+    }
+
+
+    @Test
+    public void findPage()
+    {
+        List<DriverSummary> drivers = driverService.findPage(OnlineStatus.ONLINE, 0, 10);
+
+        Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(0, statistics.getEntityLoadCount());
+        Assertions.assertEquals(Long.valueOf(2), drivers.get(1).getCarId());
+    }
+
+
+    @Test
+    public void search()
+    {
+        List<DriverDO> drivers = driverService.search(DriverSearchDTO.newBuilder()
+            .setOnlineStatus(OnlineStatus.ONLINE)
+            .setMinSeatCount(2)
+            .createDriverSearchDTO());
+
+        Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(2, drivers.size());
+    }
+
+
+    @Test
+    public void stream()
+    {
+        List<DriverDO> drivers = new ArrayList<>();
+        driverService.stream(OnlineStatus.ONLINE, drivers::add);
+
+        Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+        Assertions.assertEquals("electric", drivers.get(0).getCarDO().getEngineType());
+    }
+
+
+    @Test
+    public void streamDriverByParams()
+    {
+        List<DriverDO> drivers = new ArrayList<>();
+        driverService.streamDriverByParams(DriverDTO.newBuilder().createDriverDTO(), drivers::add);
+
+        Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(0, statistics.getSecondLevelCachePutCount());
+        Assertions.assertEquals("electric", drivers.get(0).getCarDO().getEngineType());
+    }
+}
@@ -0,0 +1,86 @@
+package com.freenow.service;
+
+import com.freenow.dataaccessobject.DriverRepository;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.service.driver.DriverPresence;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class DriverPresenceTest
+{
+
+    private final DriverRepository driverRepository = Mockito.mock(DriverRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DriverPresence presence = new DriverPresence(driverRepository, meterRegistry, 60, 600, 1000);
+
+
+    @Test
+    public void onlineDriversAreListedInIdOrder()
+    {
+        presence.online(9L);
+        presence.online(3L);
+        presence.online(5L);
+        presence.offline(5L);
+
+        Assertions.assertEquals(List.of(3L, 9L), new ArrayList<>(presence.onlineIds()));
+        Assertions.assertEquals(2, presence.onlineCount());
+        Assertions.assertFalse(presence.online(3L));
+        Assertions.assertFalse(presence.offline(5L));
+    }
+
+
+    @Test
+    public void driversWithoutHeartbeatExpire()
+    {
+        long now = System.currentTimeMillis();
+        presence.online(1L);
+        presence.online(2L);
+        List<Long> expired = new ArrayList<>();
+
+        Assertions.assertEquals(0, presence.expire(now + 30_000, expired::add));
+        Assertions.assertTrue(presence.heartbeat(2L));
+        presence.offline(2L);
+        Assertions.assertEquals(1, presence.expire(now + 62_000, expired::add));
+
+        Assertions.assertEquals(List.of(1L), expired);
+        Assertions.assertFalse(presence.isOnline(1L));
+        Assertions.assertFalse(presence.heartbeat(1L));
+        Assertions.assertEquals(1d, meterRegistry.counter("driver.presence.expired").count());
+    }
+
+
+    @Test
+    public void loadedDriversGetTheStartupGrace()
+    {
+        long now = System.currentTimeMillis();
+        presence.load(List.of(4L), now);
+
+        Assertions.assertEquals(0, presence.expire(now + 62_000, id -> { }));
+        Assertions.assertEquals(1, presence.expire(now + 602_000, id -> { }));
+        Assertions.assertEquals(Optional.of(OnlineStatus.OFFLINE), presence.unpersistedStatus(4L));
+    }
+
+
+    @Test
+    public void flushWritesTheLatestStatuses()
+    {
+        presence.load(List.of(4L), System.currentTimeMillis());
+        presence.online(1L);
+        presence.online(2L);
+        presence.offline(2L);
+        presence.offline(4L);
+
+        presence.flush();
+
+        Mockito.verify(driverRepository).updateOnlineStatuses(
+            Map.of(1L, OnlineStatus.ONLINE, 2L, OnlineStatus.OFFLINE, 4L, OnlineStatus.OFFLINE));
+        Assertions.assertFalse(presence.hasUnpersisted());
+    }
+}
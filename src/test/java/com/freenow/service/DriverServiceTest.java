@@ -5,29 +5,46 @@ import com.freenow.controller.mapper.DriverMapper;
 import com.freenow.dataaccessobject.CarRepository;
 import com.freenow.dataaccessobject.DriverRepository;
 import com.freenow.datatransferobject.CarSelectDTO;
+import com.freenow.datatransferobject.DriverLocationDTO;
+import com.freenow.datatransferobject.DriverSearchDTO;
 import com.freenow.domainobject.CarDO;
 import com.freenow.domainobject.DriverDO;
 import com.freenow.domainvalue.GeoCoordinate;
+import com.freenow.domainvalue.LocationUpdateStatus;
 import com.freenow.domainvalue.OnlineStatus;
 import com.freenow.exception.CarAlreadyInUseException;
 import com.freenow.exception.ConstraintsViolationException;
 import com.freenow.exception.EntityNotFoundException;
+import com.freenow.service.car.CarReservationRegistry;
 import com.freenow.service.car.CarService;
 import com.freenow.service.driver.DriverService;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -50,6 +67,9 @@ public class DriverServiceTest
     @Autowired
     private CarService carService;
 
+    @Autowired
+    private CarReservationRegistry carReservationRegistry;
+
 
     @Test
     public void create() throws ConstraintsViolationException
@@ -113,6 +133,42 @@ public class DriverServiceTest
     }
 
 
+    @Test
+    public void updateLocations()
+    {
+        ZonedDateTime now = ZonedDateTime.now();
+        List<DriverLocationDTO> locations = List.of(
+            new DriverLocationDTO(1L, 53.55, 9.99, now.minusSeconds(5)),
+            new DriverLocationDTO(1L, 53.56, 9.98, now),
+            new DriverLocationDTO(2L, 53.55, 9.99, now),
+            new DriverLocationDTO(3L, 53.55, 9.99, now),
+            new DriverLocationDTO(4L, 95d, 9.99, now),
+            new DriverLocationDTO(5L, 53.55, 9.99, now.plusHours(1)));
+        Mockito.when(driverRepository.updateLocations(Mockito.anyList())).thenReturn(new int[] {1, 0, 0});
+        Mockito.when(driverRepository.findExistingDriverIds(Mockito.anyCollection())).thenReturn(List.of(2L));
+
+        List<LocationUpdateStatus> statuses = driverService.updateLocations(locations);
+
+        Assertions.assertEquals(
+            List.of(
+                LocationUpdateStatus.STALE, LocationUpdateStatus.UPDATED, LocationUpdateStatus.STALE,
+                LocationUpdateStatus.NOT_FOUND, LocationUpdateStatus.INVALID, LocationUpdateStatus.INVALID),
+            statuses);
+        Mockito.verify(driverRepository, Mockito.never()).findById(Mockito.any());
+    }
+
+
+    @Test
+    public void updateLocationsRejectsOversizedBatch()
+    {
+        List<DriverLocationDTO> locations = Collections.nCopies(
+            DriverService.MAX_LOCATION_BATCH_SIZE + 1, new DriverLocationDTO(1L, 53.55, 9.99, null));
+
+        assertThrows(IllegalArgumentException.class, () -> driverService.updateLocations(locations));
+        Mockito.verify(driverRepository, Mockito.never()).updateLocations(Mockito.anyList());
+    }
+
+
     @Test
     public void find() throws EntityNotFoundException
     {
@@ -128,16 +184,51 @@ public class DriverServiceTest
 
 
     @Test
-    public void findAll()
+    public void findAll() throws EntityNotFoundException, CarAlreadyInUseException
     {
         DriverDO driver = driverFactory();
-        List<DriverDO> driverDOList = new ArrayList<>();
-        driverDOList.add(driver);
-        Mockito.when(driverRepository.findByOnlineStatus(OnlineStatus.ONLINE)).thenReturn(driverDOList);
-
+        driver.setId(42L);
+        driver.setOnlineStatus(OnlineStatus.OFFLINE);
         Mockito.when(driverRepository.findById(driver.getId())).thenReturn(Optional.of(driver));
+        Mockito.when(driverRepository.findWithCarByIds(Mockito.anyCollection())).thenReturn(new ArrayList<>(List.of(driver)));
+
+        driverService.updateStatus(driver.getId(), OnlineStatus.ONLINE);
         List<DriverDO> returnedDOList = driverService.find(OnlineStatus.ONLINE);
         Assertions.assertEquals(returnedDOList.get(0).getOnlineStatus(), OnlineStatus.ONLINE);
+        driverService.updateStatus(driver.getId(), OnlineStatus.OFFLINE);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<Long>> ids = ArgumentCaptor.forClass(Collection.class);
+        Mockito.verify(driverRepository).findWithCarByIds(ids.capture());
+        Assertions.assertTrue(ids.getValue().contains(driver.getId()));
+    }
+
+
+    @Test
+    public void heartbeatOfOnlineDriverSkipsTheDatabase() throws EntityNotFoundException, CarAlreadyInUseException
+    {
+        DriverDO driver = driverFactory();
+        driver.setId(43L);
+        Mockito.when(driverRepository.findById(driver.getId())).thenReturn(Optional.of(driver));
+
+        driverService.updateStatus(driver.getId(), OnlineStatus.ONLINE);
+        driverService.updateStatus(driver.getId(), OnlineStatus.ONLINE);
+        driverService.updateStatus(driver.getId(), OnlineStatus.OFFLINE);
+
+        Mockito.verify(driverRepository, Mockito.times(2)).findById(driver.getId());
+        Assertions.assertEquals(OnlineStatus.OFFLINE, driverService.find(driver.getId()).getOnlineStatus());
+    }
+
+
+    @Test
+    public void updateStatusOfDeletedDriver()
+    {
+        DriverDO driver = driverFactory();
+        driver.setId(44L);
+        driver.setDeleted(true);
+        Mockito.when(driverRepository.findById(driver.getId())).thenReturn(Optional.of(driver));
+
+        assertThrows(EntityNotFoundException.class, () -> driverService.updateStatus(driver.getId(), OnlineStatus.ONLINE));
     }
 
 
@@ -151,6 +242,7 @@ public class DriverServiceTest
 
         Mockito.when(driverRepository.findById(driver.getId())).thenReturn(Optional.of(driver));
         Mockito.when(carRepository.findById(driver.getCarDO().getId())).thenReturn(Optional.of(car));
+        Mockito.when(carRepository.findLockedById(driver.getCarDO().getId())).thenReturn(Optional.of(car));
 
         CarSelectDTO carSelectDTO = new CarSelectDTO();
         carSelectDTO.setDriverId(driver.getId());
@@ -159,20 +251,27 @@ public class DriverServiceTest
 
         DriverDO returnedDriver = driverService.find(driver.getId());
         Assertions.assertEquals(returnedDriver.getCarDO(), car);
+        Assertions.assertEquals(Optional.of(driver.getId()), carReservationRegistry.owner(car.getId()));
     }
 
 
     @Test
-    public void selectCarAlreadyInUse()
+    public void selectCarAlreadyInUse() throws EntityNotFoundException, CarAlreadyInUseException
     {
-        DriverDO driver = driverFactory();
         CarDO car = new CarDO();
-        car.setId(4l);
-        driver.setCarDO(car);
-        Mockito.when(driverRepository.findByOnlineStatusIsAndCarDOId(OnlineStatus.ONLINE, driver.getCarDO().getId())).thenReturn(driver);
+        car.setId(5l);
+        DriverDO owner = driverFactory();
+        owner.setId(2L);
+        DriverDO driver = driverFactory();
 
+        Mockito.when(driverRepository.findById(owner.getId())).thenReturn(Optional.of(owner));
         Mockito.when(driverRepository.findById(driver.getId())).thenReturn(Optional.of(driver));
-        Mockito.when(carRepository.findById(driver.getCarDO().getId())).thenReturn(Optional.of(car));
+        Mockito.when(carRepository.findLockedById(car.getId())).thenReturn(Optional.of(car));
+
+        CarSelectDTO ownerSelectDTO = new CarSelectDTO();
+        ownerSelectDTO.setDriverId(owner.getId());
+        ownerSelectDTO.setCarId(car.getId());
+        driverService.selectCar(ownerSelectDTO);
 
         CarSelectDTO carSelectDTO = new CarSelectDTO();
         carSelectDTO.setDriverId(driver.getId());
@@ -181,7 +280,79 @@ public class DriverServiceTest
             driverService.selectCar(carSelectDTO);
         });
         Assertions.assertEquals(exception.getClass(), CarAlreadyInUseException.class);
+        Assertions.assertEquals(Optional.of(owner.getId()), carReservationRegistry.owner(car.getId()));
+    }
 
+
+    @Test
+    public void selectCarHeldByOnlineDriverOfAnotherInstance()
+    {
+        CarDO car = new CarDO();
+        car.setId(9l);
+        DriverDO driver = driverFactory();
+        driver.setId(45L);
+
+        Mockito.when(driverRepository.findById(driver.getId())).thenReturn(Optional.of(driver));
+        Mockito.when(carRepository.findLockedById(car.getId())).thenReturn(Optional.of(car));
+        Mockito.when(driverRepository.isCarSelectedByOtherOnlineDriver(car.getId(), driver.getId())).thenReturn(true);
+
+        CarSelectDTO carSelectDTO = new CarSelectDTO();
+        carSelectDTO.setDriverId(driver.getId());
+        carSelectDTO.setCarId(car.getId());
+
+        assertThrows(CarAlreadyInUseException.class, () -> driverService.selectCar(carSelectDTO));
+        Assertions.assertEquals(Optional.empty(), carReservationRegistry.owner(car.getId()));
+        Mockito.verify(driverRepository, Mockito.never()).save(driver);
+    }
+
+
+    @Test
+    public void selectCarConcurrently() throws InterruptedException
+    {
+        CarDO car = new CarDO();
+        car.setId(6l);
+        Mockito.when(carRepository.findLockedById(car.getId())).thenReturn(Optional.of(car));
+        int drivers = 16;
+        for (long id = 100; id < 100 + drivers; id++)
+        {
+            DriverDO driver = driverFactory();
+            driver.setId(id);
+            Mockito.when(driverRepository.findById(id)).thenReturn(Optional.of(driver));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(drivers);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger selected = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        for (long id = 100; id < 100 + drivers; id++)
+        {
+            CarSelectDTO carSelectDTO = new CarSelectDTO();
+            carSelectDTO.setDriverId(id);
+            carSelectDTO.setCarId(car.getId());
+            executor.execute(() -> {
+                try
+                {
+                    start.await();
+                    driverService.selectCar(carSelectDTO);
+                    selected.incrementAndGet();
+                }
+                catch (CarAlreadyInUseException e)
+                {
+                    rejected.incrementAndGet();
+                }
+                catch (Exception e)
+                {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        Assertions.assertEquals(1, selected.get());
+        Assertions.assertEquals(drivers - 1, rejected.get());
+        Mockito.verify(carRepository, Mockito.times(1)).findLockedById(car.getId());
     }
 
 
@@ -215,7 +386,7 @@ public class DriverServiceTest
         List<DriverDO> requestDriverList = new ArrayList<>();
         requestDriverList.add(driver);
 
-        Mockito.when(driverRepository.findByParams(Mockito.any())).thenReturn(requestDriverList);
+        Mockito.when(driverRepository.findAll(Mockito.<Specification<DriverDO>>any(), Mockito.any(Sort.class))).thenReturn(requestDriverList);
         List<DriverDO> returnedDriverList = driverService.findDriverByParams(DriverMapper.makeDriverDTO(driver));
         Assertions.assertEquals(returnedDriverList.get(0).getId(), driver.getId());
         Assertions.assertEquals(returnedDriverList.get(0).getOnlineStatus(), OnlineStatus.ONLINE);
@@ -225,6 +396,75 @@ public class DriverServiceTest
     }
 
 
+    @Test
+    public void findNearest() throws EntityNotFoundException
+    {
+        DriverDO near = driverFactory();
+        DriverDO far = driverFactory();
+        far.setId(2L);
+        Mockito.when(driverRepository.findById(near.getId())).thenReturn(Optional.of(near));
+        Mockito.when(driverRepository.findById(far.getId())).thenReturn(Optional.of(far));
+        driverService.updateLocation(near.getId(), 9.99, 53.55);
+        driverService.updateLocation(far.getId(), 10.2, 53.7);
+
+        List<DriverDO> nearDrivers = new ArrayList<>();
+        nearDrivers.add(near);
+        Mockito.when(driverRepository.findAllById(Mockito.anyIterable())).thenReturn(nearDrivers);
+
+        List<DriverDO> returnedDrivers = driverService.findNearest(53.551, 9.991, 5, 10);
+        Assertions.assertEquals(1, returnedDrivers.size());
+        Assertions.assertEquals(near.getId(), returnedDrivers.get(0).getId());
+        Mockito.verify(driverRepository).findAllById(List.of(near.getId()));
+    }
+
+
+    @Test
+    public void searchOrdersByDistance()
+    {
+        DriverDO near = driverFactory();
+        near.setCoordinate(new GeoCoordinate(53.551, 9.991));
+        DriverDO far = driverFactory();
+        far.setId(2L);
+        far.setCoordinate(new GeoCoordinate(53.57, 9.99));
+        DriverDO outside = driverFactory();
+        outside.setId(3L);
+        outside.setCoordinate(new GeoCoordinate(53.60, 10.05));
+        Mockito.when(driverRepository.findAll(Mockito.<Specification<DriverDO>>any(), Mockito.any(Sort.class)))
+            .thenReturn(new ArrayList<>(List.of(outside, far, near)));
+
+        List<DriverDO> drivers = driverService.search(DriverSearchDTO.newBuilder()
+            .setLatitude(53.55)
+            .setLongitude(9.99)
+            .setRadiusKm(3d)
+            .createDriverSearchDTO());
+
+        Assertions.assertEquals(List.of(near, far), drivers);
+    }
+
+
+    @Test
+    public void findPageCapsSize()
+    {
+        driverService.findPage(OnlineStatus.OFFLINE, 4L, 50_000);
+
+        Mockito.verify(driverRepository).findSummariesByOnlineStatusAfter(
+            OnlineStatus.OFFLINE, 4L, PageRequest.of(0, DriverService.MAX_PAGE_SIZE));
+    }
+
+
+    @Test
+    public void stream()
+    {
+        DriverDO driver = driverFactory();
+        Mockito.when(driverRepository.streamByOnlineStatus(OnlineStatus.OFFLINE)).thenReturn(Stream.of(driver));
+
+        List<DriverDO> streamed = new ArrayList<>();
+        driverService.stream(OnlineStatus.OFFLINE, streamed::add);
+
+        Assertions.assertEquals(List.of(driver), streamed);
+    }
+
+
     private DriverDO driverFactory()
     {
         DriverDO driverDO = new DriverDO("username", "password");
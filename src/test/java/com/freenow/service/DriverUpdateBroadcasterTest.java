@@ -0,0 +1,170 @@
+package com.freenow.service;
+
+import com.freenow.domainvalue.DriverUpdate;
+import com.freenow.domainvalue.GeoBoundingBox;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.service.driver.DriverUpdateBroadcaster;
+import com.freenow.service.driver.DriverUpdateEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class DriverUpdateBroadcasterTest
+{
+
+    private final DriverUpdateBroadcaster broadcaster = new DriverUpdateBroadcaster(new SimpleMeterRegistry(), 2, 10);
+
+
+    @AfterEach
+    public void tearDown()
+    {
+        broadcaster.shutdown();
+    }
+
+
+    @Test
+    public void slowSubscriberOnlyGetsLatestPosition() throws Exception
+    {
+        CountDownLatch firstBatchSent = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingQueue<List<DriverUpdate>> batches = new LinkedBlockingQueue<>();
+        broadcaster.subscribe(null, updates -> {
+            batches.add(updates);
+            firstBatchSent.countDown();
+            await(release);
+        });
+
+        broadcaster.onDriverUpdate(new DriverUpdateEvent(location(1L, 53.50)));
+        Assertions.assertTrue(firstBatchSent.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 100; i++)
+        {
+            broadcaster.onDriverUpdate(new DriverUpdateEvent(location(1L, 53.50 + i * 0.001)));
+        }
+        release.countDown();
+
+        Assertions.assertEquals(1, batches.poll(5, TimeUnit.SECONDS).size());
+        List<DriverUpdate> conflated = batches.poll(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(1, conflated.size());
+        Assertions.assertEquals(53.60, conflated.get(0).getLatitude(), 1e-9);
+        Assertions.assertNull(batches.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+
+    @Test
+    public void everySubscriberEndsUpWithTheLatestPosition() throws Exception
+    {
+        List<Map<Long, DriverUpdate>> latest = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+        {
+            Map<Long, DriverUpdate> received = new ConcurrentHashMap<>();
+            latest.add(received);
+            broadcaster.subscribe(null, updates -> updates.forEach(update -> received.put(update.getDriverId(), update)));
+        }
+
+        for (int i = 0; i <= 100; i++)
+        {
+            broadcaster.onDriverUpdate(new DriverUpdateEvent(List.of(location(1L, 53.50 + i * 0.001), location(2L, 48.00 + i * 0.001))));
+        }
+
+        for (Map<Long, DriverUpdate> received : latest)
+        {
+            for (int i = 0; i < 500 && !(near(received.get(1L), 53.60) && near(received.get(2L), 48.10)); i++)
+            {
+                Thread.sleep(10);
+            }
+            Assertions.assertEquals(53.60, received.get(1L).getLatitude(), 1e-9);
+            Assertions.assertEquals(48.10, received.get(2L).getLatitude(), 1e-9);
+        }
+    }
+
+
+    @Test
+    public void conflationKeepsStatusOfEarlierUpdate()
+    {
+        DriverUpdate status = new DriverUpdate(1L, null, null, OnlineStatus.ONLINE, false, 3L, ZonedDateTime.now());
+        DriverUpdate merged = status.mergeNewer(location(1L, 53.55));
+
+        Assertions.assertEquals(53.55, merged.getLatitude(), 1e-9);
+        Assertions.assertEquals(OnlineStatus.ONLINE, merged.getOnlineStatus());
+        Assertions.assertEquals(Long.valueOf(3L), merged.getCarId());
+    }
+
+
+    @Test
+    public void boundingBoxFiltersAndReportsLeavingDrivers() throws Exception
+    {
+        BlockingQueue<DriverUpdate> received = new LinkedBlockingQueue<>();
+        broadcaster.subscribe(new GeoBoundingBox(53.0, 54.0, 9.0, 11.0), received::addAll);
+
+        broadcaster.onDriverUpdate(new DriverUpdateEvent(location(1L, 48.13)));
+        broadcaster.onDriverUpdate(new DriverUpdateEvent(location(2L, 53.55)));
+        Assertions.assertEquals(2L, received.poll(5, TimeUnit.SECONDS).getDriverId());
+
+        broadcaster.onDriverUpdate(new DriverUpdateEvent(location(2L, 48.13)));
+        DriverUpdate leaving = received.poll(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(2L, leaving.getDriverId());
+        Assertions.assertEquals(48.13, leaving.getLatitude(), 1e-9);
+
+        broadcaster.onDriverUpdate(new DriverUpdateEvent(location(2L, 48.14)));
+        Assertions.assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+
+    @Test
+    public void failingSubscriberIsDropped() throws Exception
+    {
+        CountDownLatch failed = new CountDownLatch(1);
+        broadcaster.subscribe(null, updates -> {
+            failed.countDown();
+            throw new IOException("Broken pipe");
+        });
+        List<DriverUpdate> updates = new ArrayList<>();
+        updates.add(location(1L, 53.55));
+
+        broadcaster.onDriverUpdate(new DriverUpdateEvent(updates));
+
+        Assertions.assertTrue(failed.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 50 && broadcaster.subscriberCount() > 0; i++)
+        {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(0, broadcaster.subscriberCount());
+    }
+
+
+    private static DriverUpdate location(long driverId, double latitude)
+    {
+        return DriverUpdate.location(driverId, latitude, 10.0, ZonedDateTime.now());
+    }
+
+
+    private static boolean near(DriverUpdate update, double latitude)
+    {
+        return update != null && Math.abs(update.getLatitude() - latitude) < 1e-9;
+    }
+
+
+    private static void await(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
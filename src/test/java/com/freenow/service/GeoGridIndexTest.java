@@ -0,0 +1,87 @@
+package com.freenow.service;
+
+import com.freenow.service.geo.GeoGridIndex;
+import com.freenow.service.geo.GeoMath;
+import com.freenow.service.geo.Neighbour;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class GeoGridIndexTest
+{
+
+    @Test
+    public void nearestReturnsClosestFirst()
+    {
+        GeoGridIndex index = new GeoGridIndex(0.01);
+        index.update(1L, 53.550, 9.990);
+        index.update(2L, 53.551, 9.991);
+        index.update(3L, 53.600, 10.100);
+
+        List<Neighbour> neighbours = index.nearest(53.5505, 9.9905, 20, 2);
+
+        Assertions.assertEquals(2, neighbours.size());
+        Assertions.assertTrue(neighbours.get(0).getDistanceKm() <= neighbours.get(1).getDistanceKm());
+        Assertions.assertTrue(neighbours.stream().noneMatch(neighbour -> neighbour.getId() == 3L));
+    }
+
+
+    @Test
+    public void radiusExcludesFartherPositions()
+    {
+        GeoGridIndex index = new GeoGridIndex(0.01);
+        index.update(1L, 53.550, 9.990);
+        index.update(2L, 53.650, 9.990);
+
+        List<Neighbour> neighbours = index.withinRadius(53.550, 9.990, 5);
+
+        Assertions.assertEquals(1, neighbours.size());
+        Assertions.assertEquals(1L, neighbours.get(0).getId());
+    }
+
+
+    @Test
+    public void updateMovesAndRemoveDrops()
+    {
+        GeoGridIndex index = new GeoGridIndex(0.01);
+        index.update(1L, 53.550, 9.990);
+        index.update(1L, 48.137, 11.575);
+
+        Assertions.assertTrue(index.withinRadius(53.550, 9.990, 5).isEmpty());
+        Assertions.assertEquals(1, index.withinRadius(48.137, 11.575, 5).size());
+
+        index.remove(1L);
+        Assertions.assertFalse(index.contains(1L));
+        Assertions.assertTrue(index.withinRadius(48.137, 11.575, 5).isEmpty());
+    }
+
+
+    @Test
+    public void nearestMatchesFullScan()
+    {
+        GeoGridIndex index = new GeoGridIndex(0.01);
+        Random random = new Random(7);
+        double[][] positions = new double[5000][];
+        for (int id = 0; id < positions.length; id++)
+        {
+            positions[id] = new double[] {53.4 + random.nextDouble() * 0.4, 9.7 + random.nextDouble() * 0.4};
+            index.update(id, positions[id][0], positions[id][1]);
+        }
+
+        List<Long> expected = IntStream.range(0, positions.length)
+            .boxed()
+            .filter(id -> GeoMath.distanceKm(53.55, 9.99, positions[id][0], positions[id][1]) <= 3)
+            .sorted(Comparator.comparingDouble(id -> GeoMath.distanceKm(53.55, 9.99, positions[id][0], positions[id][1])))
+            .limit(25)
+            .map(Integer::longValue)
+            .collect(Collectors.toList());
+        List<Long> actual = index.nearest(53.55, 9.99, 3, 25).stream().map(Neighbour::getId).collect(Collectors.toList());
+
+        Assertions.assertEquals(expected, actual);
+    }
+}
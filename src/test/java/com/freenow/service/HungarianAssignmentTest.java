@@ -0,0 +1,120 @@
+package com.freenow.service;
+
+import com.freenow.service.matching.HungarianAssignment;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+public class HungarianAssignmentTest
+{
+
+    private static final double NO = Double.NaN;
+
+
+    @Test
+    public void beatsGreedyAssignment()
+    {
+        // greedy takes row 0 -> column 0 first and leaves row 1 without a driver
+        int[] assignment = HungarianAssignment.maximize(new double[][] {
+            {10, 9},
+            {8, NO}});
+
+        Assertions.assertArrayEquals(new int[] {1, 0}, assignment);
+    }
+
+
+    @Test
+    public void leavesRowsWithoutFeasiblePairUnassigned()
+    {
+        int[] assignment = HungarianAssignment.maximize(new double[][] {
+            {5, NO},
+            {4, NO},
+            {NO, NO}});
+
+        Assertions.assertArrayEquals(new int[] {0, HungarianAssignment.UNASSIGNED, HungarianAssignment.UNASSIGNED}, assignment);
+    }
+
+
+    @Test
+    public void matchesExhaustiveSearch()
+    {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++)
+        {
+            int rows = 1 + random.nextInt(5);
+            int columns = 1 + random.nextInt(5);
+            double[][] scores = new double[rows][columns];
+            for (int row = 0; row < rows; row++)
+            {
+                for (int column = 0; column < columns; column++)
+                {
+                    scores[row][column] = random.nextInt(3) == 0 ? NO : random.nextDouble() * 2 - 0.5;
+                }
+            }
+
+            int[] assignment = HungarianAssignment.maximize(scores);
+
+            double[] best = best(scores, 0, new boolean[columns]);
+            Assertions.assertEquals(best[0], assigned(assignment));
+            Assertions.assertEquals(best[1], total(scores, assignment), 1e-9);
+        }
+    }
+
+
+    /**
+     * @return the highest number of assigned rows and the highest total score among those
+     */
+    private static double[] best(double[][] scores, int row, boolean[] taken)
+    {
+        if (row == scores.length)
+        {
+            return new double[] {0, 0};
+        }
+        double[] best = best(scores, row + 1, taken);
+        for (int column = 0; column < taken.length; column++)
+        {
+            if (!taken[column] && !Double.isNaN(scores[row][column]))
+            {
+                taken[column] = true;
+                double[] rest = best(scores, row + 1, taken);
+                taken[column] = false;
+                double count = rest[0] + 1;
+                double total = rest[1] + scores[row][column];
+                if (count > best[0] || count == best[0] && total > best[1])
+                {
+                    best = new double[] {count, total};
+                }
+            }
+        }
+        return best;
+    }
+
+
+    private static double assigned(int[] assignment)
+    {
+        int count = 0;
+        for (int column : assignment)
+        {
+            if (column != HungarianAssignment.UNASSIGNED)
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+
+    private static double total(double[][] scores, int[] assignment)
+    {
+        double total = 0;
+        for (int row = 0; row < assignment.length; row++)
+        {
+            if (assignment[row] != HungarianAssignment.UNASSIGNED)
+            {
+                total += scores[row][assignment[row]];
+            }
+        }
+        return total;
+    }
+}
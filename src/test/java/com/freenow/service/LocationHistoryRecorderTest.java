@@ -0,0 +1,71 @@
+package com.freenow.service;
+
+import com.freenow.dataaccessobject.LocationHistoryRepository;
+import com.freenow.domainvalue.DriverUpdate;
+import com.freenow.domainvalue.LocationPing;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.service.driver.DriverUpdateEvent;
+import com.freenow.service.driver.LocationHistoryRecorder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+public class LocationHistoryRecorderTest
+{
+
+    private final LocationHistoryRepository historyRepository = Mockito.mock(LocationHistoryRepository.class);
+
+
+    @Test
+    public void recordsLocationUpdatesOnly()
+    {
+        LocationHistoryRecorder recorder = new LocationHistoryRecorder(historyRepository, new SimpleMeterRegistry(), true, 10, 10, 30);
+        ZonedDateTime now = ZonedDateTime.now();
+
+        recorder.onDriverUpdate(new DriverUpdateEvent(Arrays.asList(
+            DriverUpdate.location(1L, 53.55, 9.99, now),
+            new DriverUpdate(1L, 53.55, 9.99, OnlineStatus.ONLINE, false, null, now),
+            DriverUpdate.location(2L, 48.13, 11.57, now))));
+
+        Assertions.assertEquals(2, recorder.pendingCount());
+    }
+
+
+    @Test
+    public void fullQueueDropsInsteadOfBlocking()
+    {
+        LocationHistoryRecorder recorder = new LocationHistoryRecorder(historyRepository, new SimpleMeterRegistry(), true, 2, 10, 30);
+
+        Assertions.assertTrue(recorder.record(new LocationPing(1L, 53.55, 9.99, ZonedDateTime.now())));
+        Assertions.assertTrue(recorder.record(new LocationPing(1L, 53.56, 9.99, ZonedDateTime.now())));
+        Assertions.assertFalse(recorder.record(new LocationPing(1L, 53.57, 9.99, ZonedDateTime.now())));
+    }
+
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void flushWritesInBatches()
+    {
+        LocationHistoryRecorder recorder = new LocationHistoryRecorder(historyRepository, new SimpleMeterRegistry(), true, 10, 2, 30);
+        List<Integer> batchSizes = new ArrayList<>();
+        Mockito.doAnswer(invocation -> batchSizes.add(((Collection<LocationPing>) invocation.getArgument(0)).size()))
+            .when(historyRepository).append(Mockito.anyCollection());
+        for (int i = 0; i < 5; i++)
+        {
+            recorder.record(new LocationPing(1L, 53.55, 9.99, ZonedDateTime.now()));
+        }
+
+        recorder.flush();
+
+        Assertions.assertEquals(Arrays.asList(2, 2, 1), batchSizes);
+        Assertions.assertEquals(0, recorder.pendingCount());
+    }
+}
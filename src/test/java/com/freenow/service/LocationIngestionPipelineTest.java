@@ -0,0 +1,129 @@
+package com.freenow.service;
+
+import com.freenow.dataaccessobject.DriverRepository;
+import com.freenow.domainobject.DriverDO;
+import com.freenow.domainvalue.LocationPing;
+import com.freenow.service.driver.DriverPresence;
+import com.freenow.service.driver.DriverUpdateEvent;
+import com.freenow.service.driver.LocationIngestionPipeline;
+import com.freenow.service.driver.PositionExpiry;
+import com.freenow.service.geo.GeoGridIndex;
+import com.freenow.util.JsonResponseCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+
+public class LocationIngestionPipelineTest
+{
+
+    private final DriverRepository driverRepository = Mockito.mock(DriverRepository.class);
+    private final GeoGridIndex locationIndex = new GeoGridIndex(0.01);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DriverPresence presence = new DriverPresence(driverRepository, meterRegistry, 60, 600, 1000);
+    private final PositionExpiry positionExpiry = new PositionExpiry(meterRegistry, 300, 1000);
+    private final JsonResponseCache responseCache = Mockito.mock(JsonResponseCache.class);
+    private final ApplicationEventPublisher eventPublisher = Mockito.mock(ApplicationEventPublisher.class);
+
+
+    @Test
+    public void disabledPipelineRefusesPings()
+    {
+        LocationIngestionPipeline pipeline = pipeline(false, 10);
+        Assertions.assertFalse(pipeline.submit(1L, 53.55, 9.99));
+        Assertions.assertFalse(pipeline.latest(1L).isPresent());
+    }
+
+
+    @Test
+    public void pingsAreConflatedPerDriver()
+    {
+        LocationIngestionPipeline pipeline = pipeline(true, 10);
+        Assertions.assertTrue(pipeline.submit(1L, 53.55, 9.99));
+        Assertions.assertTrue(pipeline.submit(1L, 53.56, 9.98));
+
+        Assertions.assertEquals(1, pipeline.pendingCount());
+        Assertions.assertEquals(53.56, pipeline.latest(1L).get().getLatitude());
+        Assertions.assertEquals(1d, meterRegistry.counter("driver.location.pings", "result", "coalesced").count());
+    }
+
+
+    @Test
+    public void fullBufferRejectsNewDrivers()
+    {
+        LocationIngestionPipeline pipeline = pipeline(true, 1);
+        Assertions.assertTrue(pipeline.submit(1L, 53.55, 9.99));
+        Assertions.assertFalse(pipeline.submit(2L, 53.55, 9.99));
+        Assertions.assertTrue(pipeline.submit(1L, 53.57, 9.99));
+        Assertions.assertEquals(1d, meterRegistry.counter("driver.location.pings", "result", "rejected").count());
+    }
+
+
+    @Test
+    public void flushWritesBatchAndIndexesOnlineDrivers()
+    {
+        LocationIngestionPipeline pipeline = pipeline(true, 10);
+        pipeline.submit(1L, 53.55, 9.99);
+        pipeline.submit(2L, 53.56, 9.98);
+        pipeline.submit(3L, 53.57, 9.97);
+        Mockito.when(driverRepository.updateLocations(Mockito.anyList())).thenReturn(new int[] {1, 1, 0});
+        presence.online(1L);
+
+        pipeline.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<LocationPing>> batch = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(driverRepository).updateLocations(batch.capture());
+        Assertions.assertEquals(3, batch.getValue().size());
+        Assertions.assertEquals(0, pipeline.pendingCount());
+        Assertions.assertTrue(locationIndex.contains(1L));
+        Assertions.assertFalse(locationIndex.contains(2L));
+        Assertions.assertEquals(1d, meterRegistry.counter("driver.location.flushed.skipped").count());
+    }
+
+
+    @Test
+    public void flushAppliesCoalescedPings()
+    {
+        LocationIngestionPipeline pipeline = pipeline(false, 10);
+        pipeline.buffer(1L, 53.55, 9.99);
+        pipeline.buffer(1L, 53.56, 9.98);
+        Mockito.when(driverRepository.updateLocations(Mockito.anyList())).thenReturn(new int[] {1});
+        presence.online(1L);
+
+        pipeline.flush();
+
+        Assertions.assertTrue(locationIndex.contains(1L));
+        Assertions.assertTrue(positionExpiry.isTracked(1L));
+        Mockito.verify(responseCache).invalidate(DriverDO.class, 1L);
+        ArgumentCaptor<DriverUpdateEvent> event = ArgumentCaptor.forClass(DriverUpdateEvent.class);
+        Mockito.verify(eventPublisher).publishEvent(event.capture());
+        Assertions.assertEquals(1, event.getValue().getUpdates().size());
+        Assertions.assertEquals(53.56, event.getValue().getUpdates().get(0).getLatitude().doubleValue());
+    }
+
+
+    @Test
+    public void flushLeavesSubmittedPingsToTheCaller()
+    {
+        LocationIngestionPipeline pipeline = pipeline(true, 10);
+        pipeline.buffer(1L, 53.55, 9.99);
+        pipeline.submit(1L, 53.56, 9.98);
+        Mockito.when(driverRepository.updateLocations(Mockito.anyList())).thenReturn(new int[] {1});
+
+        pipeline.flush();
+
+        Mockito.verifyNoInteractions(responseCache, eventPublisher);
+    }
+
+
+    private LocationIngestionPipeline pipeline(boolean enabled, int capacity)
+    {
+        return new LocationIngestionPipeline(
+            driverRepository, locationIndex, presence, positionExpiry, responseCache, eventPublisher, meterRegistry, enabled, capacity);
+    }
+}
@@ -0,0 +1,127 @@
+package com.freenow.service;
+
+import com.freenow.domainobject.CarDO;
+import com.freenow.domainvalue.DriverMatch;
+import com.freenow.domainvalue.DriverUpdate;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.domainvalue.RideRequest;
+import com.freenow.exception.EntityNotFoundException;
+import com.freenow.service.car.CarService;
+import com.freenow.service.car.CarUpdateEvent;
+import com.freenow.service.driver.DriverService;
+import com.freenow.service.driver.DriverUpdateEvent;
+import com.freenow.service.geo.GeoGridIndex;
+import com.freenow.service.matching.DefaultMatchingService;
+import com.freenow.service.matching.WeightedMatchScorer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class MatchingServiceTest
+{
+
+    private CarService carService;
+    private GeoGridIndex locationIndex;
+    private DefaultMatchingService matchingService;
+
+
+    @BeforeEach
+    public void setUp()
+    {
+        carService = Mockito.mock(CarService.class);
+        locationIndex = new GeoGridIndex(0.01);
+        matchingService = new DefaultMatchingService(
+            Mockito.mock(DriverService.class), carService, locationIndex, new WeightedMatchScorer(1.0, 0.3, 0.2, 100), new SimpleMeterRegistry(), 2, 30);
+    }
+
+
+    @Test
+    public void ranksByDistanceRatingAndEngineType() throws EntityNotFoundException
+    {
+        online(1L, 53.5500, 9.9900, new CarDO(11L, "HH-1", 4, false, "1", "gas"));
+        online(2L, 53.5510, 9.9900, new CarDO(12L, "HH-2", 4, false, "5", "electric"));
+        online(3L, 53.6000, 9.9900, new CarDO(13L, "HH-3", 4, false, "5", "electric"));
+
+        List<DriverMatch> matches = matchingService.match(new RideRequest(53.5500, 9.9900, 10, 3, null, null, "electric"));
+
+        Assertions.assertEquals(List.of(2L, 1L, 3L), ids(matches));
+        Assertions.assertEquals(12L, matches.get(0).getCarId());
+        Assertions.assertTrue(matches.get(0).getScore() > matches.get(1).getScore());
+    }
+
+
+    @Test
+    public void ratingsOfTheSeededRangeAreNotClamped() throws EntityNotFoundException
+    {
+        online(1L, 53.5505, 9.9900, new CarDO(11L, "HH-1", 4, false, "33", "gas"));
+        online(2L, 53.5500, 9.9900, new CarDO(12L, "HH-2", 4, false, "12", "gas"));
+
+        List<DriverMatch> matches = matchingService.match(new RideRequest(53.5500, 9.9900, 10, 2, null, null, null));
+
+        Assertions.assertEquals(List.of(1L, 2L), ids(matches));
+    }
+
+
+    @Test
+    public void hardRequirementsWidenSearchBeyondCandidatePool() throws EntityNotFoundException
+    {
+        online(1L, 53.5500, 9.9900, new CarDO(11L, "HH-1", 2, false, "5", "gas"));
+        online(2L, 53.5510, 9.9900, new CarDO(12L, "HH-2", 2, true, "5", "gas"));
+        online(3L, 53.5600, 9.9900, new CarDO(13L, "HH-3", 5, true, "3", "gas"));
+
+        List<DriverMatch> matches = matchingService.match(new RideRequest(53.5500, 9.9900, 5, 1, 4, true, null));
+
+        Assertions.assertEquals(List.of(3L), ids(matches));
+    }
+
+
+    @Test
+    public void statusAndCarUpdatesMaintainProfiles() throws EntityNotFoundException
+    {
+        online(1L, 53.5500, 9.9900, new CarDO(11L, "HH-1", 4, false, "5", "gas"));
+        RideRequest sixSeats = new RideRequest(53.5500, 9.9900, 5, 1, 6, null, null);
+        Assertions.assertTrue(matchingService.match(sixSeats).isEmpty());
+
+        matchingService.onCarUpdate(new CarUpdateEvent(11L, new CarDO(11L, "HH-1", 6, false, "5", "gas")));
+        Assertions.assertEquals(List.of(1L), ids(matchingService.match(sixSeats)));
+
+        matchingService.onDriverUpdate(new DriverUpdateEvent(
+            new DriverUpdate(1L, 53.55, 9.99, OnlineStatus.ONLINE, false, null, ZonedDateTime.now())));
+        Assertions.assertEquals(0, matchingService.size());
+        Assertions.assertTrue(matchingService.match(sixSeats).isEmpty());
+    }
+
+
+    @Test
+    public void statusUpdatesReleaseClaims() throws EntityNotFoundException
+    {
+        online(1L, 53.5500, 9.9900, new CarDO(11L, "HH-1", 4, false, "5", "gas"));
+        RideRequest request = new RideRequest(53.5500, 9.9900, 5, 1, null, null, null);
+        Assertions.assertTrue(matchingService.claim(1L));
+        Assertions.assertTrue(matchingService.match(request).isEmpty());
+
+        online(1L, 53.5500, 9.9900, new CarDO(12L, "HH-2", 4, false, "5", "gas"));
+        Assertions.assertEquals(List.of(1L), ids(matchingService.match(request)));
+    }
+
+
+    private void online(long driverId, double latitude, double longitude, CarDO carDO) throws EntityNotFoundException
+    {
+        Mockito.when(carService.find(carDO.getId())).thenReturn(carDO);
+        locationIndex.update(driverId, latitude, longitude);
+        matchingService.onDriverUpdate(new DriverUpdateEvent(
+            new DriverUpdate(driverId, latitude, longitude, OnlineStatus.ONLINE, false, carDO.getId(), ZonedDateTime.now())));
+    }
+
+
+    private static List<Long> ids(List<DriverMatch> matches)
+    {
+        return matches.stream().map(DriverMatch::getDriverId).collect(Collectors.toList());
+    }
+}
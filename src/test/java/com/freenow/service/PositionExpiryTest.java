@@ -0,0 +1,80 @@
+package com.freenow.service;
+
+import com.freenow.service.driver.PositionExpiry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PositionExpiryTest
+{
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PositionExpiry expiry = new PositionExpiry(meterRegistry, 300, 1000);
+    private final long now = System.currentTimeMillis();
+
+
+    @Test
+    public void positionsExpireAfterTheTimeToLive()
+    {
+        List<Long> expired = new ArrayList<>();
+        Assertions.assertTrue(expiry.track(1L, at(now)));
+        Assertions.assertTrue(expiry.track(2L, at(now + 120_000)));
+
+        Assertions.assertEquals(0, expiry.expire(now + 290_000, expired::add));
+        Assertions.assertEquals(1, expiry.expire(now + 302_000, expired::add));
+
+        Assertions.assertEquals(List.of(1L), expired);
+        Assertions.assertTrue(expiry.isTracked(2L));
+        Assertions.assertEquals(1d, meterRegistry.counter("driver.location.expired").count());
+    }
+
+
+    @Test
+    public void newerPositionMovesTheDeadline()
+    {
+        expiry.track(1L, at(now));
+        expiry.track(1L, at(now + 200_000));
+
+        Assertions.assertEquals(0, expiry.expire(now + 302_000, id -> { }));
+        Assertions.assertEquals(1, expiry.expire(now + 502_000, id -> { }));
+    }
+
+
+    @Test
+    public void oldPositionsAreFreshForOneTimeToLiveAfterStartup()
+    {
+        Assertions.assertTrue(expiry.track(1L, at(now - 3_600_000)));
+        Assertions.assertFalse(expiry.isFresh(null));
+
+        Assertions.assertEquals(0, expiry.expire(now + 290_000, id -> { }));
+        Assertions.assertEquals(1, expiry.expire(now + 302_000, id -> { }));
+    }
+
+
+    @Test
+    public void reportsExpiredPositionsOfTheLastMinute()
+    {
+        expiry.track(1L, at(now));
+        expiry.track(2L, at(now));
+        long minute = ((now + 302_000) / 60_000 + 1) * 60_000;
+
+        expiry.expire(minute + 1_000, id -> { });
+        Assertions.assertEquals(0, expiry.expiredLastMinute());
+
+        expiry.expire(minute + 61_000, id -> { });
+        Assertions.assertEquals(2, expiry.expiredLastMinute());
+        Assertions.assertEquals(2d, meterRegistry.get("driver.location.expired.per-minute").gauge().value());
+    }
+
+
+    private static ZonedDateTime at(long millis)
+    {
+        return Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,112 @@
+package com.freenow.service;
+
+import com.freenow.FreeNowServerApplicantTestApplication;
+import com.freenow.datatransferobject.DriverLocationDTO;
+import com.freenow.domainobject.DriverDO;
+import com.freenow.domainvalue.LocationUpdateStatus;
+import com.freenow.domainvalue.OnlineStatus;
+import com.freenow.exception.ConstraintsViolationException;
+import com.freenow.exception.EntityNotFoundException;
+import com.freenow.service.driver.DriverService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Drivers and the cached driver queries are served from the second-level cache until they are changed.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(classes = FreeNowServerApplicantTestApplication.class)
+public class SecondLevelCacheTest
+{
+
+    private static final String USERNAME = "cached-driver";
+
+    @Autowired
+    private DriverService driverService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+
+    @BeforeEach
+    public void setUp()
+    {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+
+    @AfterEach
+    public void tearDown()
+    {
+        jdbcTemplate.update("delete from driver where username = ?", USERNAME);
+        jdbcTemplate.update("update driver set latitude = 55.954, longitude = 9.5, date_coordinate_updated = now() where id = 7");
+        entityManagerFactory.getCache().evictAll();
+    }
+
+
+    @Test
+    public void findIsServedFromCache() throws EntityNotFoundException
+    {
+        driverService.find(1L);
+        statistics.clear();
+
+        DriverDO driverDO = driverService.find(1L);
+
+        Assertions.assertEquals("driver01", driverDO.getUsername());
+        Assertions.assertEquals(0, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(1, statistics.getCacheRegionStatistics("driver").getHitCount());
+    }
+
+
+    @Test
+    public void jdbcLocationUpdateEvictsDriver() throws EntityNotFoundException
+    {
+        driverService.find(7L);
+
+        List<LocationUpdateStatus> statuses = driverService.updateLocations(
+            Collections.singletonList(new DriverLocationDTO(7L, 53.55, 9.99, ZonedDateTime.now().plusSeconds(10))));
+
+        Assertions.assertEquals(LocationUpdateStatus.UPDATED, statuses.get(0));
+        Assertions.assertEquals(53.55, driverService.find(7L).getCoordinate().getLatitude());
+    }
+
+
+    @Test
+    public void queryCacheIsInvalidatedByChanges() throws ConstraintsViolationException, EntityNotFoundException
+    {
+        DriverDO created = driverService.create(new DriverDO(USERNAME, "pw"));
+        driverService.find(OnlineStatus.OFFLINE);
+        statistics.clear();
+
+        driverService.find(OnlineStatus.OFFLINE);
+        Assertions.assertEquals(1, statistics.getQueryCacheHitCount());
+        Assertions.assertEquals(0, statistics.getPrepareStatementCount());
+
+        driverService.delete(created.getId());
+        List<DriverDO> drivers = driverService.find(OnlineStatus.OFFLINE);
+
+        Assertions.assertEquals(1, statistics.getQueryCacheMissCount());
+        Assertions.assertTrue(drivers.stream()
+            .filter(driverDO -> driverDO.getId().equals(created.getId()))
+            .allMatch(DriverDO::getDeleted));
+    }
+}
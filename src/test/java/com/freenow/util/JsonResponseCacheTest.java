@@ -0,0 +1,83 @@
+package com.freenow.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.freenow.domainobject.CarDO;
+import com.freenow.domainobject.DriverDO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class JsonResponseCacheTest
+{
+
+    private final JsonResponseCache cache = new JsonResponseCache(new ObjectMapper(), new SimpleMeterRegistry(), true, 100, 60);
+
+
+    @Test
+    public void servesEncodedBytesUntilInvalidated()
+    {
+        AtomicInteger loads = new AtomicInteger();
+        JsonResponseCache.Loader<RuntimeException> loader = () -> Collections.singletonMap("loads", loads.incrementAndGet());
+
+        JsonResponseCache.Entry first = cache.get(DriverDO.class, 1L, loader);
+        JsonResponseCache.Entry second = cache.get(DriverDO.class, 1L, loader);
+        cache.invalidate(DriverDO.class, 1L);
+        JsonResponseCache.Entry third = cache.get(DriverDO.class, 1L, loader);
+
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals("{\"loads\":2}", new String(third.toResponse().getBody(), StandardCharsets.UTF_8));
+        Assertions.assertNotEquals(first.getETag(), third.getETag());
+    }
+
+
+    @Test
+    public void invalidateAllOnlyDropsTheType()
+    {
+        AtomicInteger loads = new AtomicInteger();
+        JsonResponseCache.Loader<RuntimeException> loader = loads::incrementAndGet;
+        cache.get(DriverDO.class, 1L, loader);
+        cache.get(CarDO.class, 1L, loader);
+
+        cache.invalidateAll(DriverDO.class);
+        cache.get(DriverDO.class, 1L, loader);
+        cache.get(CarDO.class, 1L, loader);
+
+        Assertions.assertEquals(3, loads.get());
+    }
+
+
+    @Test
+    public void loadOverlappingAnInvalidationIsNotCached()
+    {
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(DriverDO.class, 1L, () -> {
+            // the entity changes while its old state is being encoded
+            cache.invalidate(DriverDO.class, 1L);
+            return loads.incrementAndGet();
+        });
+
+        cache.get(DriverDO.class, 1L, loads::incrementAndGet);
+
+        Assertions.assertEquals(2, loads.get());
+    }
+
+
+    @Test
+    public void invalidationOfAnotherEntityDoesNotStopCaching()
+    {
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(DriverDO.class, 1L, () -> {
+            // a location ping of another driver arrives meanwhile
+            cache.invalidate(DriverDO.class, 2L);
+            return loads.incrementAndGet();
+        });
+
+        cache.get(DriverDO.class, 1L, loads::incrementAndGet);
+
+        Assertions.assertEquals(1, loads.get());
+    }
+}
@@ -0,0 +1,83 @@
+package com.freenow.util;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class LoggingInterceptorTest
+{
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(LoggingInterceptor.class);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+
+    @BeforeEach
+    public void setUp()
+    {
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+
+    @AfterEach
+    public void tearDown()
+    {
+        logger.detachAppender(appender);
+    }
+
+
+    @Test
+    public void logsStructuredLineWithLatency()
+    {
+        handle(new LoggingInterceptor(1.0, ""), "/v1/drivers/1", 200);
+
+        Assertions.assertEquals(1, appender.list.size());
+        ILoggingEvent event = appender.list.get(0);
+        Assertions.assertEquals(Level.INFO, event.getLevel());
+        Assertions.assertTrue(event.getFormattedMessage().matches(
+            "method=GET uri=/v1/drivers/1 status=200 remoteAddress=127.0.0.1 latencyMs=\\d+\\.\\d{3}"), event.getFormattedMessage());
+    }
+
+
+    @Test
+    public void errorOnlyPathsSkipSuccessfulRequests()
+    {
+        LoggingInterceptor interceptor = new LoggingInterceptor(1.0, "/actuator/**, /v1/drivers/locations");
+        handle(interceptor, "/actuator/health", 200);
+        handle(interceptor, "/v1/drivers/locations", 200);
+        handle(interceptor, "/v1/drivers/locations", 500);
+
+        Assertions.assertEquals(1, appender.list.size());
+        Assertions.assertEquals(Level.ERROR, appender.list.get(0).getLevel());
+    }
+
+
+    @Test
+    public void samplingNeverDropsFailedRequests()
+    {
+        LoggingInterceptor interceptor = new LoggingInterceptor(0.0, "");
+        handle(interceptor, "/v1/drivers/1", 200);
+        handle(interceptor, "/v1/drivers/1", 404);
+
+        Assertions.assertEquals(1, appender.list.size());
+        Assertions.assertEquals(Level.WARN, appender.list.get(0).getLevel());
+    }
+
+
+    private static void handle(LoggingInterceptor interceptor, String uri, int status)
+    {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setStatus(status);
+        interceptor.preHandle(request, response, null);
+        interceptor.afterCompletion(request, response, null, null);
+    }
+}
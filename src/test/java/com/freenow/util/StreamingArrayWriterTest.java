@@ -0,0 +1,42 @@
+package com.freenow.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+
+public class StreamingArrayWriterTest
+{
+
+    private final StreamingArrayWriter arrayWriter = new StreamingArrayWriter(
+        new ObjectMapper(), new MappingJackson2CborHttpMessageConverter(), new MappingJackson2SmileHttpMessageConverter(), 1);
+
+
+    @Test
+    public void writesTheWholeListing() throws Exception
+    {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        arrayWriter.write(null, response, String.class, sink -> List.of("a", "b").forEach(sink));
+
+        Assertions.assertEquals("[\"a\",\"b\"]", response.getContentAsString());
+    }
+
+
+    @Test
+    public void failedListingIsLeftUnterminated() throws Exception
+    {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        Assertions.assertThrows(IllegalStateException.class, () -> arrayWriter.write(null, response, String.class, sink -> {
+            sink.accept("a");
+            throw new IllegalStateException("connection lost");
+        }));
+
+        Assertions.assertEquals("[\"a\"", response.getContentAsString());
+    }
+}
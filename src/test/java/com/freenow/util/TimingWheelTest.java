@@ -0,0 +1,74 @@
+package com.freenow.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TimingWheelTest
+{
+
+    private final TimingWheel<Long> wheel = new TimingWheel<>(100, 8, 0);
+
+
+    @Test
+    public void expiresDueKeysOnce()
+    {
+        List<Long> expired = new ArrayList<>();
+        wheel.schedule(1L, 250);
+        wheel.schedule(2L, 450);
+
+        Assertions.assertEquals(0, wheel.advance(200, expired::add));
+        Assertions.assertEquals(1, wheel.advance(300, expired::add));
+        Assertions.assertEquals(0, wheel.advance(300, expired::add));
+
+        Assertions.assertEquals(List.of(1L), expired);
+        Assertions.assertEquals(1, wheel.size());
+    }
+
+
+    @Test
+    public void rescheduledAndCancelledKeysDoNotExpire()
+    {
+        List<Long> expired = new ArrayList<>();
+        wheel.schedule(1L, 250);
+        wheel.schedule(2L, 250);
+        wheel.schedule(1L, 650);
+        wheel.cancel(2L);
+
+        wheel.advance(500, expired::add);
+        Assertions.assertTrue(expired.isEmpty());
+
+        wheel.advance(700, expired::add);
+        Assertions.assertEquals(List.of(1L), expired);
+        Assertions.assertEquals(0, wheel.size());
+    }
+
+
+    @Test
+    public void deadlinesBeyondOneRotationWaitForTheirRotation()
+    {
+        List<Long> expired = new ArrayList<>();
+        wheel.schedule(1L, 2050);
+
+        wheel.advance(1000, expired::add);
+        Assertions.assertTrue(expired.isEmpty());
+
+        // more than a rotation elapsed since the last advance, every bucket is visited once
+        wheel.advance(2500, expired::add);
+        Assertions.assertEquals(List.of(1L), expired);
+    }
+
+
+    @Test
+    public void pastDeadlinesExpireWithTheNextTick()
+    {
+        List<Long> expired = new ArrayList<>();
+        wheel.advance(1000, expired::add);
+        wheel.schedule(1L, 500);
+
+        wheel.advance(1100, expired::add);
+        Assertions.assertEquals(List.of(1L), expired);
+    }
+}
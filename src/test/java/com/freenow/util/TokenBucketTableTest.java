@@ -0,0 +1,76 @@
+package com.freenow.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class TokenBucketTableTest
+{
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final long now = System.nanoTime();
+
+
+    @Test
+    public void burstIsAllowedThenTheRate()
+    {
+        TokenBucketTable table = new TokenBucketTable(100, 2, 3);
+
+        Assertions.assertEquals(0, table.tryAcquire(1L, now));
+        Assertions.assertEquals(0, table.tryAcquire(1L, now));
+        Assertions.assertEquals(0, table.tryAcquire(1L, now));
+        Assertions.assertEquals(SECOND / 2, table.tryAcquire(1L, now));
+        Assertions.assertEquals(SECOND / 4, table.tryAcquire(1L, now + SECOND / 4));
+
+        Assertions.assertEquals(0, table.tryAcquire(1L, now + SECOND / 2));
+        Assertions.assertTrue(table.tryAcquire(1L, now + SECOND / 2) > 0);
+    }
+
+
+    @Test
+    public void waitingTimeIsReadWithoutTakingAPermit()
+    {
+        TokenBucketTable table = new TokenBucketTable(100, 2, 1);
+
+        Assertions.assertEquals(0, table.waitNanos(1L, now));
+        Assertions.assertEquals(0, table.tryAcquire(1L, now));
+        Assertions.assertEquals(SECOND / 2, table.waitNanos(1L, now));
+        Assertions.assertEquals(SECOND / 2, table.waitNanos(1L, now));
+        Assertions.assertEquals(0, table.waitNanos(1L, now + SECOND / 2));
+        Assertions.assertEquals(0, table.tryAcquire(1L, now + SECOND / 2));
+    }
+
+
+    @Test
+    public void keysHaveTheirOwnBuckets()
+    {
+        TokenBucketTable table = new TokenBucketTable(100, 1, 1);
+
+        Assertions.assertEquals(0, table.tryAcquire(1L, now));
+        Assertions.assertTrue(table.tryAcquire(1L, now) > 0);
+        Assertions.assertEquals(0, table.tryAcquire(2L, now));
+    }
+
+
+    @Test
+    public void idleBucketsAreTakenOverAndAFullTableLetsRequestsThrough()
+    {
+        TokenBucketTable table = new TokenBucketTable(16, 1, 1);
+        for (long key = 1; key <= 64; key++)
+        {
+            Assertions.assertEquals(0, table.tryAcquire(key, now));
+        }
+        Assertions.assertTrue(table.overflowCount() > 0);
+
+        // once the buckets are full again their slots are free for new keys
+        long overflows = table.overflowCount();
+        for (long key = 101; key <= 116; key++)
+        {
+            Assertions.assertEquals(0, table.tryAcquire(key, now + 2 * SECOND));
+            Assertions.assertTrue(table.tryAcquire(key, now + 2 * SECOND) > 0);
+        }
+        Assertions.assertEquals(overflows, table.overflowCount());
+    }
+}